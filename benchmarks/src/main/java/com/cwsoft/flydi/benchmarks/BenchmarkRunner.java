@@ -0,0 +1,33 @@
+package com.cwsoft.flydi.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks matching the arguments, all when there are none, with the GC profiler for allocation rates and
+ * writes the results as JSON to {@code target/jmh-results.json}, or the file named by {@code -Dflydi.results}.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        OptionsBuilder options = new OptionsBuilder();
+        if (args.length == 0) {
+            options.include(BenchmarkRunner.class.getPackageName() + ".*");
+        }
+        for (String include : args) {
+            options.include(include);
+        }
+
+        Options runOptions = options
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(System.getProperty("flydi.results", "target/jmh-results.json"))
+                .build();
+
+        new Runner(runOptions).run();
+    }
+}
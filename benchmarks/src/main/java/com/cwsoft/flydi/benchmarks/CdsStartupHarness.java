@@ -0,0 +1,98 @@
+package com.cwsoft.flydi.benchmarks;
+
+import com.cwsoft.flydi.BeanScannerConfig;
+import com.cwsoft.flydi.CdsTraining;
+import com.cwsoft.flydi.FlyDI;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares the cold start of a JVM booting a {@link SyntheticBeanGraph} with and without a dynamic AppCDS archive
+ * written by a {@link CdsTraining} run. Each start is a new JVM, timed from launch to exit, so JVM startup and class
+ * loading count, which a JMH benchmark in a warm JVM does not see. The graph is booted from the bean index and by a
+ * classpath scan, which also loads Reflections and javassist.
+ * <p>
+ * Configured with the system properties {@code flydi.cds.beanCount} (default {@code 1000}) and {@code flydi.cds.runs},
+ * the starts per configuration of which the median counts (default {@code 5}).
+ */
+public class CdsStartupHarness {
+
+    /**
+     * The application started by the harness: boots the graph in the package {@code args[0]}, from the bean index if
+     * {@code args[1]} is {@code true}.
+     */
+    public static class Boot {
+        public static void main(String[] args) {
+            FlyDI flyDI = new FlyDI(BeanScannerConfig.builder()
+                    .includePackage(args[0])
+                    .useBeanIndex(Boolean.parseBoolean(args[1]))
+                    .build());
+            flyDI.scanForBeans();
+            flyDI.injectBeans();
+            flyDI.runPostConstructors();
+        }
+    }
+
+    private final int beanCount = Integer.getInteger("flydi.cds.beanCount", 1000);
+    private final int runs = Integer.getInteger("flydi.cds.runs", 5);
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        System.exit(new CdsStartupHarness().run() ? 0 : 1);
+    }
+
+    /**
+     * @return false if a training run failed
+     */
+    public boolean run() throws IOException, InterruptedException {
+        SyntheticBeanGraph graph = SyntheticBeanGraph.generate(beanCount, SyntheticBeanGraph.defaultDirectory());
+        // run from target/benchmarks.jar, the archive ignores classes from directories
+        String classPath = graph.jarFile() + File.pathSeparator + System.getProperty("java.class.path");
+
+        for (boolean useBeanIndex : new boolean[]{true, false}) {
+            List<String> args = List.of(graph.getPackageName(), Boolean.toString(useBeanIndex));
+            Path archive = graph.jarFile().resolveSibling(useBeanIndex ? "index.jsa" : "scan.jsa");
+
+            int exitCode = CdsTraining.train(archive, classPath, Boot.class.getName(), args);
+            if (exitCode != 0) {
+                System.out.printf("FAILED: training run exited with %d%n", exitCode);
+                return false;
+            }
+
+            long without = medianStartMillis(List.of(), classPath, args);
+            long with = medianStartMillis(CdsTraining.runOptions(archive), classPath, args);
+
+            System.out.printf("%d beans, %s: %5d ms without archive, %5d ms with, %.2fx faster%n", beanCount,
+                    useBeanIndex ? "bean index" : "classpath scan", without, with, (double) without / with);
+        }
+        return true;
+    }
+
+    private long medianStartMillis(List<String> options, String classPath, List<String> args) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        // the archive is only used with the options it was written with
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.addAll(options);
+        command.add("-cp");
+        command.add(classPath);
+        command.add(Boot.class.getName());
+        command.addAll(args);
+
+        long[] millis = new long[runs];
+        for (int run = 0; run < runs; run++) {
+            long start = System.nanoTime();
+            int exitCode = new ProcessBuilder(command).inheritIO().start().waitFor();
+            millis[run] = (System.nanoTime() - start) / 1_000_000;
+            if (exitCode != 0) throw new IllegalStateException("Boot exited with " + exitCode + ": " + command);
+        }
+
+        Arrays.sort(millis);
+        return millis[runs / 2];
+    }
+}
@@ -0,0 +1,79 @@
+package com.cwsoft.flydi.benchmarks;
+
+import com.cwsoft.flydi.BeanScannerConfig;
+import com.cwsoft.flydi.FlyDI;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.URLClassLoader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link FlyDI#createChild()} on a booted {@link SyntheticBeanGraph}, and of lookups in a child that fall
+ * through to the parent. Creating a child should not depend on the size of the parent, run with {@code -prof gc} to
+ * see the bytes per child.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChildContainerBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    private int beanCount;
+
+    private URLClassLoader classLoader;
+    private FlyDI parent;
+    private FlyDI child;
+    private String overrideName;
+    private Object override;
+    private Class<?>[] beanClasses;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException, ReflectiveOperationException {
+        SyntheticBeanGraph graph = SyntheticBeanGraph.generate(beanCount, SyntheticBeanGraph.defaultDirectory());
+        classLoader = graph.classLoader(ChildContainerBenchmark.class.getClassLoader());
+        parent = StartupBenchmark.boot(classLoader, BeanScannerConfig.builder()
+                .includePackage(graph.getPackageName())
+                .build());
+
+        beanClasses = new Class<?>[beanCount];
+        for (int i = 0; i < beanCount; i++) {
+            beanClasses[i] = Class.forName(graph.beanClassName(i), false, classLoader);
+        }
+
+        overrideName = graph.beanName(beanCount - 1);
+        override = beanClasses[beanCount - 1].getConstructor().newInstance();
+
+        child = parent.createChild();
+        child.addBean(overrideName, override);
+        child.freeze();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        classLoader.close();
+    }
+
+    @Benchmark
+    public FlyDI createChild() {
+        return parent.createChild();
+    }
+
+    @Benchmark
+    public Object createChildWithOverride() {
+        FlyDI tenant = parent.createChild();
+        tenant.addBean(overrideName, override);
+        return tenant.getBean(override.getClass());
+    }
+
+    @Benchmark
+    public Object childGetBeanByClass() {
+        int bean = next;
+        next = bean + 1 == beanCount ? 0 : bean + 1;
+        return child.getBean(beanClasses[bean]);
+    }
+}
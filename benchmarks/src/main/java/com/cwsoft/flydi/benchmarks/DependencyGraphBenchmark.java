@@ -0,0 +1,171 @@
+package com.cwsoft.flydi.benchmarks;
+
+import com.cwsoft.flydi.DependencyGraph;
+import com.cwsoft.flydi.DependencyGraph.CircularDependencyException;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Building and topologically sorting the int indexed {@link DependencyGraph} against the map based
+ * {@link MapDependencyGraph} it replaced. Each node depends on up to three random earlier nodes, named like bean
+ * classes.
+ * <p>
+ * {@code sort} sorts an already sorted graph again, which the int indexed graph answers from the order it keeps.
+ * {@code buildAndSort} includes building the graph and the first sort. The {@code addBeanAfterStartup} benchmarks add a bean that uses one existing bean and is used by another one to a
+ * sorted graph, then sort again, as registering a plugin bean at runtime does.
+ * <p>
+ * Run {@link #main(String[])} for the heap each graph retains.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class DependencyGraphBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int nodeCount;
+
+    private String[] names;
+    private int[] edgeUses;
+    private int[] edgeUsedBy;
+    private DependencyGraph<String> graph;
+    private MapDependencyGraph<String> mapGraph;
+    private Random random;
+    private int plugins;
+
+    @Setup
+    public void setUp() {
+        generate(nodeCount);
+    }
+
+    @Setup(Level.Iteration)
+    public void buildGraphs() throws CircularDependencyException {
+        graph = buildGraph();
+        graph.topologicalSort();
+        mapGraph = buildMapGraph();
+        random = new Random(42);
+    }
+
+    private void generate(int nodes) {
+        Random random = new Random(42);
+        names = new String[nodes];
+        edgeUses = new int[nodes * 3];
+        edgeUsedBy = new int[nodes * 3];
+
+        int edges = 0;
+        for (int node = 0; node < nodes; node++) {
+            names[node] = "com.example.generated.Bean" + node;
+            for (int i = 0, dependencies = node == 0 ? 0 : random.nextInt(4); i < dependencies; i++) {
+                edgeUses[edges] = node;
+                edgeUsedBy[edges] = random.nextInt(node);
+                edges++;
+            }
+        }
+        edgeUses = Arrays.copyOf(edgeUses, edges);
+        edgeUsedBy = Arrays.copyOf(edgeUsedBy, edges);
+    }
+
+    private DependencyGraph<String> buildGraph() {
+        DependencyGraph<String> graph = new DependencyGraph<>();
+        for (String name : names) {
+            graph.add(name);
+        }
+        for (int edge = 0; edge < edgeUses.length; edge++) {
+            graph.addDependency(names[edgeUses[edge]], names[edgeUsedBy[edge]]);
+        }
+        return graph;
+    }
+
+    private MapDependencyGraph<String> buildMapGraph() {
+        MapDependencyGraph<String> graph = new MapDependencyGraph<>();
+        for (String name : names) {
+            graph.add(name);
+        }
+        for (int edge = 0; edge < edgeUses.length; edge++) {
+            graph.addDependency(names[edgeUses[edge]], names[edgeUsedBy[edge]]);
+        }
+        return graph;
+    }
+
+    @Benchmark
+    public List<String> sort() throws CircularDependencyException {
+        return graph.topologicalSort();
+    }
+
+    @Benchmark
+    public List<String> sortMapGraph() throws CircularDependencyException {
+        return mapGraph.topologicalSort();
+    }
+
+    @Benchmark
+    public List<String> buildAndSort() throws CircularDependencyException {
+        return buildGraph().topologicalSort();
+    }
+
+    @Benchmark
+    public List<String> buildAndSortMapGraph() throws CircularDependencyException {
+        return buildMapGraph().topologicalSort();
+    }
+
+    @Benchmark
+    public List<String> addBeanAfterStartup() throws CircularDependencyException {
+        addPlugin(graph::addDependency);
+        return graph.topologicalSort();
+    }
+
+    @Benchmark
+    public List<String> addBeanAfterStartupMapGraph() throws CircularDependencyException {
+        addPlugin(mapGraph::addDependency);
+        return mapGraph.topologicalSort();
+    }
+
+    // the generated nodes only depend on earlier ones, so a plugin placed between the two it connects keeps the graph acyclic
+    private void addPlugin(BiConsumer<String, String> addDependency) {
+        String plugin = "com.example.plugin.Plugin" + plugins++;
+        int usedByPlugin = random.nextInt(nodeCount - 1);
+        int usingPlugin = usedByPlugin + 1 + random.nextInt(nodeCount - usedByPlugin - 1);
+        addDependency.accept(plugin, names[usedByPlugin]);
+        addDependency.accept(names[usingPlugin], plugin);
+    }
+
+    /**
+     * Prints the heap retained by each graph, without the node names they share.
+     */
+    public static void main(String[] args) throws CircularDependencyException {
+        for (int nodeCount : new int[]{10_000, 100_000, 1_000_000}) {
+            DependencyGraphBenchmark benchmark = new DependencyGraphBenchmark();
+            benchmark.generate(nodeCount);
+
+            long before = usedHeapAfterGc();
+            DependencyGraph<String> graph = benchmark.buildGraph();
+            graph.topologicalSort();
+            long retained = usedHeapAfterGc() - before;
+            Reference.reachabilityFence(graph);
+
+            before = usedHeapAfterGc();
+            MapDependencyGraph<String> mapGraph = benchmark.buildMapGraph();
+            mapGraph.topologicalSort();
+            long mapRetained = usedHeapAfterGc() - before;
+            Reference.reachabilityFence(mapGraph);
+
+            System.out.printf("%8d nodes: DependencyGraph %4d bytes/node, MapDependencyGraph %4d bytes/node%n",
+                    nodeCount, retained / nodeCount, mapRetained / nodeCount);
+        }
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,88 @@
+package com.cwsoft.flydi.benchmarks;
+
+import com.cwsoft.flydi.BeanInvokers;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Compares calling an injection setter and a post constructor the way FlyDI used to (setAccessible and
+ * Method.invoke on every call) with the method handle and LambdaMetafactory invokers of {@link BeanInvokers}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class InvokerBenchmark {
+
+    public static class Target {
+        private Object dependency;
+        private int initialised;
+
+        private void setDependency(Object dependency) {
+            this.dependency = dependency;
+        }
+
+        private void init() {
+            initialised++;
+        }
+    }
+
+    private Target target;
+    private Object dependency;
+
+    private Method setter;
+    private Method init;
+    private BiConsumer<Object, Object> handleSetter;
+    private BiConsumer<Object, Object> lambdaSetter;
+    private Consumer<Object> lambdaInit;
+
+    @Setup
+    public void setUp() throws Exception {
+        target = new Target();
+        dependency = new Object();
+
+        setter = Target.class.getDeclaredMethod("setDependency", Object.class);
+        init = Target.class.getDeclaredMethod("init");
+        handleSetter = BeanInvokers.setterHandle(setter);
+        lambdaSetter = BeanInvokers.setter(setter);
+        lambdaInit = BeanInvokers.method(init);
+    }
+
+    @Benchmark
+    public Object reflectiveSetter() throws Exception {
+        setter.setAccessible(true);
+        setter.invoke(target, dependency);
+        return target;
+    }
+
+    @Benchmark
+    public Object methodHandleSetter() {
+        handleSetter.accept(target, dependency);
+        return target;
+    }
+
+    @Benchmark
+    public Object lambdaSetter() {
+        lambdaSetter.accept(target, dependency);
+        return target;
+    }
+
+    @Benchmark
+    public Object reflectivePostConstruct() throws Exception {
+        init.setAccessible(true);
+        init.invoke(target);
+        return target;
+    }
+
+    @Benchmark
+    public Object lambdaPostConstruct() {
+        lambdaInit.accept(target);
+        return target;
+    }
+}
@@ -0,0 +1,87 @@
+package com.cwsoft.flydi.benchmarks;
+
+import com.cwsoft.flydi.BeanScannerConfig;
+import com.cwsoft.flydi.FlyDI;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.URLClassLoader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of {@link FlyDI#getBean(String)} and {@link FlyDI#getBean(Class)}, and throughput of
+ * {@link FlyDI#getPrototypeBean(Class)}, in a booted {@link SyntheticBeanGraph}. Lookups cycle through all beans so the
+ * result does not depend on one lucky hash bucket.
+ * <p>
+ * {@code frozen} compares the registry published by {@link FlyDI#freeze()} with the maps of the unfrozen container.
+ * Run with {@code -prof gc} to see the allocations per lookup.
+ */
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LookupBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    private int beanCount;
+
+    @Param({"true", "false"})
+    private boolean frozen;
+
+    private URLClassLoader classLoader;
+    private FlyDI flyDI;
+    private String[] beanNames;
+    private Class<?>[] beanClasses;
+    private Class<?> prototypeClass;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException, ClassNotFoundException {
+        SyntheticBeanGraph graph = SyntheticBeanGraph.generate(beanCount, SyntheticBeanGraph.defaultDirectory());
+        classLoader = graph.classLoader(LookupBenchmark.class.getClassLoader());
+        flyDI = StartupBenchmark.boot(classLoader, BeanScannerConfig.builder()
+                .includePackage(graph.getPackageName())
+                .freezeAfterStartup(frozen)
+                .build());
+
+        beanNames = new String[beanCount];
+        beanClasses = new Class<?>[beanCount];
+        for (int i = 0; i < beanCount; i++) {
+            beanNames[i] = graph.beanName(i);
+            beanClasses[i] = Class.forName(graph.beanClassName(i), false, classLoader);
+        }
+        prototypeClass = Class.forName(graph.prototypeClassName(), false, classLoader);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        classLoader.close();
+    }
+
+    private int nextBean() {
+        int bean = next;
+        next = bean + 1 == beanCount ? 0 : bean + 1;
+        return bean;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Object getBeanByName() {
+        return flyDI.getBean(beanNames[nextBean()]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Object getBeanByClass() {
+        return flyDI.getBean(beanClasses[nextBean()]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Object getPrototypeBean() {
+        return flyDI.getPrototypeBean(prototypeClass);
+    }
+}
@@ -0,0 +1,135 @@
+package com.cwsoft.flydi.benchmarks;
+
+import com.cwsoft.flydi.DependencyGraph.CircularDependencyException;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * The map based {@link com.cwsoft.flydi.DependencyGraph} FlyDI used before the int indexed one, kept as the baseline
+ * of {@link DependencyGraphBenchmark}.
+ */
+public class MapDependencyGraph<T> {
+
+    private final Map<T, Set<T>> usesMap;
+    private final Map<T, Set<T>> usedByMap;
+    private final Set<T> allNodes;
+
+    public MapDependencyGraph() {
+        usesMap = new LinkedHashMap<>();
+        usedByMap = new LinkedHashMap<>();
+        allNodes = new LinkedHashSet<>();
+    }
+
+    public synchronized void addDependency(T uses, T usedBy) {
+        allNodes.add(uses);
+        allNodes.add(usedBy);
+
+        Set<T> allUses = usesMap.get(uses);
+        if (allUses == null) {
+            allUses = new LinkedHashSet<>();
+            usesMap.put(uses, allUses);
+        }
+        allUses.add(usedBy);
+
+        Set<T> allUsedBy = usedByMap.get(usedBy);
+        if (allUsedBy == null) {
+            allUsedBy = new LinkedHashSet<>();
+            usedByMap.put(usedBy, allUsedBy);
+        }
+        allUsedBy.add(uses);
+    }
+
+    public synchronized void add(T node) {
+        allNodes.add(node);
+    }
+
+    private static class MutableInt {
+        int value;
+
+        public MutableInt() {
+        }
+
+        public MutableInt(int value) {
+            this.value = value;
+        }
+
+        public void increment() {
+            ++value;
+        }
+
+        public void decrement() {
+            --value;
+        }
+
+        public int get() {
+            return value;
+        }
+    }
+
+
+    // prints a Topological Sort of the complete graph
+    public synchronized List<T> topologicalSort() throws CircularDependencyException {
+
+        // set up outDegrees to show out degree for each node - out degree is count of dependencies on other nodes
+        Map<T, MutableInt> outDegrees = new LinkedHashMap<>();
+
+        allNodes.forEach(node -> {
+            Set<T> allUses = usesMap.get(node);
+
+            if (allUses == null) {
+                outDegrees.put(node, new MutableInt());
+            } else {
+                outDegrees.put(node, new MutableInt(allUses.size()));
+            }
+        });
+
+
+        // Create a queue and enqueue all nodes with out degree 0 (i.e. have no dependencies)
+        Queue<T> q = new LinkedList<>();
+        outDegrees.entrySet().forEach(outDegree -> {
+            if (outDegree.getValue().value == 0) {
+                q.add(outDegree.getKey());
+            }
+        });
+
+        int visitedCount = 0;
+
+        // list will hold the nodes sorted in topological order
+        List<T> topOrder = new ArrayList<>();
+        while (!q.isEmpty()) {
+
+            // get next node (that it now down to out degree 0) from queue and add to sorted list
+            T node = q.poll();
+            topOrder.add(node);
+
+            // Iterate through all this nodes "used by" nodes and decrease their out-degree, add node to queue if out-degree is now 0
+            Set<T> usingNodes = usedByMap.get(node);
+
+            if (usingNodes != null) {
+                usingNodes.forEach(usingNode -> {
+                    MutableInt outDegree = outDegrees.get(usingNode);
+                    outDegree.decrement();
+
+                    if (outDegree.get() == 0) {
+                        q.add(usingNode);
+                    }
+                });
+            }
+
+            visitedCount++;
+        }
+
+        // check if there was a cycle
+        if (visitedCount != outDegrees.size()) {
+            String circularCandidates =
+                    outDegrees.entrySet().stream()
+                            .filter(entry -> entry.getValue().value > 0)
+                            .map(entry -> entry.getKey().toString())
+                    .collect( Collectors.joining( "," ) );
+            throw new CircularDependencyException ("Cycle detected in dependency evaluation, check for circular dependencies in the following: " + circularCandidates);
+        }
+
+        return topOrder;
+    }
+}
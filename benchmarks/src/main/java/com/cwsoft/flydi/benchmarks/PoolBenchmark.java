@@ -0,0 +1,83 @@
+package com.cwsoft.flydi.benchmarks;
+
+import com.cwsoft.flydi.*;
+import org.openjdk.jmh.annotations.*;
+
+import javax.inject.Inject;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of a prototype bean holding a buffer, created through its {@link PrototypeFactory} or acquired from and
+ * released to its {@link BeanPool}. Run with {@code -prof gc} to compare the allocation rates.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PoolBenchmark {
+
+    public static class Codec {
+    }
+
+    @Pooled(maxIdle = 64, warmUp = 8)
+    public static class RequestBuffer {
+        private final byte[] bytes = new byte[16 * 1024];
+        private Codec codec;
+        private int length;
+
+        @Inject
+        public void setCodec(Codec codec) {
+            this.codec = codec;
+        }
+
+        @PreReuse
+        public void clear() {
+            length = 0;
+        }
+    }
+
+    private PrototypeFactory<RequestBuffer> factory;
+    private BeanPool<RequestBuffer> pool;
+
+    @Setup
+    public void setUp() {
+        FlyDI flyDI = new FlyDI(BeanScannerConfig.builder().includePackage(PoolBenchmark.class.getPackageName()).build());
+        flyDI.addBean(new Codec());
+        factory = flyDI.prototypeFactory(RequestBuffer.class);
+        pool = flyDI.poolFor(RequestBuffer.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.println(pool.getStats() + " hit rate " + pool.getStats().hitRate());
+    }
+
+    @Benchmark
+    public int prototypeFactory() {
+        RequestBuffer buffer = factory.create();
+        buffer.length = buffer.bytes.length;
+        return buffer.length;
+    }
+
+    @Benchmark
+    public int pool() {
+        RequestBuffer buffer = pool.acquire();
+        buffer.length = buffer.bytes.length;
+        pool.release(buffer);
+        return buffer.length;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int prototypeFactoryFourThreads() {
+        return prototypeFactory();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int poolFourThreads() {
+        return pool();
+    }
+}
@@ -0,0 +1,84 @@
+package com.cwsoft.flydi.benchmarks;
+
+import com.cwsoft.flydi.BeanScannerConfig;
+import com.cwsoft.flydi.FlyDI;
+import com.cwsoft.flydi.PrototypeFactory;
+import org.openjdk.jmh.annotations.*;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of creating prototype beans by hand, through {@link FlyDI#getPrototypeBean(Class)} and through a
+ * {@link PrototypeFactory} held by the caller.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PrototypeBenchmark {
+
+    public static class Repository {
+    }
+
+    public static class Clock {
+    }
+
+    public static class RequestHandler {
+        private Repository repository;
+        private Clock clock;
+        private boolean ready;
+
+        @Inject
+        public void setRepository(Repository repository) {
+            this.repository = repository;
+        }
+
+        @Inject
+        public void setClock(Clock clock) {
+            this.clock = clock;
+        }
+
+        @PostConstruct
+        public void init() {
+            ready = true;
+        }
+    }
+
+    private FlyDI flyDI;
+    private Repository repository;
+    private Clock clock;
+    private PrototypeFactory<RequestHandler> factory;
+
+    @Setup
+    public void setUp() {
+        flyDI = new FlyDI(BeanScannerConfig.builder().includePackage(PrototypeBenchmark.class.getPackageName()).build());
+        repository = new Repository();
+        clock = new Clock();
+        flyDI.addBean(repository);
+        flyDI.addBean(clock);
+        factory = flyDI.prototypeFactory(RequestHandler.class);
+    }
+
+    @Benchmark
+    public RequestHandler handWritten() {
+        RequestHandler handler = new RequestHandler();
+        handler.setRepository(repository);
+        handler.setClock(clock);
+        handler.init();
+        return handler;
+    }
+
+    @Benchmark
+    public RequestHandler getPrototypeBean() {
+        return flyDI.getPrototypeBean(RequestHandler.class);
+    }
+
+    @Benchmark
+    public RequestHandler prototypeFactory() {
+        return factory.create();
+    }
+}
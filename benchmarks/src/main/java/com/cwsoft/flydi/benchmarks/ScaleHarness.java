@@ -0,0 +1,139 @@
+package com.cwsoft.flydi.benchmarks;
+
+import com.cwsoft.flydi.BeanScannerConfig;
+import com.cwsoft.flydi.FlyDI;
+import com.cwsoft.flydi.StartupReport;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Boots {@link SyntheticBeanGraph}s of growing size and checks that FlyDI scales: startup time must grow near-linearly
+ * with the bean count and the heap retained per bean must stay under a budget. Catches a scalability cliff, like a
+ * search over all beans per injection point, that the fixed size benchmarks would not show.
+ * <p>
+ * Exits with status 1 and prints the phase breakdown of every size when a check fails. Configured with system
+ * properties:
+ * <ul>
+ *     <li>{@code flydi.scale.sizes} the bean counts, default {@code 1000,2000,4000,8000}</li>
+ *     <li>{@code flydi.scale.runs} boots per size, the fastest counts, default {@code 5}</li>
+ *     <li>{@code flydi.scale.maxGrowth} how much faster than the bean count startup time may grow, default {@code 1.5}</li>
+ *     <li>{@code flydi.scale.heapPerBean} the retained heap budget per bean in bytes, default {@code 8192}</li>
+ * </ul>
+ */
+public class ScaleHarness {
+
+    record Result(int beanCount, long bestNanos, long retainedBytes, StartupReport report) {
+
+        double nanosPerBean() {
+            return (double) bestNanos / beanCount;
+        }
+
+        long retainedBytesPerBean() {
+            return retainedBytes / beanCount;
+        }
+    }
+
+    private final int[] sizes = Arrays.stream(System.getProperty("flydi.scale.sizes", "1000,2000,4000,8000").split(","))
+            .map(String::trim)
+            .mapToInt(Integer::parseInt)
+            .sorted()
+            .toArray();
+    private final int runs = Integer.getInteger("flydi.scale.runs", 5);
+    private final double maxGrowth = Double.parseDouble(System.getProperty("flydi.scale.maxGrowth", "1.5"));
+    private final long heapPerBean = Long.getLong("flydi.scale.heapPerBean", 8192);
+
+    public static void main(String[] args) throws IOException {
+        System.exit(new ScaleHarness().run() ? 0 : 1);
+    }
+
+    /**
+     * @return true if all checks passed
+     */
+    public boolean run() throws IOException {
+        List<Result> results = new ArrayList<>();
+        for (int size : sizes) {
+            Result result = measure(SyntheticBeanGraph.generate(size, SyntheticBeanGraph.defaultDirectory()));
+            System.out.printf("%6d beans: %8.2f ms, %6.0f ns/bean, %6d bytes/bean retained%n", size,
+                    result.bestNanos() / 1_000_000.0, result.nanosPerBean(), result.retainedBytesPerBean());
+            results.add(result);
+        }
+
+        List<String> failures = check(results);
+        if (failures.isEmpty()) {
+            System.out.println("FlyDI scales near-linearly up to " + sizes[sizes.length - 1] + " beans");
+            return true;
+        }
+
+        failures.forEach(failure -> System.out.println("FAILED: " + failure));
+        for (Result result : results) {
+            System.out.println();
+            System.out.println(result.beanCount() + " beans, fastest boot:");
+            System.out.println(result.report().summary(5));
+        }
+        return false;
+    }
+
+    private Result measure(SyntheticBeanGraph graph) throws IOException {
+        BeanScannerConfig config = BeanScannerConfig.builder()
+                .includePackage(graph.getPackageName())
+                .startupReport(true)
+                .build();
+
+        try (URLClassLoader classLoader = graph.classLoader(ScaleHarness.class.getClassLoader())) {
+            // loads the classes and warms up, neither is counted
+            StartupBenchmark.boot(classLoader, config);
+
+            long bestNanos = Long.MAX_VALUE;
+            StartupReport bestReport = null;
+            for (int run = 0; run < runs; run++) {
+                long start = System.nanoTime();
+                FlyDI flyDI = StartupBenchmark.boot(classLoader, config);
+                long nanos = System.nanoTime() - start;
+                if (nanos < bestNanos) {
+                    bestNanos = nanos;
+                    bestReport = flyDI.getStartupReport();
+                }
+            }
+
+            long before = usedHeapAfterGc();
+            FlyDI flyDI = StartupBenchmark.boot(classLoader, config);
+            long retained = usedHeapAfterGc() - before;
+            // keeps the container reachable until the heap was measured
+            if (flyDI.getBeanNames().isEmpty()) throw new IllegalStateException("No beans found in " + graph.getPackageName());
+
+            return new Result(graph.getBeanCount(), bestNanos, Math.max(retained, 0), bestReport);
+        }
+    }
+
+    private List<String> check(List<Result> results) {
+        List<String> failures = new ArrayList<>();
+        Result smallest = results.get(0);
+
+        for (Result result : results) {
+            double growth = result.nanosPerBean() / smallest.nanosPerBean();
+            if (growth > maxGrowth) {
+                failures.add(String.format("startup time per bean grew %.2fx from %d to %d beans, allowed is %.2fx",
+                        growth, smallest.beanCount(), result.beanCount(), maxGrowth));
+            }
+            if (result.retainedBytesPerBean() > heapPerBean) {
+                failures.add(String.format("%d beans retain %d bytes per bean, allowed are %d",
+                        result.beanCount(), result.retainedBytesPerBean(), heapPerBean));
+            }
+        }
+        return failures;
+    }
+
+    private static long usedHeapAfterGc() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
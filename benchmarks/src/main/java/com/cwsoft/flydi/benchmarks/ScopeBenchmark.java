@@ -0,0 +1,66 @@
+package com.cwsoft.flydi.benchmarks;
+
+import com.cwsoft.flydi.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of looking up {@link Scoped @Scoped} beans through their {@link ScopedHandle}, and of opening an execution
+ * scope. Run with {@code -prof gc}: once the bean of a scope exists, a lookup allocates nothing.
+ * <p>
+ * {@link VirtualThreadScopeHarness} checks the scopes with 100,000 concurrent virtual threads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScopeBenchmark {
+    private static final int LOOKUPS = 1000;
+
+    @Scoped
+    public static class RequestContext {
+        private long requestId;
+    }
+
+    @Scoped(Scoped.Kind.THREAD)
+    public static class Buffers {
+        private final byte[] bytes = new byte[1024];
+    }
+
+    private FlyDI flyDI;
+    private ScopedHandle<RequestContext> requestContext;
+    private ScopedHandle<Buffers> buffers;
+
+    @Setup
+    public void setUp() {
+        flyDI = new FlyDI(BeanScannerConfig.builder().includePackage(ScopeBenchmark.class.getPackageName()).build());
+        requestContext = flyDI.scopedHandleFor(RequestContext.class);
+        buffers = flyDI.scopedHandleFor(Buffers.class);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public void executionScopedLookup(Blackhole blackhole) {
+        flyDI.runInScope(() -> {
+            for (int i = 0; i < LOOKUPS; i++) {
+                blackhole.consume(requestContext.get().requestId);
+            }
+        });
+    }
+
+    @Benchmark
+    public Buffers threadScopedLookup() {
+        return buffers.get();
+    }
+
+    @Benchmark
+    public long openScope() {
+        long[] requestId = new long[1];
+        flyDI.runInScope(() -> requestId[0] = requestContext.get().requestId);
+        return requestId[0];
+    }
+}
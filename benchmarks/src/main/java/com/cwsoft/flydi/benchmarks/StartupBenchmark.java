@@ -0,0 +1,90 @@
+package com.cwsoft.flydi.benchmarks;
+
+import com.cwsoft.flydi.BeanScannerConfig;
+import com.cwsoft.flydi.FlyDI;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of a full FlyDI boot, {@code scanForBeans}, {@code injectBeans} and {@code runPostConstructors}, of a
+ * {@link SyntheticBeanGraph}, either from the bean index or by scanning the classpath, and of the same boot replaying
+ * the wiring plan the first boot of the trial wrote.
+ * <p>
+ * The graph classes are loaded once per trial, so class loading is not part of the measured boot.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    private int beanCount;
+
+    @Param({"true", "false"})
+    private boolean useBeanIndex;
+
+    private SyntheticBeanGraph graph;
+    private URLClassLoader classLoader;
+    private BeanScannerConfig config;
+    private BeanScannerConfig wiringPlanConfig;
+    private Path wiringPlanFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        graph = SyntheticBeanGraph.generate(beanCount, SyntheticBeanGraph.defaultDirectory());
+        classLoader = graph.classLoader(StartupBenchmark.class.getClassLoader());
+        config = BeanScannerConfig.builder()
+                .includePackage(graph.getPackageName())
+                .useBeanIndex(useBeanIndex)
+                .build();
+
+        wiringPlanFile = Files.createTempFile("flydi-wiring", ".plan");
+        Files.delete(wiringPlanFile);
+        wiringPlanConfig = BeanScannerConfig.builder()
+                .includePackage(graph.getPackageName())
+                .useBeanIndex(useBeanIndex)
+                .wiringPlanFile(wiringPlanFile)
+                .build();
+        // writes the plan the benchmark replays
+        boot(classLoader, wiringPlanConfig);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        classLoader.close();
+        Files.deleteIfExists(wiringPlanFile);
+    }
+
+    @Benchmark
+    public FlyDI boot() {
+        return boot(classLoader, config);
+    }
+
+    @Benchmark
+    public FlyDI bootFromWiringPlan() {
+        return boot(classLoader, wiringPlanConfig);
+    }
+
+    static FlyDI boot(ClassLoader classLoader, BeanScannerConfig config) {
+        Thread thread = Thread.currentThread();
+        ClassLoader previous = thread.getContextClassLoader();
+        thread.setContextClassLoader(classLoader);
+        try {
+            FlyDI flyDI = new FlyDI(config);
+            flyDI.scanForBeans();
+            flyDI.injectBeans();
+            flyDI.runPostConstructors();
+            return flyDI;
+        } finally {
+            thread.setContextClassLoader(previous);
+        }
+    }
+}
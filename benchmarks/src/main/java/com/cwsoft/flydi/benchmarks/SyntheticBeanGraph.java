@@ -0,0 +1,258 @@
+package com.cwsoft.flydi.benchmarks;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+/**
+ * Generates, compiles and loads a package of synthetic {@code @ManagedBean} classes.
+ * <p>
+ * Bean {@code i} depends on bean {@code i - 1} in one of five ways, taken in turn:
+ * <ul>
+ *     <li>{@link Shape#CHAIN} an {@code @Inject} setter of the previous bean's class</li>
+ *     <li>{@link Shape#FAN_OUT} an {@code @Inject} setter of {@code Bean0}, which every fifth bean depends on</li>
+ *     <li>{@link Shape#INTERFACE} an {@code @Inject} setter of an interface the previous bean implements</li>
+ *     <li>{@link Shape#GENERIC} an {@code @Inject} setter of {@code Repository<Entity>} the previous bean implements</li>
+ *     <li>{@link Shape#DEPENDS_ON} {@code @DependsOn} the previous bean</li>
+ * </ul>
+ * Every bean has a {@code @PostConstruct} method. The package also has a {@code Handler} prototype injected with the
+ * first and last beans. The classes are compiled with the FlyDI bean index processor, so the graph can be booted from
+ * the index or by scanning the classpath.
+ * <p>
+ * Compiled graphs are kept below the directory they are generated in and reused.
+ */
+public final class SyntheticBeanGraph {
+    public static final String PACKAGE_PREFIX = "flydi.synthetic";
+
+    public enum Shape {
+        CHAIN, FAN_OUT, INTERFACE, GENERIC, DEPENDS_ON;
+
+        static Shape of(int bean) {
+            return values()[bean % values().length];
+        }
+    }
+
+    private final int beanCount;
+    private final String packageName;
+    private final Path classesDirectory;
+
+    private SyntheticBeanGraph(int beanCount, Path directory) {
+        this.beanCount = beanCount;
+        this.packageName = PACKAGE_PREFIX + ".n" + beanCount;
+        this.classesDirectory = directory.resolve("n" + beanCount).resolve("classes");
+    }
+
+    /**
+     * Generates and compiles a graph of the given size, unless it has already been compiled below the directory.
+     */
+    public static SyntheticBeanGraph generate(int beanCount, Path directory) throws IOException {
+        SyntheticBeanGraph graph = new SyntheticBeanGraph(beanCount, directory);
+        if (!Files.isRegularFile(graph.classesDirectory.resolve("COMPLETE"))) {
+            graph.compile(graph.writeSources());
+        }
+        return graph;
+    }
+
+    public static Path defaultDirectory() {
+        return Path.of(System.getProperty("java.io.tmpdir"), "flydi-synthetic");
+    }
+
+    public int getBeanCount() {
+        return beanCount;
+    }
+
+    public String getPackageName() {
+        return packageName;
+    }
+
+    public Path getClassesDirectory() {
+        return classesDirectory;
+    }
+
+    public String beanName(int bean) {
+        return "Bean" + bean;
+    }
+
+    public String beanClassName(int bean) {
+        return packageName + "." + beanName(bean);
+    }
+
+    public String prototypeClassName() {
+        return packageName + ".Handler";
+    }
+
+    /**
+     * @return the compiled graph packed in a jar, created on first use. Class data sharing archives only take classes
+     * from jars.
+     */
+    public Path jarFile() throws IOException {
+        Path jar = classesDirectory.getParent().resolve("classes.jar");
+        if (Files.isRegularFile(jar)) return jar;
+
+        Path partial = classesDirectory.getParent().resolve("classes.jar.partial");
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(partial));
+             Stream<Path> files = Files.walk(classesDirectory)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                out.putNextEntry(new JarEntry(classesDirectory.relativize(file).toString().replace(File.separatorChar, '/')));
+                Files.copy(file, out);
+                out.closeEntry();
+            }
+        }
+        return Files.move(partial, jar);
+    }
+
+    /**
+     * @return a class loader for the compiled graph, to be set as the context class loader before booting FlyDI
+     */
+    public URLClassLoader classLoader(ClassLoader parent) {
+        try {
+            return new URLClassLoader(new URL[]{classesDirectory.toUri().toURL()}, parent);
+        } catch (MalformedURLException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private List<Path> writeSources() throws IOException {
+        Path sourceDirectory = classesDirectory.getParent().resolve("src").resolve(packageName.replace('.', '/'));
+        Files.createDirectories(sourceDirectory);
+        List<Path> sources = new ArrayList<>();
+
+        sources.add(write(sourceDirectory, "Repository", "public interface Repository<T> {\n}\n"));
+
+        for (int i = 0; i < beanCount; i++) {
+            Shape dependentShape = i + 1 < beanCount ? Shape.of(i + 1) : null;
+            String implementsClause = "";
+
+            if (dependentShape == Shape.INTERFACE) {
+                sources.add(write(sourceDirectory, "Service" + i, "public interface Service" + i + " {\n}\n"));
+                implementsClause = " implements Service" + i;
+            } else if (dependentShape == Shape.GENERIC) {
+                sources.add(write(sourceDirectory, "Entity" + i, "public class Entity" + i + " {\n}\n"));
+                implementsClause = " implements Repository<Entity" + i + ">";
+            }
+
+            sources.add(write(sourceDirectory, beanName(i), beanSource(i, implementsClause)));
+        }
+
+        sources.add(write(sourceDirectory, "Handler", """
+                public class Handler {
+                    private Bean0 first;
+                    private Bean%d last;
+                    private boolean ready;
+
+                    @javax.inject.Inject
+                    public void setFirst(Bean0 first) {
+                        this.first = first;
+                    }
+
+                    @javax.inject.Inject
+                    public void setLast(Bean%d last) {
+                        this.last = last;
+                    }
+
+                    @javax.annotation.PostConstruct
+                    public void init() {
+                        ready = true;
+                    }
+                }
+                """.formatted(beanCount - 1, beanCount - 1)));
+
+        return sources;
+    }
+
+    private String beanSource(int bean, String implementsClause) {
+        StringBuilder source = new StringBuilder();
+        String dependency = "";
+
+        if (bean > 0) {
+            int previous = bean - 1;
+            switch (Shape.of(bean)) {
+                case CHAIN -> dependency = setter("Bean" + previous, "previous");
+                case FAN_OUT -> dependency = setter("Bean0", "hub");
+                case INTERFACE -> dependency = setter("Service" + previous, "service");
+                case GENERIC -> dependency = setter("Repository<Entity" + previous + ">", "repository");
+                case DEPENDS_ON -> source.append("@com.cwsoft.flydi.DependsOn(\"Bean").append(previous).append("\")\n");
+            }
+        }
+
+        source.append("@javax.annotation.ManagedBean\n");
+        source.append("public class ").append(beanName(bean)).append(implementsClause).append(" {\n");
+        source.append("    private boolean initialized;\n\n");
+        source.append(dependency);
+        source.append("    @javax.annotation.PostConstruct\n");
+        source.append("    public void init() {\n        initialized = true;\n    }\n");
+        source.append("}\n");
+        return source.toString();
+    }
+
+    // the setter and parameter names match no bean, so the bean is found by its type
+    private static String setter(String type, String name) {
+        String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        return "    private " + type + " " + name + ";\n\n"
+                + "    @javax.inject.Inject\n"
+                + "    public void set" + capitalized + "(" + type + " dependency) {\n"
+                + "        this." + name + " = dependency;\n"
+                + "    }\n\n";
+    }
+
+    private Path write(Path directory, String className, String body) throws IOException {
+        Path file = directory.resolve(className + ".java");
+        Files.writeString(file, "package " + packageName + ";\n\n" + body, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private void compile(List<Path> sources) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("No Java compiler available, run the benchmarks on a JDK");
+        }
+
+        Files.createDirectories(classesDirectory);
+        List<String> options = List.of(
+                "-d", classesDirectory.toString(),
+                "-classpath", System.getProperty("java.class.path"),
+                "-processor", "com.cwsoft.flydi.BeanIndexProcessor",
+                "-nowarn");
+
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+            boolean compiled = compiler.getTask(null, fileManager, null, options, null,
+                    fileManager.getJavaFileObjectsFromPaths(sources)).call();
+            if (!compiled) {
+                throw new IllegalStateException("Failed to compile synthetic beans in " + classesDirectory);
+            }
+        }
+
+        Files.writeString(classesDirectory.resolve("COMPLETE"), Integer.toString(beanCount));
+    }
+
+    /**
+     * Deletes every compiled graph below the directory.
+     */
+    public static void clean(Path directory) throws IOException {
+        if (!Files.exists(directory)) return;
+
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted((a, b) -> b.getNameCount() - a.getNameCount()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.cwsoft.flydi.benchmarks;
+
+import com.cwsoft.flydi.*;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a request on each of 100,000 concurrent virtual threads. Each request opens an execution scope, looks up its
+ * {@link Scoped @Scoped} beans, sleeps, and checks it gets the same beans back. Checks that
+ * <ul>
+ *     <li>every request saw its own beans</li>
+ *     <li>no virtual thread was pinned to its carrier, counted by the {@code jdk.VirtualThreadPinned} JFR event</li>
+ *     <li>the requests overlapped, so the sleeps did not hold carriers</li>
+ *     <li>the heap retained after all requests stays within {@code flydi.scope.retainedPerThread} bytes per thread, so
+ *     the scopes were dropped</li>
+ * </ul>
+ * Needs Java 21 or later. Exits with status 1 when a check fails. Configured with the system properties
+ * {@code flydi.scope.threads} (default {@code 100000}), {@code flydi.scope.sleepMillis} (default {@code 10}) and
+ * {@code flydi.scope.retainedPerThread} (default {@code 64}).
+ */
+public class VirtualThreadScopeHarness {
+
+    @Scoped
+    public static class RequestContext {
+        private long requestId;
+    }
+
+    @Scoped(Scoped.Kind.THREAD)
+    public static class Buffers {
+        private final byte[] bytes = new byte[256];
+    }
+
+    private final int threads = Integer.getInteger("flydi.scope.threads", 100_000);
+    private final long sleepMillis = Long.getLong("flydi.scope.sleepMillis", 10);
+    private final long retainedPerThread = Long.getLong("flydi.scope.retainedPerThread", 64);
+
+    public static void main(String[] args) throws Exception {
+        System.exit(new VirtualThreadScopeHarness().run() ? 0 : 1);
+    }
+
+    /**
+     * @return true if all checks passed
+     */
+    public boolean run() throws Exception {
+        FlyDI flyDI = new FlyDI(BeanScannerConfig.builder().includePackage(VirtualThreadScopeHarness.class.getPackageName()).build());
+        ScopedHandle<RequestContext> requestContext = flyDI.scopedHandleFor(RequestContext.class);
+        ScopedHandle<Buffers> buffers = flyDI.scopedHandleFor(Buffers.class);
+
+        AtomicInteger mismatches = new AtomicInteger();
+        AtomicInteger inScope = new AtomicInteger();
+        AtomicInteger maxInScope = new AtomicInteger();
+
+        // one warm-up round, then the measured one
+        requests(flyDI, requestContext, buffers, mismatches, inScope, maxInScope);
+        mismatches.set(0);
+        maxInScope.set(0);
+
+        long before = usedHeapAfterGc();
+        long pinned;
+        long nanos;
+
+        try (Recording recording = new Recording()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            recording.start();
+
+            long start = System.nanoTime();
+            requests(flyDI, requestContext, buffers, mismatches, inScope, maxInScope);
+            nanos = System.nanoTime() - start;
+
+            recording.stop();
+            pinned = countEvents(recording, "jdk.VirtualThreadPinned");
+        }
+
+        long retained = Math.max(usedHeapAfterGc() - before, 0);
+
+        System.out.printf("%d virtual threads: %.1f ms, %d at most in scope at once, %d pinned, %d bytes retained%n",
+                threads, nanos / 1_000_000.0, maxInScope.get(), pinned, retained);
+
+        List<String> failures = new ArrayList<>();
+        if (mismatches.get() > 0) {
+            failures.add(mismatches.get() + " requests did not get their own scoped beans back");
+        }
+        if (pinned > 0) {
+            failures.add(pinned + " virtual threads were pinned to their carrier");
+        }
+        if (maxInScope.get() <= Runtime.getRuntime().availableProcessors()) {
+            failures.add("at most " + maxInScope.get() + " requests were in scope at once, the carriers were held");
+        }
+        if (retained / threads > retainedPerThread) {
+            failures.add(String.format("%d bytes retained per thread, allowed are %d", retained / threads, retainedPerThread));
+        }
+
+        if (failures.isEmpty()) {
+            System.out.println("Scoped beans neither pin nor leak with " + threads + " virtual threads");
+            return true;
+        }
+
+        failures.forEach(failure -> System.out.println("FAILED: " + failure));
+        return false;
+    }
+
+    private void requests(FlyDI flyDI, ScopedHandle<RequestContext> requestContext, ScopedHandle<Buffers> buffers,
+                          AtomicInteger mismatches, AtomicInteger inScope, AtomicInteger maxInScope) throws InterruptedException {
+        ExecutorService executor = virtualThreadPerTaskExecutor();
+
+        for (int i = 0; i < threads; i++) {
+            long requestId = i;
+            executor.execute(() -> flyDI.runInScope(() -> {
+                maxInScope.accumulateAndGet(inScope.incrementAndGet(), Math::max);
+                RequestContext context = requestContext.get();
+                Buffers threadBuffers = buffers.get();
+                context.requestId = requestId;
+
+                try {
+                    Thread.sleep(sleepMillis);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+
+                if (requestContext.get() != context || context.requestId != requestId || buffers.get() != threadBuffers) {
+                    mismatches.incrementAndGet();
+                }
+                inScope.decrementAndGet();
+            }));
+        }
+
+        executor.shutdown();
+        if (!executor.awaitTermination(5, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("Requests did not finish within 5 minutes");
+        }
+    }
+
+    private static long countEvents(Recording recording, String eventName) throws IOException {
+        Path file = Files.createTempFile("flydi-scope", ".jfr");
+        try {
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> event.getEventType().getName().equals(eventName))
+                    .count();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static ExecutorService virtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("Virtual threads need Java 21 or later", ex);
+        }
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
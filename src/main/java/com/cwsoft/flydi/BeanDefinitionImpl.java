@@ -3,56 +3,58 @@ package com.cwsoft.flydi;
 import lombok.*;
 
 import java.lang.reflect.Constructor;
-import java.lang.reflect.Method;
-import java.util.Collection;
 
 
-// todo: At some point move logic currently in FlyDI (e.g. around the method findBeanToInject()) into here and
-// make FlyDI use this instead i.e. put this type into the FlyDI maps.
+/**
+ * Everything {@link FlyDI2} knows about a bean before it exists: its class, the constructor to create it with, the
+ * injection points of that constructor and the class metadata. Once the dependencies are resolved they are recorded
+ * here, so creating the bean needs no further lookups.
+ * <p>
+ * Beans added to the container ready made have a definition with just the bean.
+ */
 @Getter
 public class BeanDefinitionImpl implements BeanDefinition {
+   private static final BeanDefinition[] NO_DEPENDENCIES = new BeanDefinition[0];
+
+   private final String name;
    private final Class<?> beanClass;
    private final Constructor<?> constructor;
-   private final Collection<Method> setterMethods;
+   private final InjectionPoint[] constructorInjectionPoints;
+   private final BeanMetadata metadata;
+
+   @Setter(AccessLevel.PACKAGE)
+   private BeanDefinition[] constructorDependencies = NO_DEPENDENCIES;
+   @Setter(AccessLevel.PACKAGE)
+   private BeanDefinition[] setterDependencies = NO_DEPENDENCIES;
 
    @Setter
    private Object bean;
 
 
    @Builder
-   public BeanDefinitionImpl(Class<?> beanClass, Constructor<?> constructor, @Singular Collection<Method> setterMethods) {
+   public BeanDefinitionImpl(String name, Class<?> beanClass, Constructor<?> constructor, Object bean) {
+      this.name = name;
       this.beanClass = beanClass;
       this.constructor = constructor;
-      this.setterMethods = setterMethods;
+      this.constructorInjectionPoints = constructor != null ? InjectionPoint.forConstructor(constructor) : new InjectionPoint[0];
+      this.metadata = constructor != null ? BeanMetadata.of(beanClass) : null;
+      this.bean = bean;
    }
 
+   /**
+    * @return true if the bean still has to be created
+    */
+   public boolean isPending() {
+      return bean == null;
+   }
 
    @Override
    public boolean providesImplementationFor(Class<?> clazz) {
-      boolean providesImplementation = false;
-      Class beanClass = bean.getClass();
-
-//      if (clazz.isAssignableFrom(beanClass)) {
-//         // check the generics...
-//         clazz.
-//
-//
-//
-//
-//      }
-//
-//
-//      Class superclass1 = classFromBean.getSuperclass();
-//      Type genericSuperclass1 = classFromBean.getGenericSuperclass();
-//      Class[] intfs1 = classFromBean.getInterfaces();
-//      Type[] genintfs1 = classFromBean.getGenericInterfaces();
-//
-//
-//
-//
-//      (clazz.)
-
-
-      return providesImplementation;
+      return clazz.isAssignableFrom(beanClass);
+   }
+
+   @Override
+   public String toString() {
+      return beanClass.getName();
    }
 }
@@ -0,0 +1,138 @@
+package com.cwsoft.flydi;
+
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.ManagedBean;
+import java.io.*;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Build-time index of the {@code @ManagedBean} classes on the classpath, written by {@link BeanIndexProcessor}
+ * to {@value #RESOURCE_NAME}. When an index is present FlyDI reads it instead of scanning the classpath with Reflections.
+ * <p>
+ * The file is plain UTF-8 text, one record per line with tab separated fields:
+ * <pre>
+ * bean &lt;class name&gt; &lt;system&gt;
+ * </pre>
+ * The injection points, post constructors and {@code @DependsOn} names of a bean are read from its class by
+ * {@link BeanMetadata} when it is created, so the index does not repeat them.
+ */
+@Slf4j
+@Getter
+public class BeanIndex {
+    public static final String RESOURCE_NAME = "META-INF/flydi/beans.idx";
+
+    private static final String BEAN = "bean";
+
+    private final List<Entry> entries;
+
+    public BeanIndex(List<Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Loads and merges every index resource visible to the class loader.
+     *
+     * @return the index, or empty if no index resource could be found
+     */
+    public static Optional<BeanIndex> load(ClassLoader classLoader) {
+        try {
+            Map<String, Entry> entries = new LinkedHashMap<>();
+            Enumeration<URL> resources = classLoader.getResources(RESOURCE_NAME);
+            boolean found = false;
+
+            while (resources.hasMoreElements()) {
+                URL url = resources.nextElement();
+                log.trace("Reading bean index {}", url);
+                found = true;
+                try (InputStream in = url.openStream()) {
+                    read(in).forEach(entry -> entries.putIfAbsent(entry.getClassName(), entry));
+                }
+            }
+
+            return found ? Optional.of(new BeanIndex(new ArrayList<>(entries.values()))) : Optional.empty();
+        } catch (IOException ex) {
+            log.warn("Failed to read bean index {}, falling back to classpath scanning", RESOURCE_NAME, ex);
+            return Optional.empty();
+        }
+    }
+
+    public static ClassLoader defaultClassLoader() {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        return classLoader != null ? classLoader : BeanIndex.class.getClassLoader();
+    }
+
+    /**
+     * @return the entries whose class is in one of the included packages and none of the excluded ones
+     */
+    public List<Entry> entriesFor(BeanScannerConfig beanScannerConfig) {
+        return entries.stream()
+                .filter(entry -> inPackages(entry.getClassName(), beanScannerConfig.getPackagesToInclude()))
+                .filter(entry -> !inPackages(entry.getClassName(), beanScannerConfig.getPackagesToExclude()))
+                .toList();
+    }
+
+    private static boolean inPackages(String className, List<String> packages) {
+        for (String pkg : packages) {
+            if (className.startsWith(pkg + ".")) return true;
+        }
+        return false;
+    }
+
+    public static List<Entry> read(InputStream in) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank() || line.startsWith("#")) continue;
+
+            String[] fields = line.split("\t", -1);
+            if (!BEAN.equals(fields[0]) || fields.length < 2) throw new IOException("Unknown bean index record: " + line);
+            entries.add(new Entry(fields[1], fields.length > 2 ? fields[2] : ""));
+        }
+
+        return entries;
+    }
+
+    public static void write(Collection<Entry> entries, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write("# FlyDI bean index, generated by " + BeanIndexProcessor.class.getName() + "\n");
+
+        for (Entry entry : entries) {
+            writer.write(BEAN + "\t" + entry.getClassName() + "\t" + entry.getSystem() + "\n");
+        }
+
+        writer.flush();
+    }
+
+    /**
+     * Index record of a single {@code @ManagedBean} class.
+     */
+    @Getter
+    @ToString
+    public static class Entry {
+        private final String className;
+        private final String system;
+
+        public Entry(String className, String system) {
+            this.className = className;
+            this.system = system == null ? "" : system;
+        }
+
+        /**
+         * Creates the entry of a {@code @ManagedBean} class found at runtime, as the processor would have.
+         */
+        public static Entry fromClass(Class<?> clazz) {
+            return new Entry(clazz.getName(), clazz.getAnnotation(ManagedBean.class).value());
+        }
+
+        public boolean isForSystem(String system) {
+            return this.system.isEmpty() || this.system.equalsIgnoreCase(system);
+        }
+    }
+}
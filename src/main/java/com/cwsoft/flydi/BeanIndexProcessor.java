@@ -0,0 +1,110 @@
+package com.cwsoft.flydi;
+
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.*;
+
+/**
+ * Annotation processor that records every {@code @ManagedBean} of the compilation in a {@link BeanIndex}, so that
+ * FlyDI can skip the Reflections classpath scan at startup.
+ * <p>
+ * Enable it by adding FlyDI to the {@code annotationProcessorPaths} of the maven-compiler-plugin (or simply having
+ * FlyDI on the compile classpath when no processor path is configured).
+ */
+@SupportedAnnotationTypes("javax.annotation.ManagedBean")
+public class BeanIndexProcessor extends AbstractProcessor {
+    private static final String MANAGED_BEAN = "javax.annotation.ManagedBean";
+
+    private final Map<String, BeanIndex.Entry> entries = new TreeMap<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            for (TypeElement type : ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(annotation))) {
+                BeanIndex.Entry entry = createEntry(type);
+                entries.put(entry.getClassName(), entry);
+            }
+        }
+
+        if (roundEnv.processingOver() && !entries.isEmpty()) {
+            writeIndex();
+        }
+
+        return false;
+    }
+
+    private BeanIndex.Entry createEntry(TypeElement type) {
+        String className = processingEnv.getElementUtils().getBinaryName(type).toString();
+        return new BeanIndex.Entry(className, annotationValue(type, MANAGED_BEAN, "value"));
+    }
+
+    private void writeIndex() {
+        Filer filer = processingEnv.getFiler();
+        mergePreviousIndex(filer);
+
+        try {
+            FileObject resource = filer.createResource(StandardLocation.CLASS_OUTPUT, "", BeanIndex.RESOURCE_NAME);
+            try (OutputStream out = resource.openOutputStream()) {
+                BeanIndex.write(entries.values(), out);
+            }
+        } catch (IOException ex) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Failed to write bean index " + BeanIndex.RESOURCE_NAME + ": " + ex);
+        }
+    }
+
+    // incremental compiles only see the changed sources, so keep entries from the previous index whose class still exists
+    private void mergePreviousIndex(Filer filer) {
+        try {
+            FileObject previous = filer.getResource(StandardLocation.CLASS_OUTPUT, "", BeanIndex.RESOURCE_NAME);
+            try (InputStream in = previous.openInputStream()) {
+                for (BeanIndex.Entry entry : BeanIndex.read(in)) {
+                    TypeElement type = processingEnv.getElementUtils().getTypeElement(entry.getClassName().replace('$', '.'));
+                    if (type != null && hasAnnotation(type, MANAGED_BEAN)) {
+                        entries.putIfAbsent(entry.getClassName(), entry);
+                    }
+                }
+            }
+        } catch (IOException | IllegalArgumentException ex) {
+            // no previous index
+        }
+    }
+
+    private static boolean hasAnnotation(Element element, String annotationName) {
+        return findAnnotation(element, annotationName) != null;
+    }
+
+    private static String annotationValue(Element element, String annotationName, String attribute) {
+        AnnotationMirror mirror = findAnnotation(element, annotationName);
+        if (mirror == null) return "";
+
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> value : mirror.getElementValues().entrySet()) {
+            if (value.getKey().getSimpleName().contentEquals(attribute)) {
+                return String.valueOf(value.getValue().getValue());
+            }
+        }
+        return "";
+    }
+
+    private static AnnotationMirror findAnnotation(Element element, String annotationName) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            TypeElement annotationType = (TypeElement) mirror.getAnnotationType().asElement();
+            if (annotationType.getQualifiedName().contentEquals(annotationName)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,203 @@
+package com.cwsoft.flydi;
+
+import java.lang.invoke.*;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Turns constructors, injection setters and {@code @PostConstruct} methods into functional interfaces so calling them
+ * costs no more than a direct call.
+ * <p>
+ * Invokers are spun with {@link LambdaMetafactory} on a private lookup of the bean class. Where that is not possible
+ * (e.g. static methods) a plain {@link MethodHandle} is used, and if the class cannot be looked up at all the method
+ * is called reflectively.
+ */
+public final class BeanInvokers {
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+    private static final MethodType METHOD_TYPE = MethodType.methodType(void.class, Object.class);
+
+    private BeanInvokers() {
+    }
+
+    /**
+     * @return an invoker calling the single argument method on the bean passed as first argument
+     */
+    @SuppressWarnings("unchecked")
+    public static BiConsumer<Object, Object> setter(Method method) {
+        try {
+            MethodHandles.Lookup lookup = lookupFor(method);
+            MethodHandle handle = lookup.unreflect(method);
+
+            if (!Modifier.isStatic(method.getModifiers())) {
+                try {
+                    CallSite callSite = LambdaMetafactory.metafactory(lookup, "accept",
+                            MethodType.methodType(BiConsumer.class), SETTER_TYPE, handle,
+                            MethodType.methodType(void.class, method.getDeclaringClass(), method.getParameterTypes()[0]));
+                    return (BiConsumer<Object, Object>) callSite.getTarget().invoke();
+                } catch (Throwable ex) {
+                    // fall through to the method handle
+                }
+            }
+
+            return setterHandle(method, handle);
+        } catch (IllegalAccessException | RuntimeException ex) {
+            return (bean, value) -> invokeReflectively(method, bean, value);
+        }
+    }
+
+    /**
+     * @return an invoker calling the no argument method on the bean
+     */
+    @SuppressWarnings("unchecked")
+    public static Consumer<Object> method(Method method) {
+        try {
+            MethodHandles.Lookup lookup = lookupFor(method);
+            MethodHandle handle = lookup.unreflect(method);
+
+            if (!Modifier.isStatic(method.getModifiers())) {
+                try {
+                    CallSite callSite = LambdaMetafactory.metafactory(lookup, "accept",
+                            MethodType.methodType(Consumer.class), METHOD_TYPE, handle,
+                            MethodType.methodType(void.class, method.getDeclaringClass()));
+                    return (Consumer<Object>) callSite.getTarget().invoke();
+                } catch (Throwable ex) {
+                    // fall through to the method handle
+                }
+            }
+
+            MethodHandle generic = adapt(method, handle, METHOD_TYPE);
+            return bean -> {
+                try {
+                    generic.invokeExact(bean);
+                } catch (Throwable ex) {
+                    throw sneakyThrow(ex);
+                }
+            };
+        } catch (IllegalAccessException | RuntimeException ex) {
+            return bean -> invokeReflectively(method, bean);
+        }
+    }
+
+    /**
+     * @return an invoker calling the no argument constructor
+     */
+    @SuppressWarnings("unchecked")
+    public static Supplier<Object> constructor(Constructor<?> constructor) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(constructor.getDeclaringClass(), MethodHandles.lookup());
+            MethodHandle handle = lookup.unreflectConstructor(constructor);
+
+            try {
+                CallSite callSite = LambdaMetafactory.metafactory(lookup, "get",
+                        MethodType.methodType(Supplier.class), MethodType.methodType(Object.class), handle,
+                        MethodType.methodType(constructor.getDeclaringClass()));
+                return (Supplier<Object>) callSite.getTarget().invoke();
+            } catch (Throwable ex) {
+                // fall through to the method handle
+            }
+
+            MethodHandle generic = handle.asType(MethodType.methodType(Object.class));
+            return () -> {
+                try {
+                    return generic.invokeExact();
+                } catch (Throwable ex) {
+                    throw sneakyThrow(ex);
+                }
+            };
+        } catch (IllegalAccessException | RuntimeException ex) {
+            return () -> {
+                try {
+                    return constructor.newInstance();
+                } catch (InvocationTargetException ite) {
+                    throw sneakyThrow(ite.getTargetException());
+                } catch (ReflectiveOperationException roe) {
+                    throw new BeanProcessingError(String.format("Cannot create instance of %s", constructor.getDeclaringClass().getName()), roe);
+                }
+            };
+        }
+    }
+
+    /**
+     * @return a setter invoker using a plain method handle, the fallback when no lambda can be spun
+     */
+    public static BiConsumer<Object, Object> setterHandle(Method method) throws IllegalAccessException {
+        return setterHandle(method, lookupFor(method).unreflect(method));
+    }
+
+    /**
+     * @return an invoker calling the method on the bean using a plain method handle, for methods called once where
+     * spinning a lambda costs more than it saves
+     */
+    public static Consumer<Object> methodHandle(Method method) throws IllegalAccessException {
+        MethodHandle generic = adapt(method, lookupFor(method).unreflect(method), METHOD_TYPE);
+        return bean -> {
+            try {
+                generic.invokeExact(bean);
+            } catch (Throwable ex) {
+                throw sneakyThrow(ex);
+            }
+        };
+    }
+
+    /**
+     * @return an invoker calling the constructor with the arguments in the array using a plain method handle, for
+     * constructors called once
+     */
+    public static Function<Object[], Object> constructorHandle(Constructor<?> constructor) throws IllegalAccessException {
+        MethodHandle handle = MethodHandles.privateLookupIn(constructor.getDeclaringClass(), MethodHandles.lookup()).unreflectConstructor(constructor);
+        MethodHandle generic = handle.asSpreader(Object[].class, constructor.getParameterCount())
+                .asType(MethodType.methodType(Object.class, Object[].class));
+        return arguments -> {
+            try {
+                return generic.invokeExact(arguments);
+            } catch (Throwable ex) {
+                throw sneakyThrow(ex);
+            }
+        };
+    }
+
+    private static BiConsumer<Object, Object> setterHandle(Method method, MethodHandle handle) {
+        MethodHandle generic = adapt(method, handle, SETTER_TYPE);
+        return (bean, value) -> {
+            try {
+                generic.invokeExact(bean, value);
+            } catch (Throwable ex) {
+                throw sneakyThrow(ex);
+            }
+        };
+    }
+
+    private static MethodHandles.Lookup lookupFor(Method method) throws IllegalAccessException {
+        return MethodHandles.privateLookupIn(method.getDeclaringClass(), MethodHandles.lookup());
+    }
+
+    // static methods ignore the bean, as Method.invoke does
+    private static MethodHandle adapt(Method method, MethodHandle handle, MethodType type) {
+        if (Modifier.isStatic(method.getModifiers())) {
+            handle = MethodHandles.dropArguments(handle, 0, Object.class);
+        }
+        return handle.asType(type);
+    }
+
+    private static void invokeReflectively(Method method, Object bean, Object... args) {
+        try {
+            method.invoke(bean, args);
+        } catch (InvocationTargetException ex) {
+            throw sneakyThrow(ex.getTargetException());
+        } catch (IllegalAccessException ex) {
+            throw new BeanProcessingError(String.format("Cannot access method %s of class %s", method.getName(), method.getDeclaringClass().getName()), ex);
+        }
+    }
+
+    // rethrows what the bean method threw unchanged, as a directly called method would
+    @SuppressWarnings("unchecked")
+    private static <E extends Throwable> RuntimeException sneakyThrow(Throwable ex) throws E {
+        throw (E) ex;
+    }
+}
@@ -0,0 +1,169 @@
+package com.cwsoft.flydi;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Injection metadata of a bean class, resolved once per class and cached in a {@link ClassValue}.
+ * <p>
+ * Holds the default constructor, the {@code @Inject} setters, the {@code @PostConstruct} and {@code @PreReuse} methods
+ * and the {@code @DependsOn} names, all in the order {@link FlyDI#getAllMethods(Class)} returns them, so injecting or
+ * post-constructing a bean is a walk over arrays with no further reflective lookups.
+ * <p>
+ * Classes that are injected more than once (prototypes) also get compiled {@link BeanInvokers invokers} for their
+ * setters and post constructors. Singletons are only injected once, so for them the first, reflective, call is also
+ * the last and no invoker is spun.
+ */
+@Getter
+public final class BeanMetadata {
+    private static final ClassValue<BeanMetadata> CACHE = new ClassValue<>() {
+        @Override
+        protected BeanMetadata computeValue(Class<?> type) {
+            return new BeanMetadata(type);
+        }
+    };
+
+    private final Class<?> beanClass;
+    private final Constructor<?> defaultConstructor;
+    private final InjectionPoint[] injectionPoints;
+    private final Method[] postConstructMethods;
+    private final Method[] preReuseMethods;
+    private final String[] dependsOn;
+
+    @Getter(AccessLevel.NONE)
+    private volatile BiConsumer<Object, Object>[] setterInvokers;
+    @Getter(AccessLevel.NONE)
+    private volatile Consumer<Object>[] postConstructInvokers;
+    // set by the first injection and post construction, any thread may inject the class next
+    @Getter(AccessLevel.NONE)
+    private volatile boolean injected;
+    @Getter(AccessLevel.NONE)
+    private volatile boolean postConstructed;
+
+    private BeanMetadata(Class<?> beanClass) throws BeanProcessingError {
+        this.beanClass = beanClass;
+        this.defaultConstructor = findDefaultConstructor(beanClass);
+
+        List<InjectionPoint> injectionPoints = new ArrayList<>();
+        List<Method> postConstructMethods = new ArrayList<>();
+        List<Method> preReuseMethods = new ArrayList<>();
+
+        for (Method method : FlyDI.getAllMethods(beanClass)) {
+            if (method.isAnnotationPresent(Inject.class)) {
+                injectionPoints.add(InjectionPoint.forMethod(method));
+            }
+
+            if (method.isAnnotationPresent(PostConstruct.class)) {
+                method.trySetAccessible();
+                postConstructMethods.add(method);
+            }
+
+            if (method.isAnnotationPresent(PreReuse.class)) {
+                method.trySetAccessible();
+                preReuseMethods.add(method);
+            }
+        }
+
+        this.injectionPoints = injectionPoints.toArray(new InjectionPoint[0]);
+        this.postConstructMethods = postConstructMethods.toArray(new Method[0]);
+        this.preReuseMethods = preReuseMethods.toArray(new Method[0]);
+
+        DependsOn dependsOnAnnotation = beanClass.getAnnotation(DependsOn.class);
+        this.dependsOn = dependsOnAnnotation != null ? dependsOnAnnotation.value() : new String[0];
+    }
+
+    /**
+     * @return the metadata of the class, computing it on first use
+     * @throws BeanProcessingError if the methods of the class cannot be obtained
+     */
+    public static BeanMetadata of(Class<?> beanClass) throws BeanProcessingError {
+        return CACHE.get(beanClass);
+    }
+
+    /**
+     * @return a checksum of the classes and what is wired in them: whether they have a default constructor, the
+     * {@code @Inject} setters with their parameter types, the post constructors and the {@code @DependsOn} names. The
+     * members of a class are sorted, the order reflection lists them in is not fixed.
+     */
+    static long fingerprint(List<Class<?>> beanClasses) throws BeanProcessingError {
+        CRC32C crc = new CRC32C();
+        for (Class<?> beanClass : beanClasses) {
+            BeanMetadata metadata = of(beanClass);
+            TreeSet<String> members = new TreeSet<>();
+            if (metadata.defaultConstructor != null) members.add("<init>");
+            for (InjectionPoint injectionPoint : metadata.injectionPoints) {
+                members.add("@Inject " + injectionPoint.getName() + "(" + injectionPoint.getGenericParameterType().getTypeName() + ")");
+            }
+            for (Method method : metadata.postConstructMethods) {
+                members.add("@PostConstruct " + method.getName());
+            }
+            for (String dependency : metadata.dependsOn) {
+                members.add("@DependsOn " + dependency);
+            }
+
+            crc.update((beanClass.getName() + '\n').getBytes(StandardCharsets.UTF_8));
+            members.forEach(member -> crc.update((member + '\n').getBytes(StandardCharsets.UTF_8)));
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * @return the compiled invokers of the injection points, or {@code null} the first time the class is injected
+     */
+    BiConsumer<Object, Object>[] setterInvokers() {
+        BiConsumer<Object, Object>[] invokers = setterInvokers;
+        if (invokers != null || !injected) {
+            injected = true;
+            return invokers;
+        }
+
+        @SuppressWarnings("unchecked")
+        BiConsumer<Object, Object>[] compiled = (BiConsumer<Object, Object>[]) new BiConsumer<?, ?>[injectionPoints.length];
+        invokers = compiled;
+        for (int i = 0; i < injectionPoints.length; i++) {
+            invokers[i] = BeanInvokers.setter(injectionPoints[i].getMethod());
+        }
+        return setterInvokers = invokers;
+    }
+
+    /**
+     * @return the compiled invokers of the post constructors, or {@code null} the first time the class is post-constructed
+     */
+    Consumer<Object>[] postConstructInvokers() {
+        Consumer<Object>[] invokers = postConstructInvokers;
+        if (invokers != null || !postConstructed) {
+            postConstructed = true;
+            return invokers;
+        }
+
+        @SuppressWarnings("unchecked")
+        Consumer<Object>[] compiled = (Consumer<Object>[]) new Consumer<?>[postConstructMethods.length];
+        invokers = compiled;
+        for (int i = 0; i < postConstructMethods.length; i++) {
+            invokers[i] = BeanInvokers.method(postConstructMethods[i]);
+        }
+        return postConstructInvokers = invokers;
+    }
+
+    private static Constructor<?> findDefaultConstructor(Class<?> beanClass) {
+        for (Constructor<?> constructor : beanClass.getDeclaredConstructors()) {
+            if (constructor.getParameterCount() == 0) {
+                constructor.trySetAccessible();
+                return constructor;
+            }
+        }
+        return null;
+    }
+}
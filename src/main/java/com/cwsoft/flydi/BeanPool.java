@@ -0,0 +1,33 @@
+package com.cwsoft.flydi;
+
+/**
+ * A bounded pool of instances of a {@link Pooled @Pooled} prototype bean, obtained from {@link FlyDI#poolFor(Class)}.
+ * <p>
+ * {@link #acquire()} returns an idle instance or creates one as {@link PrototypeFactory#create()} does, and
+ * {@link #release(Object)} runs the {@link PreReuse @PreReuse} methods and keeps the instance for the next caller, or
+ * drops it if the pool is full. Neither takes a lock.
+ */
+public interface BeanPool<T> {
+
+    T acquire();
+
+    void release(T bean);
+
+    Stats getStats();
+
+    /**
+     * @param hits      acquires served by an idle instance
+     * @param misses    acquires that had to create an instance
+     * @param overflows releases dropped because the pool was full
+     */
+    record Stats(long hits, long misses, long overflows) {
+
+        /**
+         * @return the share of acquires served by an idle instance, 0 before the first acquire
+         */
+        public double hitRate() {
+            long acquires = hits + misses;
+            return acquires == 0 ? 0 : (double) hits / acquires;
+        }
+    }
+}
@@ -5,27 +5,87 @@ import lombok.Getter;
 import lombok.Singular;
 import lombok.ToString;
 
+import java.nio.file.Path;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 @ToString
 @Getter
 public class BeanScannerConfig {
+    /**
+     * Set to {@code true} to make any FlyDI startup a {@link #isTrainingRun() training run}.
+     */
+    public static final String TRAINING_RUN_PROPERTY = "flydi.training";
+
     private final String system;
     private final List<String> packagesToInclude;
     private final List<String> packagesToExclude;
+    private final boolean useBeanIndex;
+    /**
+     * Use the {@link Wiring} generated for the configuration, if there is one. Off by default: a wiring does not see
+     * bean classes added after it was generated, it has to be regenerated with every build.
+     */
+    private final boolean useGeneratedWiring;
+    private final Path scanCacheFile;
+    private final boolean scanCacheContentHash;
+    private final int parallelism;
+    private final boolean concurrentPostConstruct;
+    private final Executor postConstructExecutor;
+    private final boolean useLazyBeans;
+    private final boolean lazyByDefault;
+    private final boolean startupReport;
+    private final int startupReportTopN;
+    private final boolean freezeAfterStartup;
+    /**
+     * Exit the JVM once the post constructors ran, see {@link CdsTraining}. Also set by the
+     * {@value #TRAINING_RUN_PROPERTY} system property.
+     */
+    private final boolean trainingRun;
+    /**
+     * Where the resolved wiring is saved and replayed from on the next start, see {@link WiringPlan}. Off if null.
+     */
+    private final Path wiringPlanFile;
 
     @Builder
-    public BeanScannerConfig(String system, @Singular("includePackage") List<String> packagesToInclude, @Singular("excludePackage") List<String> packagesToExclude) {
+    public BeanScannerConfig(String system, @Singular("includePackage") List<String> packagesToInclude, @Singular("excludePackage") List<String> packagesToExclude,
+                             Boolean useBeanIndex, Boolean useGeneratedWiring, Path scanCacheFile, boolean scanCacheContentHash,
+                             int parallelism, boolean concurrentPostConstruct, Executor postConstructExecutor,
+                             Boolean useLazyBeans, boolean lazyByDefault, boolean startupReport, Integer startupReportTopN,
+                             Boolean freezeAfterStartup, boolean trainingRun, Path wiringPlanFile) {
         if (packagesToInclude == null || packagesToInclude.isEmpty())
             throw new IllegalArgumentException("packagesToInclude cannot be null or empty");
         this.system = (system == null || system.isBlank()) ? "" : system;
         this.packagesToInclude = packagesToInclude;
         this.packagesToExclude = (packagesToExclude == null) ? Collections.emptyList() : packagesToExclude;
+        this.useBeanIndex = (useBeanIndex == null) || useBeanIndex;
+        this.useGeneratedWiring = (useGeneratedWiring != null) && useGeneratedWiring;
+        this.scanCacheFile = scanCacheFile;
+        this.scanCacheContentHash = scanCacheContentHash;
+        this.parallelism = Math.max(parallelism, 1);
+        this.concurrentPostConstruct = concurrentPostConstruct;
+        this.postConstructExecutor = postConstructExecutor;
+        this.useLazyBeans = (useLazyBeans == null) || useLazyBeans;
+        this.lazyByDefault = lazyByDefault;
+        this.startupReport = startupReport;
+        this.startupReportTopN = (startupReportTopN == null) ? 10 : startupReportTopN;
+        this.freezeAfterStartup = (freezeAfterStartup == null) || freezeAfterStartup;
+        this.trainingRun = trainingRun || Boolean.getBoolean(TRAINING_RUN_PROPERTY);
+        this.wiringPlanFile = wiringPlanFile;
+    }
+
+    /**
+     * @return true if beans are instantiated and injected by more than one thread
+     */
+    public boolean isParallel() {
+        return parallelism > 1;
     }
 
     public boolean isInScannedPackages(Object clazz) {
-        var className = clazz.getClass().getName();
+        return isInScannedPackages(clazz.getClass().getName());
+    }
+
+    public boolean isInScannedPackages(String className) {
         for (String pkg : packagesToInclude) {
             if (className.startsWith(pkg))
                 return true;
@@ -0,0 +1,94 @@
+package com.cwsoft.flydi;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes a dynamic AppCDS archive of an application's startup, so later starts map the classes FlyDI and the beans load,
+ * already parsed and verified, from the archive instead of loading them from the class path.
+ * <p>
+ * The application's main class is run in a new JVM with {@code -XX:ArchiveClassesAtExit} and the
+ * {@value BeanScannerConfig#TRAINING_RUN_PROPERTY} system property set, so FlyDI exits as soon as its post constructors
+ * ran, see {@link BeanScannerConfig#isTrainingRun()}. The JVM writes the archive when it exits. Later starts add
+ * {@link #runOptions(Path)} to the command line, with the same class path. Needs Java 13 or later.
+ * <pre>
+ * java -cp app.jar com.cwsoft.flydi.CdsTraining app.jsa com.example.Main [args]
+ * java -XX:SharedArchiveFile=app.jsa -cp app.jar com.example.Main
+ * </pre>
+ */
+@Slf4j
+public final class CdsTraining {
+
+    private CdsTraining() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Usage: java -cp <class path> com.cwsoft.flydi.CdsTraining <archive> <main class> [args]");
+            System.exit(2);
+        }
+
+        Path archive = Path.of(args[0]);
+        int exitCode = train(archive, args[1], Arrays.asList(args).subList(2, args.length));
+        if (exitCode != 0) {
+            System.err.printf("Training run exited with %d, no archive written%n", exitCode);
+            System.exit(exitCode);
+        }
+
+        System.out.println("Wrote " + archive.toAbsolutePath() + ", start the application with " + String.join(" ", runOptions(archive)));
+    }
+
+    /**
+     * Runs the main class in a training run on the class path and JVM options of this JVM.
+     *
+     * @return the exit code of the training run, which wrote the archive if it is 0
+     */
+    public static int train(Path archive, String mainClass, List<String> args) throws IOException, InterruptedException {
+        return train(archive, System.getProperty("java.class.path"), mainClass, args);
+    }
+
+    /**
+     * Runs the main class in a training run on the class path, with the JVM options of this JVM.
+     *
+     * @return the exit code of the training run, which wrote the archive if it is 0
+     */
+    public static int train(Path archive, String classPath, String mainClass, List<String> args) throws IOException, InterruptedException {
+        Files.deleteIfExists(archive);
+
+        List<String> command = trainingCommand(archive, classPath, mainClass, args);
+        log.info("Starting training run {}", command);
+        int exitCode = new ProcessBuilder(command).inheritIO().start().waitFor();
+
+        return exitCode == 0 && !Files.isRegularFile(archive) ? 1 : exitCode;
+    }
+
+    static List<String> trainingCommand(Path archive, String classPath, String mainClass, List<String> args) {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        // keeps heap and other options, an archive must be used with the options it was written with
+        ManagementFactory.getRuntimeMXBean().getInputArguments().stream()
+                .filter(option -> !option.startsWith("-XX:ArchiveClassesAtExit") && !option.startsWith("-XX:SharedArchiveFile"))
+                .forEach(command::add);
+        command.add("-XX:ArchiveClassesAtExit=" + archive.toAbsolutePath());
+        command.add("-D" + BeanScannerConfig.TRAINING_RUN_PROPERTY + "=true");
+        command.add("-cp");
+        command.add(classPath);
+        command.add(mainClass);
+        command.addAll(args);
+        return command;
+    }
+
+    /**
+     * @return the JVM options that start an application from the archive
+     */
+    public static List<String> runOptions(Path archive) {
+        return List.of("-XX:SharedArchiveFile=" + archive.toAbsolutePath());
+    }
+}
@@ -0,0 +1,77 @@
+package com.cwsoft.flydi;
+
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * {@link PrototypeFactory} whose dependencies were resolved up front and whose constructor, setters and post
+ * constructors are compiled {@link BeanInvokers invokers}.
+ */
+final class CompiledPrototypeFactory<T> implements PrototypeFactory<T> {
+    private final Class<T> beanClass;
+    private final Supplier<Object> constructor;
+    private final InjectionPoint[] injectionPoints;
+    private final BiConsumer<Object, Object>[] setters;
+    private final Object[] dependencies;
+    private final Consumer<Object>[] postConstructors;
+    private final String[] postConstructNames;
+
+    CompiledPrototypeFactory(Class<T> beanClass, BeanMetadata metadata, Object[] dependencies) {
+        if (metadata.getDefaultConstructor() == null) {
+            String msg = String.format("Failed to create new instance of %s , check it has a default constructor", beanClass);
+            throw new BeanProcessingError(msg);
+        }
+
+        this.beanClass = beanClass;
+        this.constructor = BeanInvokers.constructor(metadata.getDefaultConstructor());
+        this.injectionPoints = metadata.getInjectionPoints();
+        this.dependencies = dependencies;
+
+        @SuppressWarnings("unchecked")
+        BiConsumer<Object, Object>[] setters = (BiConsumer<Object, Object>[]) new BiConsumer<?, ?>[injectionPoints.length];
+        this.setters = setters;
+        for (int i = 0; i < injectionPoints.length; i++) {
+            setters[i] = BeanInvokers.setter(injectionPoints[i].getMethod());
+        }
+
+        @SuppressWarnings("unchecked")
+        Consumer<Object>[] postConstructors = (Consumer<Object>[]) new Consumer<?>[metadata.getPostConstructMethods().length];
+        this.postConstructors = postConstructors;
+        this.postConstructNames = new String[postConstructors.length];
+        for (int i = 0; i < postConstructors.length; i++) {
+            postConstructors[i] = BeanInvokers.method(metadata.getPostConstructMethods()[i]);
+            postConstructNames[i] = metadata.getPostConstructMethods()[i].getName();
+        }
+    }
+
+    @Override
+    public T create() {
+        final Object bean;
+        try {
+            bean = constructor.get();
+        } catch (Exception ex) {
+            String msg = String.format("Failed to create new instance of %s , check it has a default constructor", beanClass);
+            throw new BeanProcessingError(msg, ex);
+        }
+
+        for (int i = 0; i < setters.length; i++) {
+            try {
+                setters[i].accept(bean, dependencies[i]);
+            } catch (Exception ex) {
+                String msg = String.format("Failed to inject %s into method %s of class %s", dependencies[i], injectionPoints[i].getName(), beanClass);
+                throw new InjectError(msg, ex);
+            }
+        }
+
+        for (int i = 0; i < postConstructors.length; i++) {
+            try {
+                postConstructors[i].accept(bean);
+            } catch (Exception ex) {
+                throw new PostConstructError(String.format("Failed invoking @PostConstruct on Class %s Method %s", beanClass.getName(), postConstructNames[i]), ex);
+            }
+        }
+
+        return beanClass.cast(bean);
+    }
+}
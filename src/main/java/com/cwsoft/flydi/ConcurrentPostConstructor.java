@@ -0,0 +1,82 @@
+package com.cwsoft.flydi;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * Runs the {@code @PostConstruct} methods of the beans concurrently, each bean as soon as the beans it depends on have
+ * been post-constructed, so startup takes the time of the longest dependency chain instead of the sum of all of them.
+ * <p>
+ * A bean whose dependency failed is not post-constructed. Of the beans that failed, the one first in topological order
+ * is reported, which is the failure a sequential run would have stopped at.
+ */
+@Slf4j
+class ConcurrentPostConstructor {
+    private final DependencyGraph<String> dependencyGraph;
+    private final Executor executor;
+
+    ConcurrentPostConstructor(DependencyGraph<String> dependencyGraph, Executor executor) {
+        this.dependencyGraph = dependencyGraph;
+        this.executor = executor;
+    }
+
+    /**
+     * @param classNamesInDependencyOrder the topological sort of the dependency graph
+     * @param postConstructor             runs the post constructors of the bean with the class name
+     * @throws PostConstructError the first failure in topological order
+     */
+    public void run(List<String> classNamesInDependencyOrder, Consumer<String> postConstructor) throws PostConstructError {
+        Map<String, CompletableFuture<Void>> futures = new HashMap<>();
+        Map<String, Throwable> failures = new ConcurrentHashMap<>();
+
+        for (String className : classNamesInDependencyOrder) {
+            CompletableFuture<?>[] dependencies = dependencyGraph.getUses(className).stream()
+                    .map(futures::get)
+                    .toArray(CompletableFuture[]::new);
+
+            futures.put(className, CompletableFuture.allOf(dependencies).thenRunAsync(() -> {
+                try {
+                    postConstructor.accept(className);
+                } catch (RuntimeException | Error ex) {
+                    failures.put(className, ex);
+                    throw ex;
+                }
+            }, executor));
+        }
+
+        try {
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException ex) {
+            // reported below
+        }
+
+        for (String className : classNamesInDependencyOrder) {
+            Throwable failure = failures.get(className);
+            if (failure instanceof PostConstructError postConstructError) throw postConstructError;
+            if (failure != null) {
+                throw new PostConstructError(String.format("Failed running post constructors of Class %s", className), failure);
+            }
+        }
+
+        log.trace("Finished running post constructors {} classes checked.", classNamesInDependencyOrder.size());
+    }
+
+    /**
+     * @return an executor starting a virtual thread per task where the runtime supports them, otherwise a cached thread pool
+     */
+    static ExecutorService defaultExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            log.trace("Virtual threads not available, running post constructors on a cached thread pool");
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "flydi-post-construct");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
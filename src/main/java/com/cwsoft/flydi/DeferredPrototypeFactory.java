@@ -0,0 +1,27 @@
+package com.cwsoft.flydi;
+
+/**
+ * Stands in for the factory of a prototype that was asked for while its own factory was being compiled, i.e. through a
+ * {@code Provider}, pool or scoped handle closing a cycle of prototypes. The factory is looked up on the first
+ * {@link #create()}, when it has been published.
+ */
+final class DeferredPrototypeFactory<T> implements PrototypeFactory<T> {
+    private final FlyDI flyDI;
+    private final Class<T> beanClass;
+    private volatile PrototypeFactory<T> factory;
+
+    DeferredPrototypeFactory(FlyDI flyDI, Class<T> beanClass) {
+        this.flyDI = flyDI;
+        this.beanClass = beanClass;
+    }
+
+    @Override
+    public T create() {
+        PrototypeFactory<T> resolved = factory;
+        if (resolved == null) {
+            resolved = flyDI.prototypeFactory(beanClass);
+            factory = resolved;
+        }
+        return resolved.create();
+    }
+}
@@ -1,156 +1,212 @@
 package com.cwsoft.flydi;
 
-import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
+/**
+ * Graph of which bean uses which, nodes and edges are kept in insertion order so the topological sort is deterministic.
+ * <p>
+ * The nodes are kept as dense int ids with the edges in int arrays, see {@link IntGraph}, so sorting stays fast and
+ * small for very large graphs. After the first successful sort the order is kept up to date as dependencies are added,
+ * so sorting again after adding beans at runtime does not go over the whole graph.
+ * <p>
+ * The graph can be built from several threads. To keep the result independent of thread timing, each thread can record
+ * into a graph of its own that is then merged with {@link #addAll(DependencyGraph)} in a fixed order.
+ */
 @Slf4j
 public class DependencyGraph<T> {
 
-    private final Map<T, Set<T>> usesMap;
-    private final Map<T, Set<T>> usedByMap;
-    private final Set<T> allNodes;
+    // node ids are dense and in insertion order, nodes.get(id) is the node with the id
+    private final Map<T, Integer> ids;
+    private final List<T> nodes;
+    private final IntGraph graph;
 
     public DependencyGraph() {
-        usesMap = new HashMap<>();
-        usedByMap = new HashMap<>();
-        allNodes = new HashSet<>();
+        ids = new HashMap<>();
+        nodes = new ArrayList<>();
+        graph = new IntGraph();
     }
 
-    public void addDependency(T uses, T usedBy) {
-        allNodes.add(uses);
-        allNodes.add(usedBy);
-
-        Set<T> allUses = usesMap.get(uses);
-        if (allUses == null) {
-            allUses = new HashSet<>();
-            usesMap.put(uses, allUses);
-        }
-        allUses.add(usedBy);
-
-        Set<T> allUsedBy = usedByMap.get(usedBy);
-        if (allUsedBy == null) {
-            allUsedBy = new HashSet<>();
-            usedByMap.put(usedBy, allUsedBy);
+    private int idOf(T node) {
+        Integer id = ids.get(node);
+        if (id == null) {
+            id = graph.addNode();
+            ids.put(node, id);
+            nodes.add(node);
         }
-        allUsedBy.add(uses);
+        return id;
     }
 
-    public void add(T node) {
-        allNodes.add(node);
+    public synchronized void addDependency(T uses, T usedBy) {
+        int usesId = idOf(uses);
+        graph.addEdge(usesId, idOf(usedBy));
     }
 
+    /**
+     * Adds the dependency unless it closes a cycle. The check and keeping the topological order up to date only visit
+     * the nodes placed between the two, so beans registered after startup do not need a sort of the whole graph.
+     *
+     * @throws CircularDependencyException if the graph has a cycle or the dependency would close one, which is then not added
+     */
+    public synchronized void insertDependency(T uses, T usedBy) throws CircularDependencyException {
+        int usesId = idOf(uses);
+        int usedById = idOf(usedBy);
+        if (!graph.isOrdered()) sortedIds();
+
+        int[] cycle = graph.addEdgeIfAcyclic(usesId, usedById);
+        if (cycle != null) {
+            StringJoiner path = new StringJoiner(" -> ");
+            for (int id : cycle) {
+                path.add(nodes.get(id).toString());
+            }
+            throw new CircularDependencyException("Cycle detected adding dependency of " + uses + " on " + usedBy + ": " + path);
+        }
+    }
 
-    @NoArgsConstructor
-    private static class MutableInt {
-        int value;
+    public synchronized void add(T node) {
+        idOf(node);
+    }
 
-        public MutableInt(int value) {
-            this.value = value;
-        }
+    /**
+     * @return the number of nodes
+     */
+    public synchronized int size() {
+        return nodes.size();
+    }
 
-        public void increment() {
-            ++value;
-        }
+    /**
+     * @return the nodes, in the order they were added
+     */
+    public synchronized List<T> getNodes() {
+        return List.copyOf(nodes);
+    }
 
-        public void decrement() {
-            --value;
+    /**
+     * Adds the nodes and dependencies of the other graph, in the order they were added to it.
+     */
+    public synchronized void addAll(DependencyGraph<T> other) {
+        synchronized (other) {
+            for (int edge = 0; edge < other.graph.edgeCount(); edge++) {
+                addDependency(other.nodes.get(other.graph.edgeUses(edge)), other.nodes.get(other.graph.edgeUsedBy(edge)));
+            }
+            other.nodes.forEach(this::idOf);
         }
+    }
 
-        public int get() {
-            return value;
+    /**
+     * Inserts the nodes and dependencies of the other graph as {@link #insertDependency(Object, Object)} does, in the
+     * order they were added to it.
+     *
+     * @throws CircularDependencyException if a dependency would close a cycle, the dependencies before it are kept
+     */
+    public synchronized void insertAll(DependencyGraph<T> other) throws CircularDependencyException {
+        synchronized (other) {
+            for (int edge = 0; edge < other.graph.edgeCount(); edge++) {
+                insertDependency(other.nodes.get(other.graph.edgeUses(edge)), other.nodes.get(other.graph.edgeUsedBy(edge)));
+            }
+            other.nodes.forEach(this::idOf);
         }
     }
 
+    /**
+     * @return the nodes the node depends on
+     */
+    public synchronized Set<T> getUses(T node) {
+        Integer id = ids.get(node);
+        return id == null ? Collections.emptySet() : toNodes(graph.uses(id));
+    }
 
-    // prints a Topological Sort of the complete graph
-    public List<T> topologicalSort() throws CircularDependencyException {
-
-        // set up outDegrees to show out degree for each node - out degree is count of dependencies on other nodes
-        Map<T, MutableInt> outDegrees = new HashMap<>();
-
-        allNodes.forEach(node -> {
-            Set<T> allUses = usesMap.get(node);
-
-            if (allUses == null) {
-                outDegrees.put(node, new MutableInt());
-            } else {
-                outDegrees.put(node, new MutableInt(allUses.size()));
-            }
-        });
+    /**
+     * @return the nodes depending on the node
+     */
+    public synchronized Set<T> getUsedBy(T node) {
+        Integer id = ids.get(node);
+        return id == null ? Collections.emptySet() : toNodes(graph.usedBy(id));
+    }
 
+    private Set<T> toNodes(int[] nodeIds) {
+        if (nodeIds.length == 0) return Collections.emptySet();
 
-        // Create a queue and enqueue all nodes with out degree 0 (i.e. have no dependencies)
-        Queue<T> q = new LinkedList<>();
-        outDegrees.entrySet().forEach(outDegree -> {
-            if (outDegree.getValue().value == 0) {
-                q.add(outDegree.getKey());
-            }
-        });
+        Set<T> result = new LinkedHashSet<>();
+        for (int id : nodeIds) {
+            result.add(nodes.get(id));
+        }
+        return Collections.unmodifiableSet(result);
+    }
 
-        int visitedCount = 0;
+    /**
+     * Groups the nodes into levels: the first level has the nodes without dependencies, each following level the nodes
+     * whose dependencies are all in earlier levels. Nodes in the same level do not depend on each other.
+     */
+    public synchronized List<List<T>> levels() throws CircularDependencyException {
+        int[] order = sortedIds();
+        int[] levelOf = graph.levels(order);
+        List<List<T>> levels = new ArrayList<>();
+
+        for (int id : order) {
+            int level = levelOf[id];
+            if (level == levels.size()) levels.add(new ArrayList<>());
+            levels.get(level).add(nodes.get(id));
+        }
 
-        // list will hold the nodes sorted in topological order
-        List<T> topOrder = new ArrayList<>();
-        while (!q.isEmpty()) {
+        return levels;
+    }
 
-            // get next node (that it now down to out degree 0) from queue and add to sorted list
-            T node = q.poll();
-            topOrder.add(node);
+    // returns a Topological Sort of the complete graph
+    public synchronized List<T> topologicalSort() throws CircularDependencyException {
+        int[] order = sortedIds();
 
-            // Iterate through all this nodes "used by" nodes and decrease their out-degree, add node to queue if out-degree is now 0
-            Set<T> usingNodes = usedByMap.get(node);
+        List<T> topOrder = new ArrayList<>(order.length);
+        for (int id : order) {
+            topOrder.add(nodes.get(id));
+        }
+        return topOrder;
+    }
 
-            if (usingNodes != null) {
-                usingNodes.forEach(usingNode -> {
-                    MutableInt outDegree = outDegrees.get(usingNode);
-                    outDegree.decrement();
+    private int[] sortedIds() throws CircularDependencyException {
+        int[] order = graph.topologicalSort();
 
-                    if (outDegree.get() == 0) {
-                        q.add(usingNode);
-                    }
-                });
+        if (order.length != nodes.size()) {
+            StringJoiner cycles = new StringJoiner("; ");
+            for (int[] component : graph.cyclicComponents()) {
+                cycles.add(describeCycle(component));
             }
-
-            visitedCount++;
-        }
-
-        // check if there was a cycle
-        if (visitedCount != outDegrees.size()) {
-            String circularCandidates =
-                    outDegrees.entrySet().stream()
-                            .filter(entry -> entry.getValue().value > 0)
-                            .map(entry -> entry.getKey().toString())
-                    .collect( Collectors.joining( "," ) );
-            throw new CircularDependencyException ("Cycle detected in dependency evaluation, check for circular dependencies in the following: " + circularCandidates);
+            throw new CircularDependencyException("Cycle detected in dependency evaluation, circular dependencies: " + cycles);
         }
 
-        return topOrder;
+        return order;
     }
 
+    // the cycle, and if more nodes are part of cycles with it, how many
+    private String describeCycle(int[] component) {
+        int[] cycle = graph.cycleIn(component);
+        StringJoiner path = new StringJoiner(" -> ");
+        for (int id : cycle) {
+            path.add(nodes.get(id).toString());
+        }
 
-    public static void main(String args[]) throws CircularDependencyException {
-        // Create a graph given in the above diagram
-        DependencyGraph<String> g = new DependencyGraph();
-        g.addDependency("D", "A");
-        g.addDependency("C", "A");
-        g.addDependency("C", "B");
-        g.addDependency("E", "B");
-        g.addDependency("F", "D");
-        g.addDependency("E", "F");
-        g.addDependency("C", "F");
-        g.addDependency("H", "G");
-        g.addDependency("I", "H");
-        g.add("X");
-        g.add("Y");
-        g.add("Z");
-        System.out.println("Following is a Topological Sort");
-        g.topologicalSort().forEach(System.out::println);
-
+        int others = component.length - (cycle.length - 1);
+        return others == 0 ? path.toString() : path + " (and " + others + " more in cycles with these)";
     }
 
+    /**
+     * Finds the groups of nodes that depend on each other, in time linear in the size of the graph. Nodes that only
+     * depend on a cycle are not part of it.
+     *
+     * @return a shortest cycle of each group, from a node via the nodes each node depends on back to it
+     */
+    public synchronized List<List<T>> cycles() {
+        List<List<T>> cycles = new ArrayList<>();
+        for (int[] component : graph.cyclicComponents()) {
+            List<T> cycle = new ArrayList<>();
+            for (int id : graph.cycleIn(component)) {
+                cycle.add(nodes.get(id));
+            }
+            cycles.add(cycle);
+        }
+        return cycles;
+    }
 
     public static class CircularDependencyException extends Exception {
         public CircularDependencyException(String s) {
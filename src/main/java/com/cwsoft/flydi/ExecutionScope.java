@@ -0,0 +1,55 @@
+package com.cwsoft.flydi;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The beans of one {@link FlyDI#runInScope(Runnable) execution scope}, by the id of their {@link ScopedHandle}.
+ * <p>
+ * Reading a bean that exists is a volatile read of the array. Creating one takes a {@link ReentrantLock}, which does
+ * not pin a virtual thread to its carrier as {@code synchronized} does.
+ */
+final class ExecutionScope {
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile AtomicReferenceArray<Object> beans;
+
+    ExecutionScope(int capacity) {
+        this.beans = new AtomicReferenceArray<>(Math.max(capacity, 1));
+    }
+
+    Object get(int id, PrototypeFactory<?> factory) {
+        AtomicReferenceArray<Object> current = beans;
+        if (id < current.length()) {
+            Object bean = current.get(id);
+            if (bean != null) return bean;
+        }
+        return create(id, factory);
+    }
+
+    private Object create(int id, PrototypeFactory<?> factory) {
+        lock.lock();
+        try {
+            Object bean = id < beans.length() ? beans.get(id) : null;
+            if (bean != null) return bean;
+
+            bean = factory.create();
+
+            // the factory may have created other beans of the scope, and grown the array
+            AtomicReferenceArray<Object> current = beans;
+            if (id >= current.length()) {
+                AtomicReferenceArray<Object> grown = new AtomicReferenceArray<>(Math.max(id + 1, current.length() * 2));
+                for (int i = 0; i < current.length(); i++) {
+                    grown.set(i, current.get(i));
+                }
+                beans = current = grown;
+            }
+
+            Object created = current.get(id);
+            if (created != null) return created;
+            current.set(id, bean);
+            return bean;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.cwsoft.flydi;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.reflections.Reflections;
@@ -12,10 +13,22 @@ import javax.annotation.ManagedBean;
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.inject.Provider;
 import java.lang.reflect.*;
+import java.net.URL;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 @SuppressWarnings("unused")
@@ -27,81 +40,477 @@ public class FlyDI {
     private Reflections reflections;
     private final Map<String, Object> beansByName = new ConcurrentHashMap<>();
     private final Map<String, Object> beansByClass = new ConcurrentHashMap<>();
+    private final TypeIndex<Object> beansByType = new TypeIndex<>();
     private final DependencyGraph<String> dependencyGraph = new DependencyGraph<>();
+    private final Map<Class<?>, PrototypeFactory<?>> prototypeFactories = new ConcurrentHashMap<>();
+    // the thread compiling the factory of a class, see prototypeFactory(Class)
+    private final Map<Class<?>, Thread> compilingFactories = new ConcurrentHashMap<>();
+    // set while the beans are injected, see injectBeansInOrder()
+    private volatile Map<String, DependencyGraph<String>> deferredDependencies;
+    private volatile Set<Class<?>> deferredAssignableNames;
+    private final Map<String, StripedBeanPool<?>> pools = new ConcurrentHashMap<>();
+    private final Map<String, ScopedHandle<?>> scopedHandles = new ConcurrentHashMap<>();
+    // shared with child containers, so one execution scope holds the scoped beans of all of them
+    private final AtomicInteger executionScopedCount;
+    private final ScopeCarrier scopeCarrier;
+    // held while a lazy bean is created and injected, shared with child containers, see LazyBean
+    @Getter(AccessLevel.PACKAGE)
+    private final ReentrantLock lazyCreationLock;
+    // null unless this is a child container, see createChild()
+    private final FlyDI parent;
+    // the wiring plan this start replays and the one it records for the next, see BeanScannerConfig#getWiringPlanFile()
+    private WiringPlan replayedPlan;
+    private WiringPlan recordedPlan;
+    private volatile boolean replayedPlanStale;
+    private Wiring wiring;
+    @Getter
+    private volatile boolean postConstructorsStarted;
+    // published by freeze(), dropped when a bean is added
+    private volatile FrozenBeanRegistry frozenRegistry;
+    /**
+     * Timings of the startup, {@code null} unless {@link BeanScannerConfig#isStartupReport()} is set.
+     */
+    @Getter
+    private final StartupReport startupReport;
 
     private @Getter
     static FlyDI instanceOf;
 
     public FlyDI(BeanScannerConfig beanScannerConfig) {
         this.beanScannerConfig = beanScannerConfig;
+        this.startupReport = beanScannerConfig.isStartupReport() ? new StartupReport() : null;
+        this.executionScopedCount = new AtomicInteger();
+        this.scopeCarrier = ScopeCarrier.create();
+        this.lazyCreationLock = new ReentrantLock();
+        this.parent = null;
         instanceOf = this;
     }
 
+    private FlyDI(FlyDI parent) {
+        this.beanScannerConfig = parent.beanScannerConfig;
+        this.reflections = parent.reflections;
+        this.startupReport = null;
+        this.executionScopedCount = parent.executionScopedCount;
+        this.scopeCarrier = parent.scopeCarrier;
+        this.lazyCreationLock = parent.lazyCreationLock;
+        this.parent = parent;
+        addBean(this);
+    }
+
+    /**
+     * Creates a child container, for instance one per tenant or plugin. The child starts with no beans of its own and
+     * shares this container's scan results, class metadata and beans: a lookup the child cannot answer from its own
+     * beans falls through to this container, nothing is copied. Beans added to the child with {@link #addBean(Object)}
+     * override the ones of the same name or class here, and are injected from both containers by
+     * {@link #injectBeans()} and post-constructed by {@link #runPostConstructors()} on the child.
+     * <p>
+     * This container is frozen first, if it is not yet, and should not change while it has children. The child does
+     * not replace {@link #getInstanceOf()}.
+     */
+    public FlyDI createChild() {
+        if (!isFrozen()) freeze();
+        return new FlyDI(this);
+    }
+
+    public FlyDI getParent() {
+        return parent;
+    }
+
     public void scanForBeans() {
-        buildReflections(beanScannerConfig);
+        wiring = beanScannerConfig.isUseGeneratedWiring() ? Wiring.load(beanScannerConfig, BeanIndex.defaultClassLoader()) : null;
+
+        if (wiring != null) {
+            log.trace("Using generated wiring {}, skipping scan", wiring.getClass().getName());
+            long start = startTiming();
+            addBean(this);
+            wiring.createBeans(this);
+            recordPhase(StartupReport.Phase.FIND_AND_INSTANTIATE_BEANS, start);
+            return;
+        }
+
+        // a child container would record the beans of its parent as its own
+        if (parent == null && beanScannerConfig.getWiringPlanFile() != null && startFromWiringPlan(beanScannerConfig.getWiringPlanFile())) {
+            return;
+        }
+
+        var beanIndex = beanScannerConfig.isUseBeanIndex() ? BeanIndex.load(BeanIndex.defaultClassLoader()) : Optional.<BeanIndex>empty();
+
+        if (beanIndex.isPresent()) {
+            log.trace("Using bean index {}, skipping classpath scan", BeanIndex.RESOURCE_NAME);
+            long start = startTiming();
+            addBean(this);
+            findAndInstantiateIndexedBeans(beanIndex.get(), beanScannerConfig.getSystem());
+            recordPhase(StartupReport.Phase.FIND_AND_INSTANTIATE_BEANS, start);
+        } else if (beanScannerConfig.getScanCacheFile() != null) {
+            long start = startTiming();
+            addBean(this);
+            findAndInstantiateCachedBeans(beanScannerConfig.getSystem());
+            recordPhase(StartupReport.Phase.FIND_AND_INSTANTIATE_BEANS, start);
+        } else {
+            long start = startTiming();
+            buildReflections(beanScannerConfig);
+            recordPhase(StartupReport.Phase.BUILD_REFLECTIONS, start);
+
+            start = startTiming();
+            addBean(this);
+            findAndInstantiateBeans(beanScannerConfig.getSystem());
+            recordPhase(StartupReport.Phase.FIND_AND_INSTANTIATE_BEANS, start);
+        }
+    }
+
+    /**
+     * Loads the wiring plan and creates its beans, if the plan is still valid. Otherwise starts recording a new plan,
+     * which is written after the post constructors ran.
+     *
+     * @return true if the beans were created from the plan
+     */
+    private boolean startFromWiringPlan(Path file) {
+        String scope = "include=" + beanScannerConfig.getPackagesToInclude() + ";exclude=" + beanScannerConfig.getPackagesToExclude()
+                + ";system=" + beanScannerConfig.getSystem() + ";lazy=" + beanScannerConfig.isUseLazyBeans() + "," + beanScannerConfig.isLazyByDefault();
+        var fingerprints = WiringPlan.fingerprints(file, urlsToScan(beanScannerConfig), beanScannerConfig.isScanCacheContentHash());
+
+        recordedPlan = WiringPlan.record(scope, fingerprints);
+        replayedPlan = WiringPlan.load(file, scope, fingerprints).orElse(null);
+        if (replayedPlan == null) return false;
+
+        log.trace("Using wiring plan {}, skipping scan and resolution", file);
+        long start = startTiming();
         addBean(this);
-        findAndInstantiateBeans(beanScannerConfig.getSystem());
+
+        ClassLoader classLoader = BeanIndex.defaultClassLoader();
+        createBeans(replayedPlan.getBeanClassNames().stream()
+                .map(className -> new BeanToCreate(className, () -> Class.forName(className, false, classLoader)))
+                .toList());
+        recordPhase(StartupReport.Phase.FIND_AND_INSTANTIATE_BEANS, start);
+        return true;
+    }
+
+    // no clock is read unless the startup is being reported
+    private long startTiming() {
+        return startupReport != null ? System.nanoTime() : 0L;
+    }
+
+    private void recordPhase(StartupReport.Phase phase, long start) {
+        if (startupReport != null) startupReport.recordPhase(phase, System.nanoTime() - start);
     }
 
     public void injectBeans() {
+        long start = startTiming();
+        doInjectBeans();
+        recordPhase(StartupReport.Phase.INJECT_BEANS, start);
+    }
+
+    private void doInjectBeans() {
 
         log.trace("Perform required injections of each @ManagedBean ");
 
-        beansByClass.values().forEach(bean -> {
+        if (wiring != null) {
             try {
-                injectBean(bean);
-                addDependency(bean);
+                wiring.injectBeans(this);
             } catch (InjectError | BeanProcessingError ex) {
                 log.error("Unrecoverable error shutting down", ex);
                 System.exit(1);
             }
+            return;
+        }
+
+        injectBeansInOrder(beanScannerConfig.isParallel());
+    }
+
+    /**
+     * Injects the beans, concurrently in parallel mode. Each bean records its dependencies in a graph of its own, and
+     * lazy beans and prototypes created meanwhile in graphs of theirs. The graphs are merged in bean order, a lazy
+     * bean's or prototype's where it is first used, and the simple names of the assignable beans found are registered
+     * in the order the beans use them. So the graph, and the post-construct order, are the same in both modes and do
+     * not depend on thread timing.
+     */
+    private void injectBeansInOrder(boolean parallel) {
+        List<Object> beans = new ArrayList<>(beansByClass.values());
+        @SuppressWarnings("unchecked")
+        DependencyGraph<String>[] dependencies = (DependencyGraph<String>[]) new DependencyGraph<?>[beans.size()];
+        RuntimeException[] failures = new RuntimeException[beans.size()];
+        Map<String, DependencyGraph<String>> deferred = new ConcurrentHashMap<>();
+        Set<Class<?>> assignable = ConcurrentHashMap.newKeySet();
+        deferredDependencies = deferred;
+        deferredAssignableNames = assignable;
+
+        IntConsumer inject = i -> {
+            Object bean = beans.get(i);
+            dependencies[i] = new DependencyGraph<>();
+            // lazy beans are injected when they are created
+            if (bean instanceof LazyBean) return;
+
+            try {
+                injectBean(bean, dependencies[i]);
+                addDependency(dependencies[i], bean);
+            } catch (InjectError | BeanProcessingError ex) {
+                failures[i] = ex;
+            }
+        };
+
+        try {
+            if (parallel) {
+                forEachInParallel(beans.size(), inject);
+            }
+
+            for (int i = 0; i < beans.size(); i++) {
+                if (!parallel) {
+                    inject.accept(i);
+                }
+
+                if (failures[i] != null) {
+                    log.error("Unrecoverable error shutting down", failures[i]);
+                    System.exit(1);
+                }
+            }
+        } finally {
+            deferredDependencies = null;
+            deferredAssignableNames = null;
+        }
+
+        Set<String> merged = new HashSet<>();
+        for (DependencyGraph<String> beanDependencies : dependencies) {
+            mergeDependencies(beanDependencies, deferred, merged);
+        }
+        // prototypes only reached through providers
+        deferred.keySet().stream().sorted().forEach(className -> {
+            if (merged.add(className)) mergeDependencies(deferred.get(className), deferred, merged);
         });
+
+        registerAssignableNames(beans, assignable);
+    }
+
+    private void mergeDependencies(DependencyGraph<String> dependencies, Map<String, DependencyGraph<String>> deferred, Set<String> merged) {
+        dependencyGraph.addAll(dependencies);
+        for (String className : dependencies.getNodes()) {
+            DependencyGraph<String> used = deferred.get(className);
+            if (used != null && merged.add(className)) mergeDependencies(used, deferred, merged);
+        }
+    }
+
+    // as a sequential run registers a name when a bean first uses the type, the last of the types with the same
+    // simple name wins
+    private void registerAssignableNames(List<Object> beans, Set<Class<?>> assignable) {
+        if (assignable.isEmpty()) return;
+
+        Set<Class<?>> inOrderOfUse = new LinkedHashSet<>();
+        for (Object bean : beans) {
+            Object created = bean instanceof LazyBean lazyBean ? lazyBean.getIfCreated() : bean;
+            if (created == null) continue;
+
+            for (InjectionPoint injectionPoint : BeanMetadata.of(created.getClass()).getInjectionPoints()) {
+                if (assignable.contains(injectionPoint.getParameterType())) inOrderOfUse.add(injectionPoint.getParameterType());
+            }
+        }
+        // types only used by prototypes
+        assignable.stream().sorted(Comparator.comparing(Class::getName)).forEach(inOrderOfUse::add);
+
+        frozenRegistry = null;
+        inOrderOfUse.forEach(type -> beansByAssignableName.put(type.getSimpleName(), beansByAssignableClass.get(type.getName())));
+    }
+
+    /**
+     * @return the graph the dependencies of the lazy bean or prototype are recorded in, one of its own while the beans
+     * are injected, see {@link #injectBeansInOrder(boolean)}
+     */
+    private DependencyGraph<String> dependenciesOf(String className) {
+        Map<String, DependencyGraph<String>> deferred = deferredDependencies;
+        return deferred != null ? deferred.computeIfAbsent(className, name -> new DependencyGraph<>()) : dependencyGraph;
+    }
+
+    private void forEachInParallel(int count, IntConsumer task) {
+        ForkJoinPool pool = new ForkJoinPool(beanScannerConfig.getParallelism());
+        try {
+            pool.submit(() -> IntStream.range(0, count).parallel().forEach(task)).join();
+        } finally {
+            pool.shutdown();
+        }
     }
 
     public void injectBean(Object bean) throws InjectError, BeanProcessingError {
-        checkForDependsOnDependencies(bean);
+        if (!postConstructorsStarted) {
+            injectBean(bean, dependencyGraph);
+            return;
+        }
 
-        for (final Method method : getAllMethods(bean.getClass())) {
-            if (method.isAnnotationPresent(Inject.class)) {
+        // once started the graph is kept sorted, a bean whose dependencies close a cycle is rejected before any of
+        // them is injected and without leaving any of its dependencies in the graph
+        DependencyGraph<String> dependencies = new DependencyGraph<>();
+        Object[] beansToInject = resolveInjections(bean, dependencies);
+        insertDependencies(dependencies);
+        invokeSetters(bean, beansToInject);
+    }
 
-                Object beanToInject = null;
+    void injectLazyBean(Object bean) throws InjectError, BeanProcessingError {
+        log.trace("Creating lazy bean Class: {}", bean.getClass().getName());
+        boolean started = postConstructorsStarted;
+        DependencyGraph<String> dependencies = started ? new DependencyGraph<>() : dependenciesOf(bean.getClass().getName());
+        injectBean(bean, dependencies);
+        addDependency(dependencies, bean);
+        if (started) insertLazyDependencies(dependencies);
+    }
 
+    // lazy beans are created and post-constructed on first use, so lazy beans injecting each other are fine and the
+    // dependency closing the cycle is left out of the graph
+    private void insertLazyDependencies(DependencyGraph<String> dependencies) {
+        for (String className : dependencies.getNodes()) {
+            for (String dependency : dependencies.getUses(className)) {
                 try {
-                    method.setAccessible(true);
-                    beanToInject = findBeanToInject(method);
-                    method.invoke(bean, beanToInject);
-                    addDependency(bean, beanToInject);
-                } catch (Exception ex) {
-                    String beanToInjectName = beanToInject != null ? beanToInject.toString() : "";
-                    String msg = String.format("Failed to inject %s into method %s of class %s", beanToInject, method.getName(), bean.getClass());
-                    throw new InjectError(msg, ex);
+                    dependencyGraph.insertDependency(className, dependency);
+                } catch (DependencyGraph.CircularDependencyException ex) {
+                    log.debug("Not ordering lazy bean {} after {}: {}", className, dependency, ex.getMessage());
                 }
             }
+            dependencyGraph.add(className);
         }
     }
 
+    private void injectBean(Object bean, DependencyGraph<String> dependencies) throws InjectError, BeanProcessingError {
+        invokeSetters(bean, resolveInjections(bean, dependencies));
+    }
+
+    /**
+     * @return the beans to inject into each injection point of the bean, their dependencies recorded in the graph
+     */
+    private Object[] resolveInjections(Object bean, DependencyGraph<String> dependencies) throws InjectError, BeanProcessingError {
+        BeanMetadata metadata = BeanMetadata.of(bean.getClass());
+        checkForDependsOnDependencies(bean, metadata, dependencies);
+
+        InjectionPoint[] injectionPoints = metadata.getInjectionPoints();
+        Object[] beansToInject = new Object[injectionPoints.length];
+
+        for (int i = 0; i < injectionPoints.length; i++) {
+            InjectionPoint injectionPoint = injectionPoints[i];
+
+            try {
+                beansToInject[i] = beanToInject(bean.getClass().getName(), i, injectionPoints.length, injectionPoint);
+                // a provider is asked for its bean later, so it does not order the beans
+                if (injectionPoint.isPool()) {
+                    addPoolDependency(dependencies, bean.getClass().getName(), injectionPoint.getParameterType());
+                } else if (!injectionPoint.isProvider()) {
+                    addDependency(dependencies, bean, beansToInject[i]);
+                }
+            } catch (Exception ex) {
+                String msg = String.format("Failed to inject %s into method %s of class %s", beansToInject[i], injectionPoint.getName(), bean.getClass());
+                throw new InjectError(msg, ex);
+            }
+        }
+        return beansToInject;
+    }
+
+    private void invokeSetters(Object bean, Object[] beansToInject) throws InjectError {
+        BeanMetadata metadata = BeanMetadata.of(bean.getClass());
+        InjectionPoint[] injectionPoints = metadata.getInjectionPoints();
+        BiConsumer<Object, Object>[] invokers = metadata.setterInvokers();
+
+        for (int i = 0; i < injectionPoints.length; i++) {
+            try {
+                if (invokers != null) {
+                    invokers[i].accept(bean, beansToInject[i]);
+                } else {
+                    injectionPoints[i].getMethod().invoke(bean, beansToInject[i]);
+                }
+            } catch (Exception ex) {
+                String msg = String.format("Failed to inject %s into method %s of class %s", beansToInject[i], injectionPoints[i].getName(), bean.getClass());
+                throw new InjectError(msg, ex);
+            }
+        }
+    }
+
+    /**
+     * @return the names of the beans, a child container's include its parent's
+     */
     public Collection<String> getBeanNames() {
-        Collection<String> beanNames = new HashSet<>(beansByName.keySet());
+        Collection<String> beanNames = parent != null ? parent.getBeanNames() : new HashSet<>();
+        beanNames.addAll(beansByName.keySet());
         beanNames.addAll(beansByClass.keySet());
         return beanNames;
     }
 
+    /**
+     * @return the beans, lazy beans only if they have been created. A child container's include its parent's.
+     */
     public Collection<Object> getAllBeans() {
-        Collection<Object> beans = new HashSet<>(beansByName.values());
-        beans.addAll(beansByClass.values());
+        Collection<Object> beans = parent != null ? parent.getAllBeans() : new HashSet<>();
+        beansByName.values().forEach(bean -> addIfCreated(beans, bean));
+        beansByClass.values().forEach(bean -> addIfCreated(beans, bean));
         return beans;
     }
 
+    private static void addIfCreated(Collection<Object> beans, Object bean) {
+        Object created = bean instanceof LazyBean lazyBean ? lazyBean.getIfCreated() : bean;
+        if (created != null) beans.add(created);
+    }
+
     public void runPostConstructors() {
+        long start = startTiming();
+        doRunPostConstructors();
+        // pools of classes outside the dependency graph, or wired by generated code
+        pools.values().forEach(StripedBeanPool::warmUp);
+        recordPhase(StartupReport.Phase.RUN_POST_CONSTRUCTORS, start);
+
+        if (startupReport != null) {
+            startupReport.logSummary(beanScannerConfig.getStartupReportTopN());
+        }
+
+        if (beanScannerConfig.isFreezeAfterStartup()) freeze();
+
+        // a plan that was replayed as it is does not need writing again
+        if (recordedPlan != null && (replayedPlan == null || replayedPlanStale)) {
+            recordedPlan.write(beanScannerConfig.getWiringPlanFile());
+        }
+
+        if (beanScannerConfig.isTrainingRun() && parent == null) {
+            log.info("Training run finished with {} beans, exiting so the JVM can write its class data sharing archive", getBeanNames().size());
+            System.exit(0);
+        }
+    }
+
+    /**
+     * Publishes the beans as an immutable registry, so {@link #getBean(String)} and {@link #getBean(Class)} no longer
+     * go through the maps the container is built with. Runs after {@link #runPostConstructors()} unless
+     * {@link BeanScannerConfig#isFreezeAfterStartup()} is turned off. Adding a bean afterwards drops the registry until
+     * this is called again.
+     */
+    public void freeze() {
+        Map<String, Object> names = FrozenBeanRegistry.mergeNames(beansByName, beansByAssignableName, beansByClass);
+        // the container's own beans only, a child falls through to its parent as it does unfrozen
+        frozenRegistry = new FrozenBeanRegistry(names, new ArrayList<>(names.values()), this::findOwnBean);
+    }
+
+    public boolean isFrozen() {
+        return frozenRegistry != null;
+    }
+
+    private void doRunPostConstructors() {
+        // lazy beans created from here on run their post constructors themselves, also with generated wiring
+        postConstructorsStarted = true;
+
+        if (wiring != null) {
+            try {
+                wiring.runPostConstructors(this);
+            } catch (Exception ex) {
+                log.error("Error running post constructor", ex);
+                System.exit(1);
+            }
+            return;
+        }
+
+        if (beanScannerConfig.isConcurrentPostConstruct()) {
+            runPostConstructorsConcurrently();
+            return;
+        }
+
         try {
             log.trace("For each each @ManagedBean run the @PostConstruct methods using dependency order");
 
-            Collection<String> classNamesInDependencyOrder = dependencyGraph.topologicalSort();
+            long start = startTiming();
+            Collection<String> classNamesInDependencyOrder = postConstructOrder();
+            recordPhase(StartupReport.Phase.TOPOLOGICAL_SORT, start);
 
             classNamesInDependencyOrder.forEach(className -> {
-                Object bean = beansByClass.get(className);
                 try {
-                    invokePostConstructIfPresent(bean);
+                    postConstruct(className);
                 } catch (Exception ex) {
                     log.error("Error running post constructor", ex);
                     System.exit(1);
@@ -116,78 +525,359 @@ public class FlyDI {
         }
     }
 
+    private void runPostConstructorsConcurrently() {
+        Executor executor = beanScannerConfig.getPostConstructExecutor();
+        ExecutorService defaultExecutor = executor == null ? ConcurrentPostConstructor.defaultExecutor() : null;
+
+        try {
+            log.trace("For each each @ManagedBean run the @PostConstruct methods as soon as its dependencies have run");
+
+            long start = startTiming();
+            List<String> classNamesInDependencyOrder = postConstructOrder();
+            recordPhase(StartupReport.Phase.TOPOLOGICAL_SORT, start);
+
+            new ConcurrentPostConstructor(dependencyGraph, executor != null ? executor : defaultExecutor)
+                    .run(classNamesInDependencyOrder, this::postConstruct);
+
+        } catch (PostConstructError | BeanProcessingError ex) {
+            log.error("Error running post constructor", ex);
+            System.exit(1);
+        } catch (DependencyGraph.CircularDependencyException e) {
+            log.error("Circular Dependency detected. ", e);
+            System.exit(1);
+        } finally {
+            if (defaultExecutor != null) defaultExecutor.shutdown();
+        }
+    }
+
+    /**
+     * @return the order of the replayed wiring plan if every injection followed the plan and the graph has as many
+     * beans, otherwise the topological sort of the dependency graph
+     */
+    private List<String> postConstructOrder() throws DependencyGraph.CircularDependencyException {
+        List<String> order = replayedPlan != null && !replayedPlanStale && replayedPlan.getPostConstructOrder().size() == dependencyGraph.size()
+                ? replayedPlan.getPostConstructOrder()
+                : dependencyGraph.topologicalSort();
+
+        if (recordedPlan != null) recordedPlan.setPostConstructOrder(order);
+        return order;
+    }
+
+    private void postConstruct(String className) throws PostConstructError, BeanProcessingError {
+        Object bean = beansByClass.get(className);
+        if (bean != null) {
+            postConstruct(bean);
+            return;
+        }
+
+        // prototypes are in the dependency graph too, they run their post constructors when created, but a pool of
+        // them is warmed up in the place of the bean, before the beans it is injected into
+        StripedBeanPool<?> pool = pools.get(className);
+        if (pool != null) pool.warmUp();
+    }
+
+    private void postConstruct(Object bean) throws PostConstructError, BeanProcessingError {
+        if (bean instanceof LazyBean lazyBean) {
+            lazyBean.postConstruct();
+        } else {
+            invokePostConstructIfPresent(bean);
+        }
+    }
+
     public void invokePostConstructIfPresent(Object bean) throws PostConstructError, BeanProcessingError {
-        for (final Method method : getAllMethods(bean.getClass())) {
-            if (method.isAnnotationPresent(PostConstruct.class)) {
-                try {
-                    log.trace("running post constructor on class {}", bean.getClass().getName());
-                    method.setAccessible(true);
+        BeanMetadata metadata = BeanMetadata.of(bean.getClass());
+        Method[] methods = metadata.getPostConstructMethods();
+        Consumer<Object>[] invokers = metadata.postConstructInvokers();
+
+        for (int i = 0; i < methods.length; i++) {
+            Method method = methods[i];
+            try {
+                log.trace("running post constructor on class {}", bean.getClass().getName());
+                long start = startTiming();
+                if (invokers != null) {
+                    invokers[i].accept(bean);
+                } else {
                     method.invoke(bean);
-                } catch (InvocationTargetException ex) {
-                    throw new PostConstructError(String.format("Failed invoking @PostConstruct on Class %s Method %s", bean.getClass().getName(), method.getName()), ex.getTargetException());
-                } catch (Exception ex) {
-                    log.error("Failed to invoke PostConstruct on Class {} Method {}", bean.getClass().getName(), method.getName(), ex);
-                    throw new PostConstructError(String.format("Failed invoking @PostConstruct on Class %s Method %s", bean.getClass().getName(), method.getName()), ex);
                 }
+                if (startupReport != null) startupReport.recordPostConstruct(bean.getClass(), method.getName(), System.nanoTime() - start);
+            } catch (InvocationTargetException ex) {
+                throw new PostConstructError(String.format("Failed invoking @PostConstruct on Class %s Method %s", bean.getClass().getName(), method.getName()), ex.getTargetException());
+            } catch (Exception ex) {
+                log.error("Failed to invoke PostConstruct on Class {} Method {}", bean.getClass().getName(), method.getName(), ex);
+                throw new PostConstructError(String.format("Failed invoking @PostConstruct on Class %s Method %s", bean.getClass().getName(), method.getName()), ex);
             }
         }
     }
 
     public Object getBean(String beanName) {
+        Object bean = findBean(beanName);
+        if (bean == null) log.error("Bean {} not found. {} Beans available.", beanName, beansByName.size());
+        return LazyBean.unwrap(bean);
+    }
 
+    /**
+     * @return the bean with the name, a lazy bean not created yet, or {@code null} if there is none. A child container
+     * falls through to its parent.
+     */
+    Object findBean(String beanName) {
+        FrozenBeanRegistry registry = frozenRegistry;
+        Object bean = registry != null ? registry.get(beanName) : findOwnBean(beanName);
+        return bean != null || parent == null ? bean : parent.findBean(beanName);
+    }
+
+    private Object findOwnBean(String beanName) {
         Object bean = beansByName.get(beanName);
         if (bean != null) return bean;
 
         bean = beansByAssignableName.get(beanName);
         if (bean != null) return bean;
 
-        bean = beansByClass.get(beanName);
-        if (bean == null) log.error("Bean {} not found. {} Beans available.", beanName, beansByName.size());
-        return bean;
+        return beansByClass.get(beanName);
     }
 
     @SuppressWarnings("unchecked")
     public <T> T getBean(Class<T> requiredType) {
-        T bean = (T) beansByClass.get(requiredType.getName());
+        Object bean = lookupBean(requiredType);
+
+        if (null == bean) {
+            log.error("Bean of type {} not found. {} Beans available.", requiredType, beansByName.size());
+        }
+
+        return (T) LazyBean.unwrap(bean);
+    }
+
+    private Object lookupBean(Class<?> requiredType) {
+        FrozenBeanRegistry registry = frozenRegistry;
+        Object bean = registry != null ? registry.get(requiredType) : findOwnBean(requiredType);
+        return bean != null || parent == null ? bean : parent.lookupBean(requiredType);
+    }
+
+    private Object findOwnBean(Class<?> requiredType) {
+        Object bean = beansByClass.get(requiredType.getName());
 
         if (null == bean) {
-            bean = (T) beansByAssignableClass.get(requiredType.getName());
+            bean = beansByAssignableClass.get(requiredType.getName());
 
             if (null == bean) {
-                log.error("Bean of type {} not found. {} Beans available.", requiredType, beansByName.size());
+                bean = beansByType.uniqueImplementationOf(requiredType);
             }
         }
 
         return bean;
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Returns a provider bound to the bean of the type, found as {@link #getBean(Class)} finds it, or, if there is no
+     * such bean, to the {@link #prototypeFactory(Class) prototype factory} of the type. Its {@code get()} does no lookup,
+     * so code on a hot path can hold the provider instead of calling {@code getBean} again and again. A lazy bean is not
+     * created before the first {@code get()}.
+     */
+    public <T> Provider<T> providerFor(Class<T> requiredType) throws InjectError, BeanProcessingError {
+        if (requiredType.isAnnotationPresent(Scoped.class)) return scopedHandleFor(requiredType);
+
+        Object bean = lookupBean(requiredType);
+        return bean != null ? Providers.of(bean) : Providers.of(prototypeFactory(requiredType));
+    }
+
+    /**
+     * Returns a provider bound to the bean with the name, found as {@link #getBean(String)} finds it.
+     *
+     * @throws InjectError if there is no bean with the name
+     */
+    public Provider<Object> providerFor(String beanName) throws InjectError {
+        Object bean = findBean(beanName);
+        if (bean == null) {
+            throw new InjectError(String.format("Could not find bean %s to provide. %d Beans available.", beanName, beansByName.size()));
+        }
+        return Providers.of(bean);
+    }
+
     public <T> T getPrototypeBean(Class<T> requiredType) {
-        var bean = newInstance(requiredType);
-        injectBean(bean);
-        invokePostConstructIfPresent(bean);
-        return bean;
+        return prototypeFactory(requiredType).create();
+    }
+
+    /**
+     * Returns the pool of instances of a prototype bean, configured by its {@link Pooled @Pooled} annotation. Instances
+     * are created by its {@link #prototypeFactory(Class) prototype factory}. The pool is warmed up when the post
+     * constructors run, before the beans it is injected into, or right away if they have already run.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> BeanPool<T> poolFor(Class<T> requiredType) throws InjectError, BeanProcessingError {
+        var pool = (StripedBeanPool<T>) pools.get(requiredType.getName());
+        if (pool != null) return pool;
+
+        // created outside the map, the factory may ask for this pool again
+        pool = new StripedBeanPool<>(requiredType, prototypeFactory(requiredType));
+        var published = (StripedBeanPool<T>) pools.putIfAbsent(requiredType.getName(), pool);
+        if (published != null) return published;
+
+        if (postConstructorsStarted) pool.warmUp();
+        return pool;
+    }
+
+    /**
+     * Returns the handle on the instance of a {@link Scoped @Scoped} bean belonging to the current thread or execution
+     * scope. Instances are created by its {@link #prototypeFactory(Class) prototype factory} on first use.
+     *
+     * @throws InjectError if the class is not {@code @Scoped}
+     */
+    @SuppressWarnings("unchecked")
+    public <T> ScopedHandle<T> scopedHandleFor(Class<T> scopedType) throws InjectError, BeanProcessingError {
+        var handle = (ScopedHandle<T>) scopedHandles.get(scopedType.getName());
+        if (handle != null) return handle;
+
+        Scoped scoped = scopedType.getAnnotation(Scoped.class);
+        if (scoped == null) {
+            throw new InjectError(String.format("Class %s is not @Scoped", scopedType.getName()));
+        }
+
+        // created outside the map, the factory may ask for this handle again
+        PrototypeFactory<T> factory = prototypeFactory(scopedType);
+        handle = switch (scoped.value()) {
+            case THREAD -> ScopedHandles.threadScoped(factory);
+            case EXECUTION -> ScopedHandles.executionScoped(scopedType, executionScopedCount.getAndIncrement(), scopeCarrier, factory);
+        };
+        var published = (ScopedHandle<T>) scopedHandles.putIfAbsent(scopedType.getName(), handle);
+        return published != null ? published : handle;
+    }
+
+    /**
+     * Runs the task in a new execution scope: {@link Scoped.Kind#EXECUTION execution scoped} beans asked for while it
+     * runs, on this thread or on threads of a structured task scope it forks, are created once and dropped when it
+     * returns. A scope opened inside another one has beans of its own.
+     */
+    public void runInScope(Runnable task) {
+        scopeCarrier.run(new ExecutionScope(executionScopedCount.get()), task);
+    }
+
+    /**
+     * Calls the task in a new execution scope, as {@link #runInScope(Runnable)} does.
+     */
+    public <V> V callInScope(Callable<V> task) throws Exception {
+        Object[] result = new Object[1];
+        Exception[] failure = new Exception[1];
+
+        runInScope(() -> {
+            try {
+                result[0] = task.call();
+            } catch (Exception ex) {
+                failure[0] = ex;
+            }
+        });
+
+        if (failure[0] != null) throw failure[0];
+        @SuppressWarnings("unchecked") V value = (V) result[0];
+        return value;
+    }
+
+    /**
+     * Returns the factory for new instances of a prototype bean. The beans to inject are resolved once, when the
+     * factory is first requested, so beans added to the container afterwards are not seen by the factory. A prototype
+     * asked for again while its factory is compiled, through a {@code Provider} closing a cycle of prototypes, gets a
+     * factory that looks the compiled one up on first use.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> PrototypeFactory<T> prototypeFactory(Class<T> requiredType) {
+        var factory = (PrototypeFactory<T>) prototypeFactories.get(requiredType);
+        if (factory != null) return factory;
+
+        Thread compiling = compilingFactories.putIfAbsent(requiredType, Thread.currentThread());
+        if (compiling == Thread.currentThread()) return new DeferredPrototypeFactory<>(this, requiredType);
+
+        // compiled outside the map, as compiling the factories of a cycle comes back here; two threads may both
+        // compile a factory, the first one published is kept and only its dependencies are recorded
+        DependencyGraph<String> dependencies = new DependencyGraph<>();
+        try {
+            factory = compilePrototypeFactory(requiredType, dependencies);
+        } finally {
+            if (compiling == null) compilingFactories.remove(requiredType);
+        }
+
+        // after startup a factory whose dependencies close a cycle is not published
+        boolean started = postConstructorsStarted;
+        if (started) insertDependencies(dependencies);
+
+        var published = (PrototypeFactory<T>) prototypeFactories.putIfAbsent(requiredType, factory);
+        if (published != null) return published;
+
+        if (!started) dependenciesOf(requiredType.getName()).addAll(dependencies);
+        return factory;
+    }
+
+    private <T> PrototypeFactory<T> compilePrototypeFactory(Class<T> requiredType, DependencyGraph<String> graph) throws InjectError, BeanProcessingError {
+        BeanMetadata metadata = BeanMetadata.of(requiredType);
+        String className = requiredType.getName();
+
+        for (String dependency : metadata.getDependsOn()) {
+            Object dependsOnBean = namedBean(dependency);
+
+            if (dependsOnBean == null) {
+                String msg = String.format("Could not find named bean in class @DependsOn annotation. Dependency: %s Class: %s", dependency, requiredType);
+                throw new InjectError(msg);
+            }
+
+            addDependency(graph, className, LazyBean.unwrap(dependsOnBean));
+        }
+
+        InjectionPoint[] injectionPoints = metadata.getInjectionPoints();
+        Object[] dependencies = new Object[injectionPoints.length];
+
+        for (int i = 0; i < injectionPoints.length; i++) {
+            try {
+                dependencies[i] = findBeanToInject(injectionPoints[i]);
+                if (injectionPoints[i].isPool()) {
+                    addPoolDependency(graph, className, injectionPoints[i].getParameterType());
+                } else if (!injectionPoints[i].isProvider()) {
+                    addDependency(graph, className, dependencies[i]);
+                }
+            } catch (Exception ex) {
+                String msg = String.format("Failed to inject %s into method %s of class %s", dependencies[i], injectionPoints[i].getName(), requiredType);
+                throw new InjectError(msg, ex);
+            }
+        }
+
+        return new CompiledPrototypeFactory<>(requiredType, metadata, dependencies);
     }
 
     @SuppressWarnings("WeakerAccess")
     public void addBean(Object beanToAdd) {
         log.trace("Adding bean with name: {} Class: {}", beanToAdd.getClass().getSimpleName(), beanToAdd.getClass().getName());
-        beansByName.put(beanToAdd.getClass().getSimpleName(), beanToAdd);
-        beansByClass.put(beanToAdd.getClass().getName(), beanToAdd);
+        registerBean(beanToAdd.getClass().getSimpleName(), beanToAdd);
     }
 
     @SuppressWarnings("WeakerAccess")
     public void addBean(String name, Object beanToAdd) {
         log.trace("Adding bean with name: {} Class: {}", name, beanToAdd.getClass().getName());
-        beansByName.put(name, beanToAdd);
-        beansByClass.put(beanToAdd.getClass().getName(), beanToAdd);
+        registerBean(name, beanToAdd);
+    }
+
+    private void registerBean(String name, Object bean) {
+        Class<?> beanClass = LazyBean.beanClassOf(bean);
+        frozenRegistry = null;
+        beansByName.put(name, bean);
+        beansByClass.put(beanClass.getName(), bean);
+        beansByType.register(beanClass.getName(), beanClass, bean);
     }
 
     public void addAssignableBean(Class superClazz, Object assignableFromBean) {
+        frozenRegistry = null;
         beansByAssignableClass.put(superClazz.getName(), assignableFromBean);
         beansByAssignableName.put(superClazz.getSimpleName(), assignableFromBean);
     }
 
+    // while the beans are injected the simple name is registered afterwards, see injectBeansInOrder(boolean)
+    private void learnAssignableBean(Class<?> superClazz, Object assignableFromBean) {
+        Set<Class<?>> deferred = deferredAssignableNames;
+        if (deferred == null) {
+            addAssignableBean(superClazz, assignableFromBean);
+            return;
+        }
+
+        frozenRegistry = null;
+        beansByAssignableClass.put(superClazz.getName(), assignableFromBean);
+        deferred.add(superClazz);
+    }
+
     public Optional<Constructor> findDefaultConstructor(Class<?> forClass) {
 
         Constructor[] allConstructors = forClass.getDeclaredConstructors();
@@ -217,14 +907,19 @@ public class FlyDI {
     }
 
     private void buildReflections(BeanScannerConfig beanScannerConfig) {
+        reflections = buildReflections(beanScannerConfig, urlsToScan(beanScannerConfig));
+        addBean("Reflections", reflections);
+    }
+
+    static Reflections buildReflections(BeanScannerConfig beanScannerConfig, Collection<URL> urls) {
 
         final ConfigurationBuilder configurationBuilder = new ConfigurationBuilder();
 
-        StringBuilder includeString = new StringBuilder();
         final FilterBuilder filterBuilder = new FilterBuilder();
 
+        configurationBuilder.addUrls(urls);
+
         for (String pkg : beanScannerConfig.getPackagesToInclude()) {
-            configurationBuilder.addUrls(ClasspathHelper.forPackage(pkg));
             filterBuilder.include(pkg + "\\..*");
         }
 
@@ -241,8 +936,30 @@ public class FlyDI {
                         new MethodParameterNamesScanner(),
                         new MemberUsageScanner());
 
-        reflections = new Reflections(configurationBuilder);
-        addBean("Reflections", reflections);
+        return new Reflections(configurationBuilder);
+    }
+
+    static Collection<URL> urlsToScan(BeanScannerConfig beanScannerConfig) {
+        Collection<URL> urls = new LinkedHashSet<>();
+        for (String pkg : beanScannerConfig.getPackagesToInclude()) {
+            urls.addAll(ClasspathHelper.forPackage(pkg));
+        }
+        return urls;
+    }
+
+    private void findAndInstantiateCachedBeans(String system) {
+        var scanCache = new ScanCache(beanScannerConfig.getScanCacheFile(), beanScannerConfig.isScanCacheContentHash());
+        var scope = "include=" + beanScannerConfig.getPackagesToInclude() + ";exclude=" + beanScannerConfig.getPackagesToExclude();
+
+        List<BeanIndex.Entry> entries = scanCache.scan(urlsToScan(beanScannerConfig), scope, url ->
+                buildReflections(beanScannerConfig, List.of(url))
+                        .getTypesAnnotatedWith(ManagedBean.class)
+                        .stream()
+                        .filter(clazz -> clazz.isAnnotationPresent(ManagedBean.class))
+                        .map(BeanIndex.Entry::fromClass)
+                        .toList());
+
+        findAndInstantiateIndexedBeans(new BeanIndex(entries), system);
     }
 
     private void findAndInstantiateBeans(String system) {
@@ -251,17 +968,21 @@ public class FlyDI {
 
         try {
 
+            List<BeanToCreate> beansToCreate = new ArrayList<>();
+
             for (final Class<?> clazz : reflections.getTypesAnnotatedWith(ManagedBean.class)) {
                 managedBeanName = clazz.getName();
                 String beanValue = clazz.getAnnotation(ManagedBean.class).value();
 
                 if (beanValue.isEmpty() || beanValue.equalsIgnoreCase(system)) {
-                    createBean(clazz.getSimpleName(), clazz);
+                    beansToCreate.add(new BeanToCreate(clazz.getName(), () -> clazz));
                 } else {
                     log.trace("Skipping bean with name: {} Class: {} For System {} ", clazz.getSimpleName(), clazz.getName(), beanValue.toUpperCase());
                 }
             }
 
+            createBeans(beansToCreate);
+
         } catch (Exception ex) {
             log.error("Failed while instantiating @ManagedBean {}", managedBeanName, ex);
             log.error("Unrecoverable error shutting down");
@@ -269,164 +990,416 @@ public class FlyDI {
         }
     }
 
-    private void createBean(String name, final Class<?> clazz) throws InstantiationException {
-        log.trace("Creating bean with name: {} Class: {}", name, clazz.getName());
+    private void findAndInstantiateIndexedBeans(BeanIndex beanIndex, String system) {
 
-        var defaultConstructorOptional = findDefaultConstructor(clazz);
+        String managedBeanName = "";
 
         try {
-            if (defaultConstructorOptional.isPresent()) {
-                var defaultConstructor = defaultConstructorOptional.get();
-                defaultConstructor.setAccessible(true);
-                final Object newBean = defaultConstructor.newInstance();
-                beansByName.put(name, newBean);
-                beansByClass.put(clazz.getName(), newBean);
-            } else {
-                log.error("@ManagedBean failed to create new instance of {}, no default constructor found", name);
-                log.error("Unrecoverable error shutting down");
-                System.exit(1);
+
+            ClassLoader classLoader = BeanIndex.defaultClassLoader();
+            List<BeanToCreate> beansToCreate = new ArrayList<>();
+
+            for (final BeanIndex.Entry entry : beanIndex.entriesFor(beanScannerConfig)) {
+                managedBeanName = entry.getClassName();
+
+                if (entry.isForSystem(system)) {
+                    beansToCreate.add(new BeanToCreate(entry.getClassName(), () -> Class.forName(entry.getClassName(), false, classLoader)));
+                } else {
+                    log.trace("Skipping bean Class: {} For System {} ", entry.getClassName(), entry.getSystem().toUpperCase());
+                }
             }
+
+            createBeans(beansToCreate);
+
         } catch (Exception ex) {
-            log.error("@ManagedBean failed to create new instance of {}, check it has a default constructor {}", name, ex);
+            log.error("Failed while instantiating indexed @ManagedBean {}", managedBeanName, ex);
             log.error("Unrecoverable error shutting down");
             System.exit(1);
         }
+    }
+
+    /**
+     * Creates and registers the beans in the order given. In parallel mode the classes are loaded and the beans
+     * constructed concurrently, but they are still registered, and failures reported, in that order.
+     */
+    private void createBeans(List<BeanToCreate> beansToCreate) {
+        Object[] created = new Object[beansToCreate.size()];
+        Exception[] failures = new Exception[beansToCreate.size()];
+
+        IntConsumer create = i -> {
+            try {
+                Class<?> clazz = beansToCreate.get(i).beanClass().call();
 
+                if (isLazy(clazz)) {
+                    log.trace("Deferring lazy bean with name: {} Class: {}", clazz.getSimpleName(), clazz.getName());
+                    created[i] = new LazyBean(clazz, this);
+                } else {
+                    log.trace("Creating bean with name: {} Class: {}", clazz.getSimpleName(), clazz.getName());
+                    created[i] = newBeanInstance(clazz);
+                }
+            } catch (Exception ex) {
+                failures[i] = ex;
+            }
+        };
+
+        boolean parallel = beanScannerConfig.isParallel();
+        if (parallel) {
+            forEachInParallel(beansToCreate.size(), create);
+        }
+
+        for (int i = 0; i < beansToCreate.size(); i++) {
+            if (!parallel) {
+                create.accept(i);
+            }
+
+            if (failures[i] != null) {
+                log.error("@ManagedBean failed to create new instance of {}", beansToCreate.get(i).className(), failures[i]);
+                log.error("Unrecoverable error shutting down");
+                System.exit(1);
+            }
+
+            registerBean(LazyBean.beanClassOf(created[i]).getSimpleName(), created[i]);
+            if (recordedPlan != null) recordedPlan.addBeanClass(beansToCreate.get(i).className());
+        }
+    }
+
+    private boolean isLazy(Class<?> clazz) {
+        if (!beanScannerConfig.isUseLazyBeans()) return false;
+
+        Lazy lazy = clazz.getAnnotation(Lazy.class);
+        return lazy != null ? lazy.value() : beanScannerConfig.isLazyByDefault();
     }
 
-    private <T> T newInstance(Class<T> requiredType) {
+    Object newBeanInstance(final Class<?> clazz) throws Exception {
+        var defaultConstructor = BeanMetadata.of(clazz).getDefaultConstructor();
+
+        if (defaultConstructor == null) {
+            throw new BeanProcessingError(String.format("No default constructor found for %s", clazz.getName()));
+        }
+
         try {
-            Optional<Constructor> defaultConstructorOptional = findDefaultConstructor(requiredType);
-            Constructor defaultConstructor = defaultConstructorOptional.get();
-            defaultConstructor.setAccessible(true);
-            return (T) defaultConstructor.newInstance();
-        } catch (Exception ex) {
-            String msg = String.format("Failed to create new instance of %s , check it has a default constructor", requiredType);
-            throw new BeanProcessingError(msg, ex);
+            long start = startTiming();
+            Object bean = defaultConstructor.newInstance();
+            if (startupReport != null) startupReport.recordBeanConstruction(clazz, System.nanoTime() - start);
+            return bean;
+        } catch (InvocationTargetException ex) {
+            throw new BeanProcessingError(String.format("Constructor of %s failed", clazz.getName()), ex.getTargetException());
         }
     }
 
-    private void checkForDependsOnDependencies(Object bean) {
-        if (bean.getClass().isAnnotationPresent(DependsOn.class)) {
-            DependsOn dependsOnAnnotation = bean.getClass().getAnnotation(DependsOn.class);
-            Arrays.stream(dependsOnAnnotation.value())
-                    .forEach(dependency -> {
-                        Object dependsOnBean = beansByName.get(dependency);
+    private record BeanToCreate(String className, Callable<Class<?>> beanClass) {
+    }
 
-                        if (dependsOnBean == null) {
-                            String msg = String.format("Could not find named bean in class @DependsOn annotation. Dependency: %s Class: %s", dependency, bean.getClass());
-                            throw new InjectError(msg);
-                        }
+    private void checkForDependsOnDependencies(Object bean, BeanMetadata metadata, DependencyGraph<String> dependencies) {
+        for (String dependency : metadata.getDependsOn()) {
+            Object dependsOnBean = namedBean(dependency);
+
+            if (dependsOnBean == null) {
+                String msg = String.format("Could not find named bean in class @DependsOn annotation. Dependency: %s Class: %s", dependency, bean.getClass());
+                throw new InjectError(msg);
+            }
 
-                        addDependency(bean, dependsOnBean);
-                    });
+            addDependency(dependencies, bean, LazyBean.unwrap(dependsOnBean));
         }
     }
 
     private final Map<String, Object> beansByAssignableClass = new ConcurrentHashMap<>();
     private final Map<String, Object> beansByAssignableName = new ConcurrentHashMap<>();
+    private final Map<TypeKey, Object> beansByAssignableType = new ConcurrentHashMap<>();
+
+    List<String> beanClassNamesInDependencyOrder() throws DependencyGraph.CircularDependencyException {
+        return dependencyGraph.topologicalSort();
+    }
+
+    /**
+     * @return the classes the class depends on
+     */
+    Set<String> dependenciesOfBeanClass(String className) {
+        return dependencyGraph.getUses(className);
+    }
+
+    /**
+     * Records that the class depends on the other classes, for a generated {@link Wiring}, which injects the beans
+     * itself. Not needed otherwise, injecting a bean records its dependencies.
+     */
+    public void addDependencies(String className, String... dependencyClassNames) {
+        dependencyGraph.add(className);
+        for (String dependency : dependencyClassNames) {
+            dependencyGraph.addDependency(className, dependency);
+        }
+    }
+
+    Map<String, Object> getAssignableBeans() {
+        return Collections.unmodifiableMap(beansByAssignableClass);
+    }
 
-    private Object findBeanToInject(Method injectMethod) throws InjectError {
+    private Object namedBean(String name) {
+        Object bean = beansByName.get(name);
+        return bean != null || parent == null ? bean : parent.namedBean(name);
+    }
 
-        Class<?>[] paramsTypes = injectMethod.getParameterTypes();
+    private boolean hasImplementationOf(Class<?> type) {
+        return !beansByType.implementationsOf(type).isEmpty() || parent != null && parent.hasImplementationOf(type);
+    }
 
-        if (paramsTypes.length == 0) {
-            String msg = String.format("Failed to inject into method %s - method has no parameters", injectMethod.getName());
+    /**
+     * @return the bean to inject, lazy beans are created if needed. For a {@code Provider<T>} a provider bound to the
+     * bean of type {@code T}, or to a prototype factory of {@code T} if there is no bean of that type. For a
+     * {@code BeanPool<T>} the pool of {@code T}, for a {@code Provider<T>} of a {@code @Scoped} bean its
+     * {@link ScopedHandle}.
+     */
+    Object findBeanToInject(InjectionPoint injectionPoint) throws InjectError {
+        if (injectionPoint.isPool()) return poolFor(injectionPoint.getParameterType());
+
+        Class<?> providedClass = injectionPoint.getParameterType();
+        if (providedClass != null && providedClass.isAnnotationPresent(Scoped.class)) {
+            if (!injectionPoint.isProvider()) {
+                String msg = String.format("Failed to inject %s into method %s - inject a Provider of the @Scoped bean", providedClass.getName(), injectionPoint.getName());
+                throw new InjectError(msg);
+            }
+            return scopedHandleFor(providedClass);
+        }
+
+        if (!injectionPoint.isProvider()) return LazyBean.unwrap(resolveBeanToInject(injectionPoint));
+
+        if (injectionPoint.getNamed() == null && !hasImplementationOf(providedClass)
+                && !providedClass.isInterface() && !Modifier.isAbstract(providedClass.getModifiers())) {
+            return Providers.of(prototypeFactory(providedClass));
+        }
+
+        return Providers.of(resolveBeanToInject(injectionPoint));
+    }
+
+    /**
+     * @return the bean to inject as the wiring plan says, or as {@link #findBeanToInject(InjectionPoint)} finds it if
+     * the plan does not cover the injection point. What was injected is recorded for the next plan.
+     */
+    private Object beanToInject(String className, int index, int count, InjectionPoint injectionPoint) throws InjectError {
+        WiringPlan plan = replayedPlan;
+        Object beanToInject = plan != null ? replay(plan.injectionFor(className, index, injectionPoint), injectionPoint) : null;
+
+        if (beanToInject == null) {
+            if (plan != null) replayedPlanStale = true;
+            beanToInject = findBeanToInject(injectionPoint);
+        }
+
+        if (recordedPlan != null) {
+            WiringPlan.Injection injection = describeInjection(injectionPoint, beanToInject);
+            if (injection != null) {
+                recordedPlan.addInjection(className, index, count, injection);
+            } else {
+                recordedPlan.markIncomplete(String.format("%s injected into %s is not a registered bean", beanToInject, injectionPoint));
+            }
+        }
+
+        return beanToInject;
+    }
+
+    private Object replay(WiringPlan.Injection injection, InjectionPoint injectionPoint) throws InjectError {
+        if (injection == null) return null;
+
+        long start = startTiming();
+        Class<?> injectedType = injectionPoint.getParameterType();
+        Object bean = switch (injection.kind()) {
+            case BEAN -> {
+                Object planned = beansByClass.get(injection.target());
+                yield planned != null && isResolvedTo(injectionPoint, planned) ? LazyBean.unwrap(planned) : null;
+            }
+            case BEAN_PROVIDER -> {
+                Object planned = beansByClass.get(injection.target());
+                yield planned != null && isResolvedTo(injectionPoint, planned) ? Providers.of(planned) : null;
+            }
+            case PROTOTYPE_PROVIDER -> Providers.of(prototypeFactory(injectedType));
+            case SCOPED -> scopedHandleFor(injectedType);
+            case POOL -> poolFor(injectedType);
+        };
+
+        return bean != null ? resolved(injectionPoint, StartupReport.Strategy.WIRING_PLAN, start, bean) : null;
+    }
+
+    /**
+     * Checks a bean of the plan against the rules of {@link #findOwnBeanToInject(InjectionPoint, FlyDI, long)}, without
+     * the type index walk. Beans added before the start are not part of the plan and can win by name or by type.
+     *
+     * @return true if the rules still pick the planned bean
+     */
+    private boolean isResolvedTo(InjectionPoint injectionPoint, Object planned) {
+        Class<?> paramClass = injectionPoint.getParameterType();
+        if (!providesImplementation(paramClass, injectionPoint.getGenericParameterType(), LazyBean.beanClassOf(planned))) return false;
+
+        String named = injectionPoint.getNamed();
+        if (named != null) return beansByName.get(named) == planned;
+
+        Object byName = beansByName.get(injectionPoint.getParameterName());
+        if (byName != null && paramClass.isAssignableFrom(LazyBean.beanClassOf(byName))) return byName == planned;
+
+        if (injectionPoint.getBeanNameFromMethodName() != null) {
+            byName = beansByName.get(injectionPoint.getBeanNameFromMethodName());
+            if (byName == null) byName = beansByName.get(injectionPoint.getBeanNameFromMethodNameLowercase());
+            if (byName != null && paramClass.isAssignableFrom(LazyBean.beanClassOf(byName))) return byName == planned;
+        }
+
+        TypeKey typeKey = injectionPoint.getTypeKey();
+        Object byType = typeKey != null && typeKey.isParameterized() ? beansByAssignableType.get(typeKey) : beansByAssignableClass.get(paramClass.getName());
+        if (byType == null) byType = beansByClass.get(paramClass.getName());
+        if (byType != null) return byType == planned;
+
+        // the planned bean must be the only implementation of the type
+        if (typeKey == null) return false;
+        Collection<Object> assignableBeans = beansByType.implementationsOf(typeKey);
+        return assignableBeans.size() == 1 && assignableBeans.iterator().next() == planned;
+    }
+
+    /**
+     * @return the injected value as the wiring plan records it, {@code null} if it is not a bean registered by class
+     */
+    private WiringPlan.Injection describeInjection(InjectionPoint injectionPoint, Object beanToInject) {
+        String method = injectionPoint.getName();
+        String injectedType = injectionPoint.getParameterType().getName();
+
+        if (injectionPoint.isPool()) return new WiringPlan.Injection(method, injectedType, WiringPlan.Kind.POOL, injectedType);
+        if (beanToInject instanceof ScopedHandle<?>) return new WiringPlan.Injection(method, injectedType, WiringPlan.Kind.SCOPED, injectedType);
+        if (beanToInject instanceof Providers.PrototypeProvider<?>) {
+            return new WiringPlan.Injection(method, injectedType, WiringPlan.Kind.PROTOTYPE_PROVIDER, injectedType);
+        }
+
+        Object bean = beanToInject;
+        if (beanToInject instanceof Providers.BeanProvider<?> provider) bean = provider.bean();
+        if (beanToInject instanceof Providers.LazyBeanProvider<?> provider) bean = provider.lazyBean();
+
+        String target = LazyBean.beanClassOf(bean).getName();
+        Object registered = beansByClass.get(target);
+        if (registered != bean && !(registered instanceof LazyBean lazyBean && lazyBean.getIfCreated() == bean)) return null;
+
+        WiringPlan.Kind kind = injectionPoint.isProvider() ? WiringPlan.Kind.BEAN_PROVIDER : WiringPlan.Kind.BEAN;
+        return new WiringPlan.Injection(method, injectedType, kind, target);
+    }
+
+    private Object resolveBeanToInject(InjectionPoint injectionPoint) throws InjectError {
+        long start = startTiming();
+
+        if (injectionPoint.getParameterCount() == 0) {
+            String msg = String.format("Failed to inject into method %s - method has no parameters", injectionPoint.getName());
             throw new InjectError(msg);
         }
 
-        if (paramsTypes.length > 1) {
-            String msg = String.format("Failed to inject into method %s - method has more than one parameter", injectMethod.getName());
+        if (injectionPoint.getParameterCount() > 1) {
+            String msg = String.format("Failed to inject into method %s - method has more than one parameter", injectionPoint.getName());
             throw new InjectError(msg);
         }
 
-        AtomicReference<Object> beanToInject = new AtomicReference<>(null);
-        // check for @Named
-        Named namedBean = injectMethod.getAnnotation(Named.class);
-        if (null != namedBean) {
-            beanToInject.set(beansByName.get(namedBean.value()));
+        // the beans of a child container shadow its parent's
+        for (FlyDI container = this; container != null; container = container.parent) {
+            Object bean = container.findOwnBeanToInject(injectionPoint, this, start);
+            if (bean != null) return bean;
+        }
 
-            if (beanToInject.get() == null) {
-                String msg = String.format("Could not find named bean to inject. Named Bean: %s Method: %s", namedBean.value(), injectMethod.getName());
-                throw new InjectError(msg);
-            }
+        if (null != injectionPoint.getNamed()) {
+            String msg = String.format("Could not find named bean to inject. Named Bean: %s Method: %s", injectionPoint.getNamed(), injectionPoint.getName());
+            throw new InjectError(msg);
+        }
+
+        // sorry, can't find it run out of options!
+        String msg = String.format("Could not find bean to inject Type: %s Method: %s", injectionPoint.getParameterType().getName(), injectionPoint.getName());
+        throw new InjectError(msg);
+    }
+
+    /**
+     * @param requester the container the bean is resolved for, the one whose caches and report are updated
+     * @return the bean of this container to inject, {@code null} if there is none
+     */
+    private Object findOwnBeanToInject(InjectionPoint injectionPoint, FlyDI requester, long start) throws InjectError {
+        Class<?> paramClass = injectionPoint.getParameterType();
 
-            return beanToInject.get();
+        // check for @Named
+        String named = injectionPoint.getNamed();
+        if (null != named) {
+            Object namedBean = beansByName.get(named);
+            return namedBean != null ? requester.resolved(injectionPoint, StartupReport.Strategy.NAMED, start, namedBean) : null;
         }
 
         // not named bean...
         // can we find it by its parameter name
-        Parameter[] parameters = injectMethod.getParameters();
-        beanToInject.set(beansByName.get(parameters[0].getName()));
+        Object beanToInject = beansByName.get(injectionPoint.getParameterName());
 
-        if (null != beanToInject.get() && paramsTypes[0].isAssignableFrom(beanToInject.get().getClass())) {
-            return beanToInject.get();
+        if (null != beanToInject && paramClass.isAssignableFrom(LazyBean.beanClassOf(beanToInject))) {
+            return requester.resolved(injectionPoint, StartupReport.Strategy.PARAMETER_NAME, start, beanToInject);
         }
 
         // can we find it by its method name
-        var beanNameFromMethodName = injectMethod.getName().substring(3);
-        if (!beanNameFromMethodName.isEmpty()) {
-            var bean = beansByName.get(beanNameFromMethodName);
+        if (null != injectionPoint.getBeanNameFromMethodName()) {
+            var bean = beansByName.get(injectionPoint.getBeanNameFromMethodName());
             if (bean == null) {
                 // try with first char lowercase
-                String firstCharLowercase = beanNameFromMethodName.substring(0, 1).toLowerCase() + beanNameFromMethodName.substring(1);
-                bean = beansByName.get(firstCharLowercase);
+                bean = beansByName.get(injectionPoint.getBeanNameFromMethodNameLowercase());
             }
 
             if (null != bean) {
                 // check if assignable
-                if (paramsTypes[0].isAssignableFrom(bean.getClass())) {
-                    return bean;
+                if (paramClass.isAssignableFrom(LazyBean.beanClassOf(bean))) {
+                    return requester.resolved(injectionPoint, StartupReport.Strategy.METHOD_NAME, start, bean);
                 }
             }
         }
 
-        // dow we have a bean that is assignable from this type
-        beanToInject.set(beansByAssignableClass.get(paramsTypes[0].getName()));
-        if (null != beanToInject.get()) return beanToInject.get();
+        // dow we have a bean that is assignable from this type, generic types are remembered with their type arguments
+        TypeKey typeKey = injectionPoint.getTypeKey();
+        boolean parameterized = typeKey != null && typeKey.isParameterized();
+        beanToInject = parameterized ? beansByAssignableType.get(typeKey) : beansByAssignableClass.get(paramClass.getName());
+        if (null != beanToInject) return requester.resolved(injectionPoint, StartupReport.Strategy.ASSIGNABLE_CACHE, start, beanToInject);
 
         // can we find an exact instance of this class
-        beanToInject.set(beansByClass.get(paramsTypes[0].getName()));
-        if (null != beanToInject.get()) return beanToInject.get();
-
-        // can we find it as an assignable bean i.e. one that where this argument is a superclass or superinterface of the bean
-        Class<?> paramClass = paramsTypes[0];
-        Type paramType = injectMethod.getGenericParameterTypes()[0];
-
-        Collection<Map.Entry<String, Object>> assignableEntries =
-                beansByClass.entrySet()
-                        .stream()
-                        .filter(stringObjectEntry -> beanProvidesImplementation(paramClass, paramType, stringObjectEntry.getValue())
-                        )
-                        .toList();
+        beanToInject = beansByClass.get(paramClass.getName());
+        if (null != beanToInject) return requester.resolved(injectionPoint, StartupReport.Strategy.EXACT_CLASS, start, beanToInject);
+
+        // can we find it as an assignable bean i.e. one that where this argument is a superclass or superinterface of the bean,
+        // the type index holds exactly those beans under their resolved generic supertypes
+        Collection<Object> assignableBeans;
+        if (typeKey != null) {
+            assignableBeans = beansByType.implementationsOf(typeKey);
+        } else {
+            // wildcards or type variables, check the generics of each bean of the raw type
+            Type paramType = injectionPoint.getGenericParameterType();
+            assignableBeans = new ArrayList<>(1);
+            for (Object candidate : beansByType.implementationsOf(paramClass)) {
+                if (providesImplementation(paramClass, paramType, LazyBean.beanClassOf(candidate))) {
+                    assignableBeans.add(candidate);
+                }
+            }
+        }
 
-        if (assignableEntries.size() == 1) {
-            // found a single matching entry, good!
-            Map.Entry<String, Object> assignableEntry = assignableEntries.stream().findFirst().get();
-            beanToInject.set(assignableEntry.getValue());
-            addAssignableBean(paramClass, assignableEntry.getValue());
-            return beanToInject.get();
+        if (assignableBeans.size() == 1) {
+            // found a single matching bean, good!
+            Object assignableBean = assignableBeans.iterator().next();
+            // a parent is left unchanged by the lookups of its children
+            if (requester == this && parameterized) {
+                beansByAssignableType.put(typeKey, assignableBean);
+            } else if (requester == this) {
+                learnAssignableBean(paramClass, assignableBean);
+            }
+            return requester.resolved(injectionPoint, StartupReport.Strategy.TYPE_INDEX, start, assignableBean);
         }
 
-        if (assignableEntries.size() > 1) {
+        if (assignableBeans.size() > 1) {
             // multiple match we don't know which to choose
             String msg = String.format("Found multiple matching beans to inject for Type: %s Method: %s",
-                    paramsTypes[0].getName(), injectMethod.getName());
+                    paramClass.getName(), injectionPoint.getName());
 
             msg = msg +
-                    String.format("/n%s, the following beans are assignable %s, consider using @Named annotation", injectMethod.getName(), assignableEntries);
+                    String.format("/n%s, the following beans are assignable %s, consider using @Named annotation", injectionPoint.getName(), assignableBeans);
 
             throw new InjectError(msg);
         }
 
-        // sorry, can't find it run out of options!
-        String msg = String.format("Could not find bean to inject Type: %s Method: %s", paramsTypes[0].getName(), injectMethod.getName());
-        throw new InjectError(msg);
+        return null;
     }
 
-    private boolean beanProvidesImplementation(Class<?> paramClass, Type paramType, Object bean) {
-        Class<?> beanClass = bean.getClass();
+    private Object resolved(InjectionPoint injectionPoint, StartupReport.Strategy strategy, long start, Object bean) {
+        if (startupReport != null) startupReport.recordInjection(injectionPoint, strategy, System.nanoTime() - start);
+        return bean;
+    }
 
+    static boolean providesImplementation(Class<?> paramClass, Type paramType, Class<?> beanClass) {
         if (paramClass.isAssignableFrom(beanClass)) {
 
             if (!(paramType instanceof ParameterizedType)) {
@@ -434,14 +1407,14 @@ public class FlyDI {
                 return true;
             }
 
-            return providesGenericImplementation(paramClass, (ParameterizedType) paramType, bean, beanClass, new HashMap<>());
+            return providesGenericImplementation(paramClass, (ParameterizedType) paramType, beanClass, new HashMap<>());
         }
         return false;
     }
 
 
-    private boolean providesGenericImplementation(Class paramClass, ParameterizedType genericParamType, Object
-            bean, Class checkClass, Map<TypeVariable, Type> genericActualTypesMap) {
+    private static boolean providesGenericImplementation(Class paramClass, ParameterizedType genericParamType,
+                                                         Class checkClass, Map<TypeVariable, Type> genericActualTypesMap) {
         if (Object.class.equals(checkClass)) return false;
 
         // is it assignable from the superclass
@@ -467,7 +1440,7 @@ public class FlyDI {
                 }
             }
 
-            return providesGenericImplementation(paramClass, genericParamType, bean, checkClass.getSuperclass(), genericActualTypesMap);
+            return providesGenericImplementation(paramClass, genericParamType, checkClass.getSuperclass(), genericActualTypesMap);
 
         } else {
             // must be assignable from one of the interfaces
@@ -500,7 +1473,7 @@ public class FlyDI {
         }
     }
 
-    private boolean genericTypesMatch(Type[] requiredTypes, Type[]
+    private static boolean genericTypesMatch(Type[] requiredTypes, Type[]
             implementationTypes, Map<TypeVariable, Type> genericActualTypesMap) {
         boolean match = false;
 
@@ -522,15 +1495,36 @@ public class FlyDI {
         return match;
     }
 
-    private void addDependency(Object clazz, Object inject) {
+    private void addDependency(DependencyGraph<String> dependencies, Object clazz, Object inject) {
         if (beanScannerConfig.isInScannedPackages(clazz) && beanScannerConfig.isInScannedPackages(inject) ) {
-            dependencyGraph.addDependency(clazz.getClass().getName(), inject.getClass().getName());
+            dependencies.addDependency(clazz.getClass().getName(), inject.getClass().getName());
+        }
+    }
+
+    private void addDependency(DependencyGraph<String> dependencies, String className, Object inject) {
+        if (beanScannerConfig.isInScannedPackages(className) && beanScannerConfig.isInScannedPackages(inject)) {
+            dependencies.addDependency(className, inject.getClass().getName());
+        }
+    }
+
+    // the pooled class is a prototype, so the edge is added by name
+    private void addPoolDependency(DependencyGraph<String> dependencies, String className, Class<?> pooledClass) {
+        if (beanScannerConfig.isInScannedPackages(className) && beanScannerConfig.isInScannedPackages(pooledClass.getName())) {
+            dependencies.addDependency(className, pooledClass.getName());
+        }
+    }
+
+    private void insertDependencies(DependencyGraph<String> dependencies) {
+        try {
+            dependencyGraph.insertAll(dependencies);
+        } catch (DependencyGraph.CircularDependencyException ex) {
+            throw new InjectError(ex.getMessage(), ex);
         }
     }
 
-    private void addDependency(Object clazz) {
+    private void addDependency(DependencyGraph<String> dependencies, Object clazz) {
         if (beanScannerConfig.isInScannedPackages(clazz)) {
-            dependencyGraph.add(clazz.getClass().getName());
+            dependencies.add(clazz.getClass().getName());
         }
     }
 }
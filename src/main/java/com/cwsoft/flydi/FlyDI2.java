@@ -3,595 +3,407 @@ package com.cwsoft.flydi;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.reflections.Reflections;
-import org.reflections.scanners.*;
-import org.reflections.util.ClasspathHelper;
-import org.reflections.util.ConfigurationBuilder;
-import org.reflections.util.FilterBuilder;
 
 import javax.annotation.ManagedBean;
-import javax.annotation.PostConstruct;
 import javax.inject.Inject;
-import javax.inject.Named;
 import java.lang.reflect.*;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
-@SuppressWarnings("unused")
+/**
+ * Constructor injection container. Unlike {@link FlyDI}, which creates every bean, then injects them, then runs the post
+ * constructors, FlyDI2 works from the bean metadata alone until everything is resolved:
+ * <ol>
+ *     <li>{@link #scanForBeans()} records a {@link BeanDefinitionImpl} for each {@code @ManagedBean} class, with the
+ *     constructor to create it with</li>
+ *     <li>{@link #createAndInjectBeans()} resolves the constructor parameters, {@code @Inject} setters and
+ *     {@code @DependsOn} of every definition into other definitions, building the dependency graph, then makes a
+ *     single pass over the definitions in dependency order creating, injecting and post-constructing each bean</li>
+ * </ol>
+ * Because the beans a bean depends on always exist before it is created, they can be passed to its constructor and
+ * kept in final fields. Any circular dependency, including between setters, is reported as an error, unless one of the
+ * beans takes a {@code Provider} of the other: a provider does not order the beans, it returns the bean once created.
+ */
 @Slf4j
 public class FlyDI2 {
     private final BeanScannerConfig beanScannerConfig;
 
     @Getter
     private Reflections reflections;
-    private final Map<String, BeanDefinition> beansByName = new ConcurrentHashMap<>();
-    private final Map<String, BeanDefinition> beansByClass = new ConcurrentHashMap<>();
+    private final Map<String, BeanDefinitionImpl> definitionsByName = new ConcurrentHashMap<>();
+    private final Map<String, BeanDefinitionImpl> definitionsByClass = new ConcurrentHashMap<>();
+    private final TypeIndex<BeanDefinitionImpl> definitionsByType = new TypeIndex<>();
+    private final Map<String, BeanDefinitionImpl> definitionsByAssignableClass = new ConcurrentHashMap<>();
+    private final Map<TypeKey, BeanDefinitionImpl> definitionsByAssignableType = new ConcurrentHashMap<>();
     private final DependencyGraph<String> dependencyGraph = new DependencyGraph<>();
 
-    private @Getter
-    static FlyDI2 instanceOf;
-
     public FlyDI2(BeanScannerConfig beanScannerConfig) {
         this.beanScannerConfig = beanScannerConfig;
-        instanceOf = this;
     }
 
     public void scanForBeans() {
-        buildReflections(beanScannerConfig);
         addBean(this);
-        findAndRecordConstructors(beanScannerConfig.getSystem());
-    }
-
-    public void injectBeans() {
-
-        log.trace("Perform required injections of each @ManagedBean ");
-
-        beansByClass.values().forEach(bean -> {
-            try {
-                injectBean(bean);
-                addDependency(bean);
-            } catch (InjectError | BeanProcessingError ex) {
-                log.error("Unrecoverable error shutting down", ex);
-                System.exit(1);
-            }
-        });
-    }
 
-    public void injectBean(Object bean) throws InjectError, BeanProcessingError {
-        checkForDependsOnDependencies(bean);
+        var beanIndex = beanScannerConfig.isUseBeanIndex() ? BeanIndex.load(BeanIndex.defaultClassLoader()) : Optional.<BeanIndex>empty();
 
-        for (final Method method : getAllMethods(bean.getClass())) {
-            if (method.isAnnotationPresent(Inject.class)) {
+        try {
+            if (beanIndex.isPresent()) {
+                log.trace("Using bean index {}, skipping classpath scan", BeanIndex.RESOURCE_NAME);
+                ClassLoader classLoader = BeanIndex.defaultClassLoader();
+
+                for (BeanIndex.Entry entry : beanIndex.get().entriesFor(beanScannerConfig)) {
+                    if (entry.isForSystem(beanScannerConfig.getSystem())) {
+                        addDefinition(Class.forName(entry.getClassName(), false, classLoader));
+                    } else {
+                        log.trace("Skipping bean Class: {} For System {} ", entry.getClassName(), entry.getSystem().toUpperCase());
+                    }
+                }
+            } else {
+                reflections = FlyDI.buildReflections(beanScannerConfig, FlyDI.urlsToScan(beanScannerConfig));
+                addBean("Reflections", reflections);
 
-                Object beanToInject = null;
+                for (final Class<?> clazz : reflections.getTypesAnnotatedWith(ManagedBean.class)) {
+                    String beanValue = clazz.getAnnotation(ManagedBean.class).value();
 
-                try {
-                    method.setAccessible(true);
-                    beanToInject = findBeanToInject(method);
-                    method.invoke(bean, beanToInject);
-                    addDependency(bean, beanToInject);
-                } catch (Exception ex) {
-                    String beanToInjectName = beanToInject != null ? beanToInject.toString() : "";
-                    String msg = String.format("Failed to inject %s into method %s of class %s", beanToInject, method.getName(), bean.getClass());
-                    throw new InjectError(msg, ex);
+                    if (beanValue.isEmpty() || beanValue.equalsIgnoreCase(beanScannerConfig.getSystem())) {
+                        addDefinition(clazz);
+                    } else {
+                        log.trace("Skipping bean with name: {} Class: {} For System {} ", clazz.getSimpleName(), clazz.getName(), beanValue.toUpperCase());
+                    }
                 }
             }
+        } catch (Exception ex) {
+            log.error("Failed while recording constructors and dependencies", ex);
+            log.error("Unrecoverable error shutting down");
+            System.exit(1);
         }
     }
 
-    public Collection<String> getBeanNames() {
-        Collection<String> beanNames = new HashSet<>(beansByName.keySet());
-        beanNames.addAll(beansByClass.keySet());
-        return beanNames;
-    }
-
-    public Collection<Object> getAllBeans() {
-        Collection<Object> beans = new HashSet<>(beansByName.values());
-        beans.addAll(beansByClass.values());
-        return beans;
-    }
-
-    public void runPostConstructors() {
+    public void createAndInjectBeans() {
         try {
-            log.trace("For each each @ManagedBean run the @PostConstruct methods using dependency order");
-
-            Collection<String> classNamesInDependencyOrder = dependencyGraph.topologicalSort();
-
-            classNamesInDependencyOrder.forEach(className -> {
-                Object bean = beansByClass.get(className);
-                try {
-                    invokePostConstructIfPresent(bean);
-                } catch (Exception ex) {
-                    log.error("Error running post constructor", ex);
-                    System.exit(1);
-                }
-            });
-
-            log.trace("Finished running post constructors {} classes checked.", classNamesInDependencyOrder.size());
-
+            for (BeanDefinitionImpl definition : resolveDependencies()) {
+                createAndInjectBean(definition);
+            }
+        } catch (InjectError | BeanProcessingError | PostConstructError ex) {
+            log.error("Unrecoverable error shutting down", ex);
+            System.exit(1);
         } catch (DependencyGraph.CircularDependencyException e) {
             log.error("Circular Dependency detected. ", e);
             System.exit(1);
         }
     }
 
-    public void invokePostConstructIfPresent(Object bean) throws PostConstructError, BeanProcessingError {
-        for (final Method method : getAllMethods(bean.getClass())) {
-            if (method.isAnnotationPresent(PostConstruct.class)) {
-                try {
-                    log.trace("running post constructor on class {}", bean.getClass().getName());
-                    method.setAccessible(true);
-                    method.invoke(bean);
-                } catch (InvocationTargetException ex) {
-                    throw new PostConstructError(String.format("Failed invoking @PostConstruct on Class %s Method %s", bean.getClass().getName(), method.getName()), ex.getTargetException());
-                } catch (Exception ex) {
-                    log.error("Failed to invoke PostConstruct on Class {} Method {}", bean.getClass().getName(), method.getName(), ex);
-                    throw new PostConstructError(String.format("Failed invoking @PostConstruct on Class %s Method %s", bean.getClass().getName(), method.getName()), ex);
+    /**
+     * Resolves the dependencies of every bean still to be created and records them in the definitions and the
+     * dependency graph.
+     *
+     * @return the definitions still to be created, in dependency order
+     */
+    private BeanDefinitionImpl[] resolveDependencies() throws InjectError, DependencyGraph.CircularDependencyException {
+        for (BeanDefinitionImpl definition : definitionsByClass.values()) {
+            if (!definition.isPending()) continue;
+
+            String className = definition.getBeanClass().getName();
+            dependencyGraph.add(className);
+
+            for (String dependency : definition.getMetadata().getDependsOn()) {
+                BeanDefinitionImpl dependsOn = definitionsByName.get(dependency);
+
+                if (dependsOn == null) {
+                    String msg = String.format("Could not find named bean in class @DependsOn annotation. Dependency: %s Class: %s", dependency, definition.getBeanClass());
+                    throw new InjectError(msg);
                 }
-            }
-        }
-    }
-
-    public Object getBean(String beanName) {
 
-        Object bean = beansByName.get(beanName);
-        if (bean != null) return bean;
-
-        bean = beansByAssignableName.get(beanName);
-        if (bean != null) return bean;
-
-        bean = beansByClass.get(beanName);
-        if (bean == null) log.error("Bean {} not found. {} Beans available.", beanName, beansByName.size());
-        return bean;
-    }
+                addDependency(className, dependsOn);
+            }
 
-    @SuppressWarnings("unchecked")
-    public <T> T getBean(Class<T> requiredType) {
-        T bean = (T) beansByClass.get(requiredType.getName());
+            definition.setConstructorDependencies(resolve(className, definition.getConstructorInjectionPoints()));
+            definition.setSetterDependencies(resolve(className, definition.getMetadata().getInjectionPoints()));
+        }
 
-        if (null == bean) {
-            bean = (T) beansByAssignableClass.get(requiredType.getName());
+        List<String> classNamesInDependencyOrder = dependencyGraph.topologicalSort();
+        BeanDefinitionImpl[] pending = new BeanDefinitionImpl[classNamesInDependencyOrder.size()];
+        int count = 0;
 
-            if (null == bean) {
-                log.error("Bean of type {} not found. {} Beans available.", requiredType, beansByName.size());
+        for (String className : classNamesInDependencyOrder) {
+            BeanDefinitionImpl definition = definitionsByClass.get(className);
+            if (definition != null && definition.isPending()) {
+                pending[count++] = definition;
             }
         }
 
-        return bean;
+        return Arrays.copyOf(pending, count);
     }
 
-    @SuppressWarnings("unchecked")
-    public <T> T getPrototypeBean(Class<T> requiredType) {
-        var bean = newInstance(requiredType);
-        injectBean(bean);
-        invokePostConstructIfPresent(bean);
-        return bean;
-    }
+    private BeanDefinitionImpl[] resolve(String className, InjectionPoint[] injectionPoints) throws InjectError {
+        BeanDefinitionImpl[] dependencies = new BeanDefinitionImpl[injectionPoints.length];
 
-    @SuppressWarnings("WeakerAccess")
-    public void addBean(Object beanToAdd) {
-        log.trace("Adding bean with name: {} Class: {}", beanToAdd.getClass().getSimpleName(), beanToAdd.getClass().getName());
-        beansByName.put(beanToAdd.getClass().getSimpleName(), beanToAdd);
-        beansByClass.put(beanToAdd.getClass().getName(), beanToAdd);
-    }
+        for (int i = 0; i < injectionPoints.length; i++) {
+            if (injectionPoints[i].isPool()) {
+                // pooled beans are prototypes, which only FlyDI creates
+                throw new InjectError(String.format("Cannot inject a BeanPool into %s, FlyDI2 has no prototype beans", injectionPoints[i]));
+            }
+            dependencies[i] = findDefinitionToInject(injectionPoints[i]);
+            if (!injectionPoints[i].isProvider()) addDependency(className, dependencies[i]);
+        }
 
-    @SuppressWarnings("WeakerAccess")
-    public void addBean(String name, Object beanToAdd) {
-        log.trace("Adding bean with name: {} Class: {}", name, beanToAdd.getClass().getName());
-        beansByName.put(name, beanToAdd);
-        beansByClass.put(beanToAdd.getClass().getName(), beanToAdd);
+        return dependencies;
     }
 
-    public void addAssignableBean(Class superClazz, Object assignableFromBean) {
-        beansByAssignableClass.put(superClazz.getName(), assignableFromBean);
-        beansByAssignableName.put(superClazz.getSimpleName(), assignableFromBean);
+    private void addDependency(String className, BeanDefinitionImpl dependency) {
+        // beans added ready made need nothing creating first
+        if (dependency.isPending()) {
+            dependencyGraph.addDependency(className, dependency.getBeanClass().getName());
+        }
     }
 
-    public Optional<Constructor> findDefaultConstructor(Class<?> forClass) {
-
-        Constructor[] allConstructors = forClass.getDeclaredConstructors();
+    private void createAndInjectBean(BeanDefinitionImpl definition) throws BeanProcessingError, InjectError, PostConstructError {
+        Class<?> beanClass = definition.getBeanClass();
+        log.trace("Creating bean with name: {} Class: {}", definition.getName(), beanClass.getName());
 
-        return Stream.of(allConstructors)
-                .filter(constructor -> constructor.getParameterTypes().length == 0)
-                .findFirst();
-    }
+        BeanDefinition[] constructorDependencies = definition.getConstructorDependencies();
+        InjectionPoint[] constructorInjectionPoints = definition.getConstructorInjectionPoints();
+        Object[] arguments = new Object[constructorDependencies.length];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = beanToInject(constructorInjectionPoints[i], constructorDependencies[i]);
+        }
 
-    public static List<Method> getAllMethods(Class<?> forClass) throws BeanProcessingError {
+        // each bean is created once, so the invokers are plain method handles rather than spun lambdas
+        Object bean;
         try {
-            List<Method> allMethods = new ArrayList<>();
-            Class<?> clazz = forClass;
-
-            // Iterate through the class hierarchy
-            while (clazz != null) {
-                allMethods.addAll(Arrays.asList(clazz.getDeclaredMethods()));
-                // Move to the superclass
-                clazz = clazz.getSuperclass();
-            }
-
-            return allMethods;
-        } catch (Exception | NoClassDefFoundError ex) {
-            String msg = String.format("Failed to obtain methods of class %s", forClass);
-            throw new BeanProcessingError(msg, ex);
+            bean = BeanInvokers.constructorHandle(definition.getConstructor()).apply(arguments);
+        } catch (Exception ex) {
+            throw new BeanProcessingError(String.format("@ManagedBean failed to create new instance of %s", beanClass.getName()), ex);
         }
-    }
-
-    private void buildReflections(BeanScannerConfig beanScannerConfig) {
 
-        final ConfigurationBuilder configurationBuilder = new ConfigurationBuilder();
-
-        StringBuilder includeString = new StringBuilder();
-        final FilterBuilder filterBuilder = new FilterBuilder();
-
-        for (String pkg : beanScannerConfig.getPackagesToInclude()) {
-            configurationBuilder.addUrls(ClasspathHelper.forPackage(pkg));
-            filterBuilder.include(pkg + "\\..*");
+        InjectionPoint[] injectionPoints = definition.getMetadata().getInjectionPoints();
+        BeanDefinition[] setterDependencies = definition.getSetterDependencies();
+        for (int i = 0; i < injectionPoints.length; i++) {
+            Object beanToInject = beanToInject(injectionPoints[i], setterDependencies[i]);
+            try {
+                BeanInvokers.setterHandle(injectionPoints[i].getMethod()).accept(bean, beanToInject);
+            } catch (Exception ex) {
+                String msg = String.format("Failed to inject %s into method %s of class %s", beanToInject, injectionPoints[i].getName(), beanClass);
+                throw new InjectError(msg, ex);
+            }
         }
 
-        for (String pkgToExclude : beanScannerConfig.getPackagesToExclude()) {
-            filterBuilder.exclude(pkgToExclude + "\\..*");
+        for (Method method : definition.getMetadata().getPostConstructMethods()) {
+            try {
+                log.trace("running post constructor on class {}", beanClass.getName());
+                BeanInvokers.methodHandle(method).accept(bean);
+            } catch (Exception ex) {
+                throw new PostConstructError(String.format("Failed invoking @PostConstruct on Class %s Method %s", beanClass.getName(), method.getName()), ex);
+            }
         }
 
-        configurationBuilder.filterInputsBy(filterBuilder)
-                .setScanners(new SubTypesScanner(),
-                        new TypeAnnotationsScanner(),
-                        new FieldAnnotationsScanner(),
-                        new MethodAnnotationsScanner(),
-                        new MethodParameterScanner(),
-                        new MethodParameterNamesScanner(),
-                        new MemberUsageScanner());
-
-        reflections = new Reflections(configurationBuilder);
-        addBean("Reflections", reflections);
+        definition.setBean(bean);
     }
 
-    private void findAndRecordConstructors(String system) {
-        try {
-            for (final Class<?> clazz : reflections.getTypesAnnotatedWith(ManagedBean.class)) {
-                String beanValue = clazz.getAnnotation(ManagedBean.class).value();
-
-                if (beanValue.isEmpty() || beanValue.equalsIgnoreCase(system)) {
-                    var constructor = getConstructorToUse(clazz);
-                    if (constructor != null) {
-                        var beanDefinition =  new BeanDefinitionImpl();
-                        beanDefinition.setBeanClass(clazz);
-                        beanDefinition.setConstructor(constructor);
-                        checkDependencies(beanDefinition)
+    private static Object beanToInject(InjectionPoint injectionPoint, BeanDefinition dependency) {
+        return injectionPoint.isProvider() ? Providers.of(dependency) : dependency.getBean();
+    }
 
+    public Collection<String> getBeanNames() {
+        Collection<String> beanNames = new HashSet<>(definitionsByName.keySet());
+        beanNames.addAll(definitionsByClass.keySet());
+        return beanNames;
+    }
 
+    public Collection<Object> getAllBeans() {
+        Collection<Object> beans = new HashSet<>();
+        definitionsByName.values().forEach(definition -> addIfCreated(beans, definition));
+        definitionsByClass.values().forEach(definition -> addIfCreated(beans, definition));
+        return beans;
+    }
 
-                    }
+    private static void addIfCreated(Collection<Object> beans, BeanDefinition definition) {
+        if (definition.getBean() != null) beans.add(definition.getBean());
+    }
 
+    public Object getBean(String beanName) {
+        BeanDefinitionImpl definition = definitionsByName.get(beanName);
 
+        if (definition == null) definition = definitionsByClass.get(beanName);
+        if (definition == null || definition.getBean() == null) {
+            log.error("Bean {} not found. {} Beans available.", beanName, definitionsByName.size());
+            return null;
+        }
 
+        return definition.getBean();
+    }
 
+    @SuppressWarnings("unchecked")
+    public <T> T getBean(Class<T> requiredType) {
+        BeanDefinitionImpl definition = definitionsByClass.get(requiredType.getName());
 
-                    // Check for @Inject setters
-                    checkInjectSetters(clazz);
+        if (null == definition) {
+            definition = definitionsByAssignableClass.get(requiredType.getName());
 
-                    // Update dependency graph
-                    updateDependencyGraph(clazz);
-                } else {
-                    log.trace("Skipping bean: {} (Class: {}) due to mismatch with system: {}",
-                            clazz.getSimpleName(), clazz.getName(), system);
-                }
+            if (null == definition) {
+                definition = definitionsByType.uniqueImplementationOf(requiredType);
             }
-        } catch (Exception ex) {
-            log.error("Failed while recording constructors and dependencies", ex);
-            log.error("Unrecoverable error shutting down");
-            System.exit(1);
-        }
-    }
-
-    private Constructor<?> getConstructorToUse(Class<?> clazz) {
-        Constructor<?>[] constructors = clazz.getDeclaredConstructors();
-
-        if (constructors.length ==0 ) {
-            log.error("@ManagedBean {} has no constructor.", clazz.getName());
-            return null;
         }
 
-        if (constructors.length > 1) {
-            log.error("@ManagedBean {} has multiple constructors. Only one constructor is allowed.", clazz.getName());
+        if (null == definition || definition.getBean() == null) {
+            log.error("Bean of type {} not found. {} Beans available.", requiredType, definitionsByName.size());
             return null;
         }
 
-        return constructors[0];
+        return (T) definition.getBean();
     }
 
-
-
-    private void checkInjectSetters(Class<?> clazz) {
-        Method[] methods = clazz.getDeclaredMethods();
-        for (Method method : methods) {
-            if (method.isAnnotationPresent(Inject.class) && method.getParameterCount() == 0) {
-                log.trace("Found @Inject setter method: {} in class {}", method.getName(), clazz.getName());
-                // Record setter methods for later injection
-                injectSetters.put(clazz.getName(), method);
-            }
-        }
+    @SuppressWarnings("WeakerAccess")
+    public void addBean(Object beanToAdd) {
+        addBean(beanToAdd.getClass().getSimpleName(), beanToAdd);
     }
 
-    private void updateDependencyGraph(Class<?> clazz) {
-        // Update dependency graph based on recorded constructors and setters
-        // This can involve mapping dependencies to constructor arguments or setters
+    @SuppressWarnings("WeakerAccess")
+    public void addBean(String name, Object beanToAdd) {
+        log.trace("Adding bean with name: {} Class: {}", name, beanToAdd.getClass().getName());
+        register(BeanDefinitionImpl.builder().name(name).beanClass(beanToAdd.getClass()).bean(beanToAdd).build());
     }
 
+    private void addDefinition(Class<?> clazz) throws BeanProcessingError {
+        log.trace("Recording bean definition with name: {} Class: {}", clazz.getSimpleName(), clazz.getName());
+        register(BeanDefinitionImpl.builder().name(clazz.getSimpleName()).beanClass(clazz).constructor(getConstructorToUse(clazz)).build());
+    }
 
-    private void createBean(final Class<?> clazz) throws BeanProcessingError {
-        log.trace("Creating bean with name: {} Class: {}", clazz.getSimpleName(), clazz.getName());
+    private void register(BeanDefinitionImpl definition) {
+        definitionsByName.put(definition.getName(), definition);
+        definitionsByClass.put(definition.getBeanClass().getName(), definition);
+        definitionsByType.register(definition.getBeanClass().getName(), definition.getBeanClass(), definition);
+    }
 
-        Optional<Constructor<?>> defaultConstructorOptional = findDefaultConstructor(clazz);
-        List<Constructor<?>> parameterizedConstructors = findParameterizedConstructors(clazz);
+    /**
+     * @return the {@code @Inject} constructor, the only constructor, or the no argument constructor, in that order
+     */
+    private static Constructor<?> getConstructorToUse(Class<?> clazz) throws BeanProcessingError {
+        Constructor<?>[] constructors = clazz.getDeclaredConstructors();
+        Constructor<?> injectConstructor = null;
 
-        try {
-            Object newBean;
-
-            if (parameterizedConstructors.isEmpty() && defaultConstructorOptional.isPresent()) {
-                var defaultConstructor = defaultConstructorOptional.get();
-                defaultConstructor.setAccessible(true);
-                newBean = defaultConstructor.newInstance();
-            } else if (!parameterizedConstructors.isEmpty()) {
-                // Use the first parameterized constructor for simplicity
-                Constructor<?> constructor = parameterizedConstructors.get(0);
-                constructor.setAccessible(true);
-                Object[] parameters = resolveConstructorParameters(constructor);
-                newBean = constructor.newInstance(parameters);
-            } else {
-                throw new BeanProcessingError("@ManagedBean failed to create new instance of " + name + ", no suitable constructor found");
+        for (Constructor<?> constructor : constructors) {
+            if (constructor.isAnnotationPresent(Inject.class)) {
+                if (injectConstructor != null) {
+                    throw new BeanProcessingError(String.format("@ManagedBean %s has multiple @Inject constructors. Only one is allowed.", clazz.getName()));
+                }
+                injectConstructor = constructor;
             }
-
-            beansByName.put(name, newBean);
-            beansByClass.put(clazz.getName(), newBean);
-        } catch (Exception ex) {
-            throw new BeanProcessingError("@ManagedBean failed to create new instance of " + name, ex);
         }
-    }
-
-    private List<Constructor<?>> findParameterizedConstructors(Class<?> clazz) {
-        return Arrays.asList(clazz.getDeclaredConstructors()).stream()
-                .filter(constructor -> constructor.getParameterCount() > 0)
-                .collect(Collectors.toList());
-    }
 
-    private <T> T newInstance(Class<T> requiredType) {
-        try {
-            Optional<Constructor> defaultConstructorOptional = findDefaultConstructor(requiredType);
-            Constructor defaultConstructor = defaultConstructorOptional.get();
-            defaultConstructor.setAccessible(true);
-            return (T) defaultConstructor.newInstance();
-        } catch (Exception ex) {
-            String msg = String.format("Failed to create new instance of %s , check it has a default constructor", requiredType);
-            throw new BeanProcessingError(msg, ex);
+        if (injectConstructor == null && constructors.length == 1) {
+            injectConstructor = constructors[0];
         }
-    }
-
-    private void checkForDependsOnDependencies(Object bean) {
-        if (bean.getClass().isAnnotationPresent(DependsOn.class)) {
-            DependsOn dependsOnAnnotation = bean.getClass().getAnnotation(DependsOn.class);
-            Arrays.stream(dependsOnAnnotation.value())
-                    .forEach(dependency -> {
-                        Object dependsOnBean = beansByName.get(dependency);
-
-                        if (dependsOnBean == null) {
-                            String msg = String.format("Could not find named bean in class @DependsOn annotation. Dependency: %s Class: %s", dependency, bean.getClass());
-                            throw new InjectError(msg);
-                        }
 
-                        addDependency(bean, dependsOnBean);
-                    });
+        if (injectConstructor == null) {
+            injectConstructor = BeanMetadata.of(clazz).getDefaultConstructor();
         }
-    }
 
-    private final Map<String, Object> beansByAssignableClass = new ConcurrentHashMap<>();
-    private final Map<String, Object> beansByAssignableName = new ConcurrentHashMap<>();
+        if (injectConstructor == null) {
+            throw new BeanProcessingError(String.format("@ManagedBean %s has multiple constructors, annotate the one to use with @Inject", clazz.getName()));
+        }
 
-    private Object findBeanToInject(Method injectMethod) throws InjectError {
+        injectConstructor.trySetAccessible();
+        return injectConstructor;
+    }
 
-        Class<?>[] paramsTypes = injectMethod.getParameterTypes();
+    private BeanDefinitionImpl findDefinitionToInject(InjectionPoint injectionPoint) throws InjectError {
 
-        if (paramsTypes.length == 0) {
-            String msg = String.format("Failed to inject into method %s - method has no parameters", injectMethod.getName());
+        if (injectionPoint.getParameterCount() == 0) {
+            String msg = String.format("Failed to inject into method %s - method has no parameters", injectionPoint.getName());
             throw new InjectError(msg);
         }
 
-        if (paramsTypes.length > 1) {
-            String msg = String.format("Failed to inject into method %s - method has more than one parameter", injectMethod.getName());
+        if (injectionPoint.getParameterCount() > 1) {
+            String msg = String.format("Failed to inject into method %s - method has more than one parameter", injectionPoint.getName());
             throw new InjectError(msg);
         }
 
-        AtomicReference<Object> beanToInject = new AtomicReference<>(null);
+        Class<?> paramClass = injectionPoint.getParameterType();
+
         // check for @Named
-        Named namedBean = injectMethod.getAnnotation(Named.class);
-        if (null != namedBean) {
-            beanToInject.set(beansByName.get(namedBean.value()));
+        String named = injectionPoint.getNamed();
+        if (null != named) {
+            BeanDefinitionImpl namedDefinition = definitionsByName.get(named);
 
-            if (beanToInject.get() == null) {
-                String msg = String.format("Could not find named bean to inject. Named Bean: %s Method: %s", namedBean.value(), injectMethod.getName());
+            if (namedDefinition == null) {
+                String msg = String.format("Could not find named bean to inject. Named Bean: %s Method: %s", named, injectionPoint.getName());
                 throw new InjectError(msg);
             }
 
-            return beanToInject.get();
+            return namedDefinition;
         }
 
         // not named bean...
         // can we find it by its parameter name
-        Parameter[] parameters = injectMethod.getParameters();
-        beanToInject.set(beansByName.get(parameters[0].getName()));
+        BeanDefinitionImpl definition = definitionsByName.get(injectionPoint.getParameterName());
 
-        if (null != beanToInject.get() && paramsTypes[0].isAssignableFrom(beanToInject.get().getClass())) {
-            return beanToInject.get();
+        if (null != definition && definition.providesImplementationFor(paramClass)) {
+            return definition;
         }
 
         // can we find it by its method name
-        var beanNameFromMethodName = injectMethod.getName().substring(3);
-        if (!beanNameFromMethodName.isEmpty()) {
-            var bean = beansByName.get(beanNameFromMethodName);
-            if (bean == null) {
+        if (null != injectionPoint.getBeanNameFromMethodName()) {
+            definition = definitionsByName.get(injectionPoint.getBeanNameFromMethodName());
+            if (definition == null) {
                 // try with first char lowercase
-                String firstCharLowercase = beanNameFromMethodName.substring(0, 1).toLowerCase() + beanNameFromMethodName.substring(1);
-                bean = beansByName.get(firstCharLowercase);
+                definition = definitionsByName.get(injectionPoint.getBeanNameFromMethodNameLowercase());
             }
 
-            if (null != bean) {
-                // check if assignable
-                if (paramsTypes[0].isAssignableFrom(bean.getClass())) {
-                    return bean;
-                }
+            if (null != definition && definition.providesImplementationFor(paramClass)) {
+                return definition;
             }
         }
 
-        // dow we have a bean that is assignable from this type
-        beanToInject.set(beansByAssignableClass.get(paramsTypes[0].getName()));
-        if (null != beanToInject.get()) return beanToInject.get();
+        // dow we have a bean that is assignable from this type, generic types are remembered with their type arguments
+        TypeKey typeKey = injectionPoint.getTypeKey();
+        boolean parameterized = typeKey != null && typeKey.isParameterized();
+        definition = parameterized ? definitionsByAssignableType.get(typeKey) : definitionsByAssignableClass.get(paramClass.getName());
+        if (null != definition) return definition;
 
         // can we find an exact instance of this class
-        beanToInject.set(beansByClass.get(paramsTypes[0].getName()));
-        if (null != beanToInject.get()) return beanToInject.get();
+        definition = definitionsByClass.get(paramClass.getName());
+        if (null != definition) return definition;
 
         // can we find it as an assignable bean i.e. one that where this argument is a superclass or superinterface of the bean
-        Class<?> paramClass = paramsTypes[0];
-        Type paramType = injectMethod.getGenericParameterTypes()[0];
-
-        Collection<Map.Entry<String, Object>> assignableEntries =
-                beansByClass.entrySet()
-                        .stream()
-                        .filter(stringObjectEntry -> beanProvidesImplementation(paramClass, paramType, stringObjectEntry.getValue())
-                        )
-                        .toList();
-
-        if (assignableEntries.size() == 1) {
-            // found a single matching entry, good!
-            Map.Entry<String, Object> assignableEntry = assignableEntries.stream().findFirst().get();
-            beanToInject.set(assignableEntry.getValue());
-            addAssignableBean(paramClass, assignableEntry.getValue());
-            return beanToInject.get();
+        Collection<BeanDefinitionImpl> assignableDefinitions;
+        if (typeKey != null) {
+            assignableDefinitions = definitionsByType.implementationsOf(typeKey);
+        } else {
+            // wildcards or type variables, check the generics of each bean of the raw type
+            Type paramType = injectionPoint.getGenericParameterType();
+            assignableDefinitions = new ArrayList<>(1);
+            for (BeanDefinitionImpl candidate : definitionsByType.implementationsOf(paramClass)) {
+                if (FlyDI.providesImplementation(paramClass, paramType, candidate.getBeanClass())) {
+                    assignableDefinitions.add(candidate);
+                }
+            }
         }
 
-        if (assignableEntries.size() > 1) {
+        if (assignableDefinitions.size() == 1) {
+            // found a single matching bean, good!
+            BeanDefinitionImpl assignableDefinition = assignableDefinitions.iterator().next();
+            if (parameterized) {
+                definitionsByAssignableType.put(typeKey, assignableDefinition);
+            } else {
+                definitionsByAssignableClass.put(paramClass.getName(), assignableDefinition);
+            }
+            return assignableDefinition;
+        }
+
+        if (assignableDefinitions.size() > 1) {
             // multiple match we don't know which to choose
             String msg = String.format("Found multiple matching beans to inject for Type: %s Method: %s",
-                    paramsTypes[0].getName(), injectMethod.getName());
+                    paramClass.getName(), injectionPoint.getName());
 
             msg = msg +
-                    String.format("/n%s, the following beans are assignable %s, consider using @Named annotation", injectMethod.getName(), assignableEntries);
+                    String.format("/n%s, the following beans are assignable %s, consider using @Named annotation", injectionPoint.getName(), assignableDefinitions);
 
             throw new InjectError(msg);
         }
 
         // sorry, can't find it run out of options!
-        String msg = String.format("Could not find bean to inject Type: %s Method: %s", paramsTypes[0].getName(), injectMethod.getName());
+        String msg = String.format("Could not find bean to inject Type: %s Method: %s", paramClass.getName(), injectionPoint.getName());
         throw new InjectError(msg);
     }
-
-    private boolean beanProvidesImplementation(Class<?> paramClass, Type paramType, Object bean) {
-        Class<?> beanClass = bean.getClass();
-
-        if (paramClass.isAssignableFrom(beanClass)) {
-
-            if (!(paramType instanceof ParameterizedType)) {
-                // we are not dealing with generics so this is good enough
-                return true;
-            }
-
-            return providesGenericImplementation(paramClass, (ParameterizedType) paramType, bean, beanClass, new HashMap<>());
-        }
-        return false;
-    }
-
-
-    private boolean providesGenericImplementation(Class paramClass, ParameterizedType genericParamType, Object
-            bean, Class checkClass, Map<TypeVariable, Type> genericActualTypesMap) {
-        if (Object.class.equals(checkClass)) return false;
-
-        // is it assignable from the superclass
-        if (paramClass.isAssignableFrom(checkClass.getSuperclass())) {
-
-            if (checkClass.getGenericSuperclass().equals(paramClass)) {
-                return true;
-            }
-
-            if (checkClass.getGenericSuperclass() instanceof ParameterizedType) {
-                // are the generic params the same?
-                ParameterizedType genericSuperType = (ParameterizedType) checkClass.getGenericSuperclass();
-
-                if (genericSuperType.equals(genericParamType)) {
-                    return true;
-                }
-
-                Type[] superClassActualArguments = genericSuperType.getActualTypeArguments();
-                TypeVariable[] superClassTypeParameters = checkClass.getSuperclass().getTypeParameters();
-
-                for (int i = 0; i < superClassTypeParameters.length; i++) {
-                    genericActualTypesMap.put(superClassTypeParameters[i], superClassActualArguments[i]);
-                }
-            }
-
-            return providesGenericImplementation(paramClass, genericParamType, bean, checkClass.getSuperclass(), genericActualTypesMap);
-
-        } else {
-            // must be assignable from one of the interfaces
-            Class[] intfs = checkClass.getInterfaces();
-            Type[] genintfs = checkClass.getGenericInterfaces();
-
-            for (int i = 0; i < intfs.length; i++) {
-                Class intf = intfs[i];
-
-                if (paramClass.isAssignableFrom(intf)) {
-
-                    // parameter is assignable from this interface
-                    Type genintf = genintfs[i];
-                    if (genintf.equals(genericParamType)) {
-                        return true;
-                    }
-
-                    // the following if statement is if we are dealing with generics
-                    if (genintf instanceof ParameterizedType) {
-
-                        // are the generic params the same?
-                        ParameterizedType genintfType = (ParameterizedType) genintf;
-                        if (genericTypesMatch(genericParamType.getActualTypeArguments(), genintfType.getActualTypeArguments(), genericActualTypesMap)) {
-                            return true;
-                        }
-                    }
-                }
-            }
-            return false;
-        }
-    }
-
-    private boolean genericTypesMatch(Type[] requiredTypes, Type[]
-            implementationTypes, Map<TypeVariable, Type> genericActualTypesMap) {
-        boolean match = false;
-
-        if (requiredTypes.length == implementationTypes.length) {
-            match = true;
-
-            for (int i = 0; i < requiredTypes.length; i++) {
-                Type requiredType = requiredTypes[i];
-                Type implementationType = implementationTypes[i];
-                Type implementationActualType = genericActualTypesMap.get(implementationType);
-                if (implementationActualType != null) implementationType = implementationActualType;
-                if (!implementationType.equals(requiredType)) {
-                    match = false;
-                    break;
-                }
-            }
-        }
-
-        return match;
-    }
-
-    private void addDependency(Object clazz, Object inject) {
-        if (beanScannerConfig.isInScannedPackages(clazz) && beanScannerConfig.isInScannedPackages(inject)) {
-            dependencyGraph.addDependency(clazz.getClass().getName(), inject.getClass().getName());
-        }
-    }
-
-    private void addDependency(Object clazz) {
-        if (beanScannerConfig.isInScannedPackages(clazz)) {
-            dependencyGraph.add(clazz.getClass().getName());
-        }
-    }
 }
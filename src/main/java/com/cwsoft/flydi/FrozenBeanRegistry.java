@@ -0,0 +1,58 @@
+package com.cwsoft.flydi;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The beans of a started container, published by {@link FlyDI#freeze()} for lookups on the request path. It is never
+ * changed: a lookup by name reads an immutable map, a lookup by class reads an immutable map keyed by the classes, whose
+ * hash is the identity hash. Neither lookup allocates, hashes a string or takes a lock.
+ * <p>
+ * Both maps are built once and held by the container only, so a frozen container that is dropped can be collected
+ * with its beans; nothing static refers to them.
+ */
+final class FrozenBeanRegistry {
+    private final Map<String, Object> beansByName;
+    private final Map<Class<?>, Object> beansByClass;
+
+    /**
+     * @param beansByName    the beans by every name they can be looked up with
+     * @param beans          the beans, each is looked up by its class, superclasses and interfaces
+     * @param resolveByClass resolves the bean of a class as the container would, null if there is none
+     */
+    FrozenBeanRegistry(Map<String, Object> beansByName, Iterable<Object> beans, Function<Class<?>, Object> resolveByClass) {
+        this.beansByName = Map.copyOf(beansByName);
+
+        Map<Class<?>, Object> byClass = new HashMap<>();
+        for (Object bean : beans) {
+            for (TypeKey supertype : TypeKey.supertypesOf(LazyBean.beanClassOf(bean))) {
+                if (supertype.isParameterized() || byClass.containsKey(supertype.getRawType())) continue;
+
+                Object resolved = resolveByClass.apply(supertype.getRawType());
+                if (resolved != null) byClass.put(supertype.getRawType(), resolved);
+            }
+        }
+        this.beansByClass = Map.copyOf(byClass);
+    }
+
+    /**
+     * Merges the name maps of the container, earlier maps win.
+     */
+    @SafeVarargs
+    static Map<String, Object> mergeNames(Map<String, Object>... namesByPriority) {
+        Map<String, Object> merged = new HashMap<>();
+        for (Map<String, Object> names : namesByPriority) {
+            names.forEach(merged::putIfAbsent);
+        }
+        return merged;
+    }
+
+    Object get(String name) {
+        return beansByName.get(name);
+    }
+
+    Object get(Class<?> type) {
+        return beansByClass.get(type);
+    }
+}
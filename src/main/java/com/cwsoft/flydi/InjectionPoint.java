@@ -0,0 +1,130 @@
+package com.cwsoft.flydi;
+
+import lombok.Getter;
+
+import javax.inject.Named;
+import javax.inject.Provider;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+
+/**
+ * A single value FlyDI has to resolve and inject: the parameter of an {@code @Inject} setter or of an injection
+ * constructor.
+ * <p>
+ * For a {@link Provider Provider&lt;T&gt;} parameter the parameter type, generic type and type key describe {@code T},
+ * so the bean is resolved as for a {@code T} parameter, and {@link #isProvider()} is set. The same holds for a
+ * {@link BeanPool BeanPool&lt;T&gt;} parameter and {@link #isPool()}.
+ * <p>
+ * Everything {@code findBeanToInject} looks at is read from the method once, when the class metadata is built.
+ */
+@Getter
+public class InjectionPoint {
+    private final Method method;
+    private final Executable executable;
+    private final String name;
+    private final int parameterCount;
+    private final Class<?> parameterType;
+    private final Type genericParameterType;
+    private final TypeKey typeKey;
+    private final boolean provider;
+    private final boolean pool;
+    private final String parameterName;
+    private final String named;
+    private final String beanNameFromMethodName;
+    private final String beanNameFromMethodNameLowercase;
+
+    private InjectionPoint(Method method) {
+        this.method = method;
+        this.executable = method;
+        this.name = method.getName();
+        this.parameterCount = method.getParameterCount();
+
+        Parameter[] parameters = method.getParameters();
+        this.provider = parameterCount > 0 && parameters[0].getType() == Provider.class;
+        this.pool = parameterCount > 0 && parameters[0].getType() == BeanPool.class;
+        this.genericParameterType = parameterCount > 0 ? injectedType(parameters[0]) : null;
+        this.parameterType = parameterCount > 0 ? rawType(genericParameterType) : null;
+        this.parameterName = parameterCount > 0 ? parameters[0].getName() : null;
+        // null when the parameter type has wildcards or type variables
+        this.typeKey = parameterCount > 0 ? TypeKey.of(genericParameterType) : null;
+
+        Named namedAnnotation = method.getAnnotation(Named.class);
+        this.named = namedAnnotation != null ? namedAnnotation.value() : null;
+
+        // setXxx -> Xxx and xxx
+        String beanName = name.length() > 3 ? name.substring(3) : "";
+        this.beanNameFromMethodName = beanName.isEmpty() ? null : beanName;
+        this.beanNameFromMethodNameLowercase = beanName.isEmpty() ? null : beanName.substring(0, 1).toLowerCase() + beanName.substring(1);
+
+        method.trySetAccessible();
+    }
+
+    private InjectionPoint(Constructor<?> constructor, int index) {
+        Parameter parameter = constructor.getParameters()[index];
+
+        this.method = null;
+        this.executable = constructor;
+        this.name = constructor.getDeclaringClass().getSimpleName() + "(" + parameter.getName() + ")";
+        this.parameterCount = 1;
+        this.provider = parameter.getType() == Provider.class;
+        this.pool = parameter.getType() == BeanPool.class;
+        this.genericParameterType = injectedType(parameter);
+        this.parameterType = rawType(genericParameterType);
+        this.parameterName = parameter.getName();
+        this.typeKey = TypeKey.of(genericParameterType);
+
+        Named namedAnnotation = parameter.getAnnotation(Named.class);
+        this.named = namedAnnotation != null ? namedAnnotation.value() : null;
+
+        this.beanNameFromMethodName = null;
+        this.beanNameFromMethodNameLowercase = null;
+
+        constructor.trySetAccessible();
+    }
+
+    // the T of a Provider<T> or BeanPool<T> parameter, otherwise the parameter type
+    private static Type injectedType(Parameter parameter) {
+        Type type = parameter.getParameterizedType();
+        if (parameter.getType() != Provider.class && parameter.getType() != BeanPool.class) return type;
+
+        return type instanceof ParameterizedType parameterized ? parameterized.getActualTypeArguments()[0] : Object.class;
+    }
+
+    private static Class<?> rawType(Type type) {
+        if (type instanceof Class<?> clazz) return clazz;
+        if (type instanceof ParameterizedType parameterized) return (Class<?>) parameterized.getRawType();
+        if (type instanceof WildcardType wildcard) return rawType(wildcard.getUpperBounds()[0]);
+        if (type instanceof TypeVariable<?> variable) return rawType(variable.getBounds()[0]);
+        return Object.class;
+    }
+
+    public static InjectionPoint forMethod(Method method) {
+        return new InjectionPoint(method);
+    }
+
+    public static InjectionPoint forConstructorParameter(Constructor<?> constructor, int index) {
+        return new InjectionPoint(constructor, index);
+    }
+
+    /**
+     * @return an injection point for each parameter of the constructor
+     */
+    public static InjectionPoint[] forConstructor(Constructor<?> constructor) {
+        InjectionPoint[] injectionPoints = new InjectionPoint[constructor.getParameterCount()];
+        for (int i = 0; i < injectionPoints.length; i++) {
+            injectionPoints[i] = forConstructorParameter(constructor, i);
+        }
+        return injectionPoints;
+    }
+
+    @Override
+    public String toString() {
+        return executable.getDeclaringClass().getName() + "." + name;
+    }
+}
@@ -0,0 +1,554 @@
+package com.cwsoft.flydi;
+
+import java.util.Arrays;
+
+/**
+ * The dependency graph behind {@link DependencyGraph}, with nodes as dense int ids and edges in int arrays.
+ * <p>
+ * Edges are appended to a list as they are added. {@link #freeze()} turns the list into compressed sparse rows for both
+ * directions, dropping duplicate edges and keeping each row in insertion order, so the sort visits nodes in the same
+ * order as the map based graph did. Edges added after the freeze are chained per node until the next one.
+ * <p>
+ * Once a full sort succeeded the order is kept up to date as nodes and edges are added, with the dynamic topological
+ * sort of Pearce and Kelly: an edge that contradicts the order only reorders the nodes placed between its two ends, and
+ * a cycle is found while doing so. Not thread safe, the facade synchronizes.
+ */
+final class IntGraph {
+    private static final int[] EMPTY = new int[0];
+
+    private int nodeCount;
+    private int nodeCapacity = 16;
+    private int edgeCount;
+    private int[] edgeUses = new int[16];
+    private int[] edgeUsedBy = new int[16];
+
+    // compressed sparse rows of the first frozenNodeCount nodes, built by freeze():
+    // row n is targets[offsets[n]] until targets[offsets[n + 1]]
+    private int[] usesOffsets;
+    private int[] usesTargets;
+    private int[] usedByOffsets;
+    private int[] usedByTargets;
+    private int frozenNodeCount;
+    private boolean frozen;
+
+    // edges added since the freeze, chained per node: lastXxxEdge[node] is the latest edge, previousXxxEdge[edge] the one before
+    private int[] lastUsesEdge = newChainHeads(16);
+    private int[] lastUsedByEdge = newChainHeads(16);
+    private int[] previousUsesEdge = new int[16];
+    private int[] previousUsedByEdge = new int[16];
+
+    // the kept topological order, null until a full sort succeeded and after an edge closed a cycle:
+    // positionOf[node] is the position of the node in the order, nodeAt[position] the node
+    private int[] positionOf;
+    private int[] nodeAt;
+
+    // depth first search state, visited[node] == visitMark marks the nodes visited by the current search
+    private int[] visited = new int[16];
+    private int visitMark;
+    private int[] parent = new int[16];
+    private int[] stack = new int[16];
+
+    private static int[] newChainHeads(int capacity) {
+        int[] heads = new int[capacity];
+        Arrays.fill(heads, -1);
+        return heads;
+    }
+
+    /**
+     * @return the id of the new node, which is placed last in the kept order
+     */
+    int addNode() {
+        if (nodeCount == nodeCapacity) growNodes();
+
+        int node = nodeCount++;
+        if (positionOf != null) {
+            positionOf[node] = node;
+            nodeAt[node] = node;
+        }
+        frozen = false;
+        return node;
+    }
+
+    private void growNodes() {
+        int oldCapacity = nodeCapacity;
+        nodeCapacity *= 2;
+        lastUsesEdge = Arrays.copyOf(lastUsesEdge, nodeCapacity);
+        lastUsedByEdge = Arrays.copyOf(lastUsedByEdge, nodeCapacity);
+        Arrays.fill(lastUsesEdge, oldCapacity, nodeCapacity, -1);
+        Arrays.fill(lastUsedByEdge, oldCapacity, nodeCapacity, -1);
+        visited = Arrays.copyOf(visited, nodeCapacity);
+        parent = Arrays.copyOf(parent, nodeCapacity);
+        stack = Arrays.copyOf(stack, nodeCapacity);
+        if (positionOf != null) {
+            positionOf = Arrays.copyOf(positionOf, nodeCapacity);
+            nodeAt = Arrays.copyOf(nodeAt, nodeCapacity);
+        }
+    }
+
+    int nodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Records that node {@code uses} depends on node {@code usedBy}. If the edge closes a cycle the kept order is
+     * dropped, the next {@link #topologicalSort()} reports the cycle.
+     */
+    void addEdge(int uses, int usedBy) {
+        if (positionOf != null && addEdgeIfAcyclic(uses, usedBy) == null) return;
+
+        appendEdge(uses, usedBy);
+        positionOf = null;
+        nodeAt = null;
+    }
+
+    private void appendEdge(int uses, int usedBy) {
+        if (edgeCount == edgeUses.length) {
+            int capacity = edgeCount * 2;
+            edgeUses = Arrays.copyOf(edgeUses, capacity);
+            edgeUsedBy = Arrays.copyOf(edgeUsedBy, capacity);
+            previousUsesEdge = Arrays.copyOf(previousUsesEdge, capacity);
+            previousUsedByEdge = Arrays.copyOf(previousUsedByEdge, capacity);
+        }
+
+        int edge = edgeCount++;
+        edgeUses[edge] = uses;
+        edgeUsedBy[edge] = usedBy;
+        previousUsesEdge[edge] = lastUsesEdge[uses];
+        lastUsesEdge[uses] = edge;
+        previousUsedByEdge[edge] = lastUsedByEdge[usedBy];
+        lastUsedByEdge[usedBy] = edge;
+        frozen = false;
+    }
+
+    int edgeCount() {
+        return edgeCount;
+    }
+
+    int edgeUses(int edge) {
+        return edgeUses[edge];
+    }
+
+    int edgeUsedBy(int edge) {
+        return edgeUsedBy[edge];
+    }
+
+    /**
+     * Builds the compressed sparse rows from the edges added so far.
+     */
+    void freeze() {
+        if (frozen) return;
+
+        usesOffsets = new int[nodeCount + 1];
+        usesTargets = rows(edgeUses, edgeUsedBy, usesOffsets);
+        usedByOffsets = new int[nodeCount + 1];
+        usedByTargets = rows(edgeUsedBy, edgeUses, usedByOffsets);
+        frozenNodeCount = nodeCount;
+        Arrays.fill(lastUsesEdge, 0, nodeCount, -1);
+        Arrays.fill(lastUsedByEdge, 0, nodeCount, -1);
+        frozen = true;
+    }
+
+    // counting sort of the edges by source, which keeps insertion order within a row, then drops duplicates per row
+    private int[] rows(int[] sources, int[] targets, int[] offsets) {
+        for (int edge = 0; edge < edgeCount; edge++) {
+            offsets[sources[edge] + 1]++;
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            offsets[node + 1] += offsets[node];
+        }
+
+        int[] rowTargets = new int[edgeCount];
+        int[] next = Arrays.copyOf(offsets, nodeCount);
+        for (int edge = 0; edge < edgeCount; edge++) {
+            rowTargets[next[sources[edge]]++] = targets[edge];
+        }
+
+        int[] seenInRow = new int[nodeCount];
+        Arrays.fill(seenInRow, -1);
+        int kept = 0;
+        int rowStart = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            int rowEnd = offsets[node + 1];
+            offsets[node] = kept;
+            for (int i = rowStart; i < rowEnd; i++) {
+                int target = rowTargets[i];
+                if (seenInRow[target] != node) {
+                    seenInRow[target] = node;
+                    rowTargets[kept++] = target;
+                }
+            }
+            rowStart = rowEnd;
+        }
+        offsets[nodeCount] = kept;
+
+        return kept == rowTargets.length ? rowTargets : Arrays.copyOf(rowTargets, kept);
+    }
+
+    /**
+     * @return the nodes the node depends on, in insertion order
+     */
+    int[] uses(int node) {
+        freeze();
+        return row(usesOffsets, usesTargets, node);
+    }
+
+    /**
+     * @return the nodes depending on the node, in insertion order
+     */
+    int[] usedBy(int node) {
+        freeze();
+        return row(usedByOffsets, usedByTargets, node);
+    }
+
+    private static int[] row(int[] offsets, int[] targets, int node) {
+        int start = offsets[node];
+        int end = offsets[node + 1];
+        return start == end ? EMPTY : Arrays.copyOfRange(targets, start, end);
+    }
+
+    /**
+     * @return true if the topological order is kept, so {@link #topologicalSort()} just returns it
+     */
+    boolean isOrdered() {
+        return positionOf != null;
+    }
+
+    /**
+     * The kept order if there is one, otherwise Kahn's algorithm: starts with the nodes without dependencies, in id
+     * order, and adds each node once all its dependencies were added. A successful sort is kept from then on.
+     *
+     * @return the nodes in dependency order, shorter than {@link #nodeCount()} if the graph has a cycle
+     */
+    int[] topologicalSort() {
+        if (positionOf != null) return Arrays.copyOf(nodeAt, nodeCount);
+
+        freeze();
+
+        // out degree is the count of dependencies on other nodes not sorted yet
+        int[] outDegrees = new int[nodeCount];
+        int[] queue = new int[nodeCount];
+        int tail = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            outDegrees[node] = usesOffsets[node + 1] - usesOffsets[node];
+            if (outDegrees[node] == 0) queue[tail++] = node;
+        }
+
+        // the queue holds the sorted nodes, each node is added to it once
+        for (int head = 0; head < tail; head++) {
+            int node = queue[head];
+            for (int i = usedByOffsets[node], end = usedByOffsets[node + 1]; i < end; i++) {
+                int usingNode = usedByTargets[i];
+                if (--outDegrees[usingNode] == 0) queue[tail++] = usingNode;
+            }
+        }
+
+        if (tail < nodeCount) return Arrays.copyOf(queue, tail);
+
+        nodeAt = Arrays.copyOf(queue, nodeCapacity);
+        positionOf = new int[nodeCapacity];
+        for (int position = 0; position < nodeCount; position++) {
+            positionOf[queue[position]] = position;
+        }
+        return queue;
+    }
+
+    /**
+     * Adds the edge unless it closes a cycle, keeping the order: if {@code usedBy} is placed after {@code uses}, the
+     * nodes between them that depend on {@code uses} and those {@code usedBy} depends on swap their positions. Only
+     * those nodes are visited. Requires {@link #isOrdered()}.
+     *
+     * @return null if the edge was added, otherwise the cycle it would close, from {@code uses} via the nodes each node
+     * depends on back to {@code uses}
+     */
+    int[] addEdgeIfAcyclic(int uses, int usedBy) {
+        if (uses == usedBy) return new int[]{uses, uses};
+
+        int lowerBound = positionOf[uses];
+        int upperBound = positionOf[usedBy];
+        if (upperBound > lowerBound) {
+            // the nodes placed no later than usedBy that depend on uses, usedBy among them means a cycle
+            int dependentsMark = nextVisitMark();
+            int dependentCount = search(uses, dependentsMark, true, upperBound);
+            if (visited[usedBy] == dependentsMark) return cycle(uses, usedBy);
+            int[] dependents = Arrays.copyOf(stack, dependentCount);
+
+            // the nodes placed no earlier than uses that usedBy depends on
+            int dependenciesMark = nextVisitMark();
+            int dependencyCount = search(usedBy, dependenciesMark, false, lowerBound);
+            int[] dependencies = Arrays.copyOf(stack, dependencyCount);
+
+            reorder(dependencies, dependents);
+        }
+
+        appendEdge(uses, usedBy);
+        return null;
+    }
+
+    private int nextVisitMark() {
+        if (visitMark == Integer.MAX_VALUE) {
+            Arrays.fill(visited, 0);
+            visitMark = 0;
+        }
+        return ++visitMark;
+    }
+
+    /**
+     * Iterative depth first search from the node, over the nodes depending on it or the nodes it depends on, skipping
+     * nodes placed beyond the bound. Leaves the visited nodes in {@code stack[0]} until the returned count, and the
+     * node each was reached from in {@code parent}.
+     */
+    private int search(int start, int mark, boolean dependents, int bound) {
+        visited[start] = mark;
+        stack[0] = start;
+        int found = 1;
+
+        for (int next = 0; next < found; next++) {
+            int node = stack[next];
+
+            if (node < frozenNodeCount) {
+                int[] offsets = dependents ? usedByOffsets : usesOffsets;
+                int[] targets = dependents ? usedByTargets : usesTargets;
+                for (int i = offsets[node], end = offsets[node + 1]; i < end; i++) {
+                    found = visit(targets[i], node, mark, dependents, bound, found);
+                }
+            }
+
+            int[] last = dependents ? lastUsedByEdge : lastUsesEdge;
+            int[] previous = dependents ? previousUsedByEdge : previousUsesEdge;
+            int[] targets = dependents ? edgeUses : edgeUsedBy;
+            for (int edge = last[node]; edge >= 0; edge = previous[edge]) {
+                found = visit(targets[edge], node, mark, dependents, bound, found);
+            }
+        }
+
+        return found;
+    }
+
+    private int visit(int node, int from, int mark, boolean dependents, int bound, int found) {
+        if (visited[node] == mark) return found;
+        if (dependents ? positionOf[node] > bound : positionOf[node] < bound) return found;
+
+        visited[node] = mark;
+        parent[node] = from;
+        stack[found] = node;
+        return found + 1;
+    }
+
+    // usedBy was reached from uses over the nodes depending on it, so walking back from usedBy goes over nodes that
+    // each depend on the next one
+    private int[] cycle(int uses, int usedBy) {
+        int length = 2;
+        for (int node = usedBy; node != uses; node = parent[node]) {
+            length++;
+        }
+
+        int[] cycle = new int[length];
+        cycle[0] = uses;
+        int index = 1;
+        for (int node = usedBy; node != uses; node = parent[node]) {
+            cycle[index++] = node;
+        }
+        cycle[index] = uses;
+        return cycle;
+    }
+
+    // the dependencies take the first of the positions the two groups hold, each group keeping its relative order
+    private void reorder(int[] dependencies, int[] dependents) {
+        sortByPosition(dependencies);
+        sortByPosition(dependents);
+
+        int[] positions = new int[dependencies.length + dependents.length];
+        int index = 0;
+        for (int node : dependencies) {
+            positions[index++] = positionOf[node];
+        }
+        for (int node : dependents) {
+            positions[index++] = positionOf[node];
+        }
+        Arrays.sort(positions);
+
+        index = 0;
+        for (int node : dependencies) {
+            place(node, positions[index++]);
+        }
+        for (int node : dependents) {
+            place(node, positions[index++]);
+        }
+    }
+
+    private void sortByPosition(int[] nodes) {
+        long[] keys = new long[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            keys[i] = (long) positionOf[nodes[i]] << 32 | nodes[i];
+        }
+        Arrays.sort(keys);
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = (int) keys[i];
+        }
+    }
+
+    private void place(int node, int position) {
+        positionOf[node] = position;
+        nodeAt[position] = node;
+    }
+
+    /**
+     * Tarjan's strongly connected components algorithm, with explicit stacks instead of recursion so deep graphs do not
+     * overflow the call stack. Linear in the number of nodes and edges.
+     *
+     * @return the components that contain a cycle: more than one node, or a node depending on itself. Each component
+     * has its nodes in id order, the components are ordered by their first node.
+     */
+    int[][] cyclicComponents() {
+        freeze();
+
+        int[] index = new int[nodeCount];
+        int[] lowLink = new int[nodeCount];
+        Arrays.fill(index, -1);
+        boolean[] onStack = new boolean[nodeCount];
+        int[] componentStack = new int[nodeCount];
+        int componentTop = 0;
+        // the nodes of the depth first search path and how far each one got through its dependencies
+        int[] path = new int[nodeCount];
+        int[] nextEdge = new int[nodeCount];
+        int nextIndex = 0;
+        int[][] components = new int[0][];
+        int componentCount = 0;
+
+        for (int root = 0; root < nodeCount; root++) {
+            if (index[root] >= 0) continue;
+
+            int depth = 0;
+            path[depth++] = root;
+            index[root] = lowLink[root] = nextIndex++;
+            componentStack[componentTop++] = root;
+            onStack[root] = true;
+            nextEdge[root] = usesOffsets[root];
+
+            while (depth > 0) {
+                int node = path[depth - 1];
+
+                if (nextEdge[node] < usesOffsets[node + 1]) {
+                    int uses = usesTargets[nextEdge[node]++];
+                    if (index[uses] < 0) {
+                        path[depth++] = uses;
+                        index[uses] = lowLink[uses] = nextIndex++;
+                        componentStack[componentTop++] = uses;
+                        onStack[uses] = true;
+                        nextEdge[uses] = usesOffsets[uses];
+                    } else if (onStack[uses]) {
+                        lowLink[node] = Math.min(lowLink[node], index[uses]);
+                    }
+                    continue;
+                }
+
+                depth--;
+                if (depth > 0) {
+                    int caller = path[depth - 1];
+                    lowLink[caller] = Math.min(lowLink[caller], lowLink[node]);
+                }
+
+                if (lowLink[node] == index[node]) {
+                    int size = 0;
+                    while (componentStack[componentTop - 1 - size] != node) {
+                        size++;
+                    }
+                    size++;
+                    int[] component = Arrays.copyOfRange(componentStack, componentTop - size, componentTop);
+                    componentTop -= size;
+                    for (int member : component) {
+                        onStack[member] = false;
+                    }
+
+                    if (size > 1 || dependsOnItself(node)) {
+                        Arrays.sort(component);
+                        if (componentCount == components.length) {
+                            components = Arrays.copyOf(components, Math.max(4, componentCount * 2));
+                        }
+                        components[componentCount++] = component;
+                    }
+                }
+            }
+        }
+
+        components = Arrays.copyOf(components, componentCount);
+        Arrays.sort(components, (a, b) -> Integer.compare(a[0], b[0]));
+        return components;
+    }
+
+    private boolean dependsOnItself(int node) {
+        for (int i = usesOffsets[node], end = usesOffsets[node + 1]; i < end; i++) {
+            if (usesTargets[i] == node) return true;
+        }
+        return false;
+    }
+
+    /**
+     * A breadth first search within the component, so the cycle is a shortest one through its first node.
+     *
+     * @param component a component from {@link #cyclicComponents()}
+     * @return the cycle from the first node of the component via the nodes each node depends on back to it
+     */
+    int[] cycleIn(int[] component) {
+        int start = component[0];
+        int mark = nextVisitMark();
+        for (int member : component) {
+            visited[member] = mark;
+        }
+
+        // visited[node] == searched marks the nodes reached by the search, parent[node] the node depending on it
+        int searched = nextVisitMark();
+        int[] queue = new int[component.length];
+        int tail = 0;
+        queue[tail++] = start;
+
+        for (int head = 0; head < tail; head++) {
+            int node = queue[head];
+            for (int i = usesOffsets[node], end = usesOffsets[node + 1]; i < end; i++) {
+                int uses = usesTargets[i];
+                if (uses == start) return cycleTo(start, node);
+                if (visited[uses] == mark) {
+                    visited[uses] = searched;
+                    parent[uses] = node;
+                    queue[tail++] = uses;
+                }
+            }
+        }
+
+        throw new IllegalStateException("No cycle in component starting at node " + start);
+    }
+
+    private int[] cycleTo(int start, int last) {
+        int length = 2;
+        for (int node = last; node != start; node = parent[node]) {
+            length++;
+        }
+
+        int[] cycle = new int[length];
+        cycle[0] = start;
+        cycle[length - 1] = start;
+        int index = length - 2;
+        for (int node = last; node != start; node = parent[node]) {
+            cycle[index--] = node;
+        }
+        return cycle;
+    }
+
+    /**
+     * @param order the nodes in dependency order
+     * @return the level of each node: 0 without dependencies, otherwise one more than the highest level of its dependencies
+     */
+    int[] levels(int[] order) {
+        freeze();
+
+        int[] levelOf = new int[nodeCount];
+        for (int node : order) {
+            int level = 0;
+            for (int i = usesOffsets[node], end = usesOffsets[node + 1]; i < end; i++) {
+                level = Math.max(level, levelOf[usesTargets[i]] + 1);
+            }
+            levelOf[node] = level;
+        }
+        return levelOf;
+    }
+}
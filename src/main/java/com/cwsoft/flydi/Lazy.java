@@ -0,0 +1,15 @@
+package com.cwsoft.flydi;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks a {@code @ManagedBean} to be created, injected and post-constructed only when it is first needed, by a
+ * {@code getBean} call or by a bean it is injected into. {@code @Lazy(false)} makes a bean eager when
+ * {@link BeanScannerConfig#isLazyByDefault()} is set.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Lazy {
+    boolean value() default true;
+}
@@ -0,0 +1,104 @@
+package com.cwsoft.flydi;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Stands in for a lazy bean in the bean maps of {@link FlyDI} until the bean is first needed.
+ * <p>
+ * The bean is created and injected under the container's {@link FlyDI#getLazyCreationLock() lazy creation lock} and
+ * then published through a volatile field, so once it exists {@link #get()} is a plain read. Holding one lock for all
+ * lazy beans, rather than one per bean, keeps two threads creating lazy beans that inject each other from taking their
+ * locks in opposite order. A bean that is needed again while it is being injected, i.e. a circular dependency between
+ * setters, gets the instance being injected, as eager beans do.
+ */
+final class LazyBean {
+    private final Class<?> beanClass;
+    private final FlyDI flyDI;
+
+    private volatile Object instance;
+    // only read and written under the lazy creation lock
+    private Object creating;
+    private final AtomicBoolean postConstructed = new AtomicBoolean();
+
+    LazyBean(Class<?> beanClass, FlyDI flyDI) {
+        this.beanClass = beanClass;
+        this.flyDI = flyDI;
+    }
+
+    Class<?> getBeanClass() {
+        return beanClass;
+    }
+
+    /**
+     * @return the bean, creating it on first use
+     */
+    Object get() throws BeanProcessingError, InjectError, PostConstructError {
+        Object bean = instance;
+        if (bean != null) return bean;
+
+        ReentrantLock lock = flyDI.getLazyCreationLock();
+        lock.lock();
+        try {
+            if (instance != null) return instance;
+            if (creating != null) return creating;
+            create();
+        } finally {
+            lock.unlock();
+        }
+
+        // created after the container ran its post constructors, so nothing else will
+        if (flyDI.isPostConstructorsStarted()) {
+            postConstruct();
+        }
+        return instance;
+    }
+
+    private void create() throws BeanProcessingError, InjectError {
+        try {
+            creating = flyDI.newBeanInstance(beanClass);
+            flyDI.injectLazyBean(creating);
+            instance = creating;
+        } catch (BeanProcessingError | InjectError ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new BeanProcessingError(String.format("@ManagedBean failed to create new instance of %s", beanClass.getName()), ex);
+        } finally {
+            creating = null;
+        }
+    }
+
+    /**
+     * @return the bean or {@code null} if it has not been created
+     */
+    Object getIfCreated() {
+        return instance;
+    }
+
+    /**
+     * Runs the post constructors of the bean, if it has been created and they have not run yet. They run once, on the
+     * thread that gets here first.
+     */
+    void postConstruct() throws PostConstructError, BeanProcessingError {
+        Object bean = instance;
+        if (bean == null || !postConstructed.compareAndSet(false, true)) return;
+
+        flyDI.invokePostConstructIfPresent(bean);
+    }
+
+    /**
+     * @return the bean itself, or the bean the holder stands in for, creating it if needed
+     */
+    static Object unwrap(Object bean) {
+        return bean instanceof LazyBean lazyBean ? lazyBean.get() : bean;
+    }
+
+    static Class<?> beanClassOf(Object bean) {
+        return bean instanceof LazyBean lazyBean ? lazyBean.beanClass : bean.getClass();
+    }
+
+    @Override
+    public String toString() {
+        return "LazyBean[" + beanClass.getName() + "]";
+    }
+}
@@ -0,0 +1,24 @@
+package com.cwsoft.flydi;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks a prototype bean to be reused through a {@link BeanPool}, obtained from {@link FlyDI#poolFor(Class)} or
+ * injected as a {@code BeanPool<T>}. Instances are created, injected and post-constructed like prototypes and reset by
+ * their {@link PreReuse @PreReuse} methods when released.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Pooled {
+    /**
+     * @return how many released instances the pool keeps, more are dropped
+     */
+    int maxIdle() default 64;
+
+    /**
+     * @return how many instances are created when the pool is warmed up, at the bean's place in the
+     * {@code @PostConstruct} order
+     */
+    int warmUp() default 0;
+}
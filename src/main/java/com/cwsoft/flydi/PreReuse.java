@@ -0,0 +1,13 @@
+package com.cwsoft.flydi;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks a method of a {@link Pooled @Pooled} bean that resets the bean when it is released to its {@link BeanPool},
+ * before another caller acquires it.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface PreReuse {
+}
@@ -0,0 +1,13 @@
+package com.cwsoft.flydi;
+
+/**
+ * Creates new, injected and post-constructed, instances of a prototype bean.
+ * <p>
+ * Obtained from {@link FlyDI#prototypeFactory(Class)}. The constructor, the singleton beans to inject and the post
+ * constructors are resolved when the factory is created, so {@link #create()} costs about the same as calling
+ * {@code new} and the setters by hand.
+ */
+@FunctionalInterface
+public interface PrototypeFactory<T> {
+    T create();
+}
@@ -0,0 +1,62 @@
+package com.cwsoft.flydi;
+
+import javax.inject.Provider;
+
+/**
+ * The {@link Provider}s FlyDI injects and hands out. Each is bound to what it provides when it is created, so
+ * {@link Provider#get()} does no lookup.
+ */
+final class Providers {
+
+    private Providers() {
+    }
+
+    /**
+     * @return a provider of the bean, a lazy bean is created on the first {@link Provider#get()}
+     */
+    @SuppressWarnings("unchecked")
+    static <T> Provider<T> of(Object bean) {
+        return bean instanceof LazyBean lazyBean ? new LazyBeanProvider<>(lazyBean) : new BeanProvider<>((T) bean);
+    }
+
+    /**
+     * @return a provider of a new prototype bean on each {@link Provider#get()}
+     */
+    static <T> Provider<T> of(PrototypeFactory<T> factory) {
+        return new PrototypeProvider<>(factory);
+    }
+
+    /**
+     * @return a provider of the bean of the definition, which must have been created by the time it is asked for
+     */
+    @SuppressWarnings("unchecked")
+    static <T> Provider<T> of(BeanDefinition definition) {
+        return () -> {
+            Object bean = definition.getBean();
+            if (bean == null) throw new InjectError(String.format("Bean %s has not been created yet", definition));
+            return (T) bean;
+        };
+    }
+
+    record BeanProvider<T>(T bean) implements Provider<T> {
+        @Override
+        public T get() {
+            return bean;
+        }
+    }
+
+    record LazyBeanProvider<T>(LazyBean lazyBean) implements Provider<T> {
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get() {
+            return (T) lazyBean.get();
+        }
+    }
+
+    record PrototypeProvider<T>(PrototypeFactory<T> factory) implements Provider<T> {
+        @Override
+        public T get() {
+            return factory.create();
+        }
+    }
+}
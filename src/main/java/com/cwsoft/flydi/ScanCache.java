@@ -0,0 +1,220 @@
+package com.cwsoft.flydi;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * On-disk cache of classpath scan results, used when no {@link BeanIndex} is available.
+ * <p>
+ * The {@link BeanIndex.Entry entries} found in each classpath URL are stored together with a fingerprint of the URL
+ * (size, last modified time and optionally a CRC32C of the content). On the next start only the URLs whose fingerprint
+ * changed are scanned again. The file is small, it is read in one go and replaced atomically when it changes.
+ */
+@Slf4j
+public class ScanCache {
+    private static final int MAGIC = 0x46445343; // FDSC
+    private static final int VERSION = 2;
+
+    private final Path file;
+    private final boolean contentHash;
+
+    public ScanCache(Path file, boolean contentHash) {
+        this.file = file;
+        this.contentHash = contentHash;
+    }
+
+    /**
+     * Returns the bean entries of all the URLs, scanning the ones that are not cached or have changed.
+     *
+     * @param scope   identifies what the scanner includes, a cache written for a different scope is discarded
+     * @param scanner scans a single URL
+     */
+    public List<BeanIndex.Entry> scan(Collection<URL> urls, String scope, Function<URL, List<BeanIndex.Entry>> scanner) {
+        Map<String, CachedUrl> cached = read(scope);
+        Map<String, CachedUrl> current = new LinkedHashMap<>();
+        int scanned = 0;
+
+        for (URL url : urls) {
+            Fingerprint fingerprint = fingerprint(url);
+            CachedUrl cachedUrl = cached.get(url.toExternalForm());
+
+            if (cachedUrl == null || fingerprint == null || !fingerprint.equals(cachedUrl.fingerprint)) {
+                log.trace("Scanning changed classpath entry {}", url);
+                cachedUrl = new CachedUrl(fingerprint, scanner.apply(url));
+                if (fingerprint != null) scanned++;
+            }
+
+            current.put(url.toExternalForm(), cachedUrl);
+        }
+
+        log.trace("Scan cache {}: {} of {} classpath entries changed", file, scanned, urls.size());
+
+        if (scanned > 0 || !cached.keySet().equals(current.keySet())) {
+            write(scope, current);
+        }
+
+        Map<String, BeanIndex.Entry> entries = new LinkedHashMap<>();
+        current.values().forEach(cachedUrl -> cachedUrl.entries.forEach(entry -> entries.putIfAbsent(entry.getClassName(), entry)));
+        return new ArrayList<>(entries.values());
+    }
+
+    Fingerprint fingerprint(URL url) {
+        try {
+            if (!"file".equals(url.getProtocol())) return null;
+
+            Path path = Path.of(url.toURI());
+            if (Files.isDirectory(path)) {
+                return directoryFingerprint(path);
+            }
+
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            long hash = contentHash ? hash(path) : 0;
+            return new Fingerprint(attributes.size(), attributes.lastModifiedTime().toMillis(), hash);
+        } catch (IOException | URISyntaxException | IllegalArgumentException ex) {
+            log.trace("Cannot fingerprint classpath entry {}", url, ex);
+            return null;
+        }
+    }
+
+    // a directory is fingerprinted by its total size, newest modification time and a CRC32C of its file names
+    private Fingerprint directoryFingerprint(Path directory) throws IOException {
+        long size = 0;
+        long lastModified = 0;
+        CRC32C crc = new CRC32C();
+
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) files.sorted()::iterator) {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                if (!attributes.isRegularFile()) continue;
+
+                size += attributes.size();
+                lastModified = Math.max(lastModified, attributes.lastModifiedTime().toMillis());
+                crc.update(directory.relativize(path).toString().getBytes(StandardCharsets.UTF_8));
+                if (contentHash) {
+                    crc.update(Files.readAllBytes(path));
+                }
+            }
+        }
+
+        return new Fingerprint(size, lastModified, crc.getValue());
+    }
+
+    private static long hash(Path path) throws IOException {
+        CRC32C crc = new CRC32C();
+        byte[] buffer = new byte[64 * 1024];
+
+        try (InputStream in = Files.newInputStream(path)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                crc.update(buffer, 0, read);
+            }
+        }
+        return crc.getValue();
+    }
+
+    private Map<String, CachedUrl> read(String scope) {
+        Map<String, CachedUrl> cached = new HashMap<>();
+        if (!Files.isRegularFile(file)) return cached;
+
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || !readString(buffer).equals(scope)) {
+                log.trace("Scan cache {} is for a different version or scope, ignoring it", file);
+                return cached;
+            }
+
+            int urlCount = buffer.getInt();
+            for (int i = 0; i < urlCount; i++) {
+                String url = readString(buffer);
+                Fingerprint fingerprint = new Fingerprint(buffer.getLong(), buffer.getLong(), buffer.getLong());
+                List<BeanIndex.Entry> entries = new ArrayList<>();
+
+                int entryCount = buffer.getInt();
+                for (int j = 0; j < entryCount; j++) {
+                    entries.add(readEntry(buffer));
+                }
+                cached.put(url, new CachedUrl(fingerprint, entries));
+            }
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Failed to read scan cache {}, rescanning classpath", file, ex);
+            cached.clear();
+        }
+
+        return cached;
+    }
+
+    private void write(String scope, Map<String, CachedUrl> urls) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeString(out, scope);
+
+            // classpath entries that cannot be fingerprinted are always scanned, so there is no point caching them
+            List<Map.Entry<String, CachedUrl>> cacheable = urls.entrySet().stream().filter(url -> url.getValue().fingerprint != null).toList();
+            out.writeInt(cacheable.size());
+
+            for (Map.Entry<String, CachedUrl> url : cacheable) {
+                writeString(out, url.getKey());
+                Fingerprint fingerprint = url.getValue().fingerprint;
+                out.writeLong(fingerprint.size());
+                out.writeLong(fingerprint.lastModified());
+                out.writeLong(fingerprint.hash());
+
+                out.writeInt(url.getValue().entries.size());
+                for (BeanIndex.Entry entry : url.getValue().entries) {
+                    writeEntry(out, entry);
+                }
+            }
+            out.flush();
+
+            Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            Files.write(temp, bytes.toByteArray());
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            log.warn("Failed to write scan cache {}", file, ex);
+        }
+    }
+
+    private static BeanIndex.Entry readEntry(ByteBuffer buffer) {
+        return new BeanIndex.Entry(readString(buffer), readString(buffer));
+    }
+
+    private static void writeEntry(DataOutputStream out, BeanIndex.Entry entry) throws IOException {
+        writeString(out, entry.getClassName());
+        writeString(out, entry.getSystem());
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    record Fingerprint(long size, long lastModified, long hash) {
+    }
+
+    private record CachedUrl(Fingerprint fingerprint, List<BeanIndex.Entry> entries) {
+    }
+}
@@ -0,0 +1,128 @@
+package com.cwsoft.flydi;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Carries the current {@link ExecutionScope} of a thread: in a {@code ScopedValue} where the runtime has them, which
+ * child threads of a structured task scope inherit, otherwise in a {@link ThreadLocal}.
+ */
+@Slf4j
+abstract class ScopeCarrier {
+
+    /**
+     * @return the scope open on this thread, or {@code null}
+     */
+    abstract ExecutionScope current();
+
+    /**
+     * Runs the task with the scope open, the scope open before is restored afterwards.
+     */
+    abstract void run(ExecutionScope scope, Runnable task);
+
+    static ScopeCarrier create() {
+        try {
+            ScopeCarrier carrier = new ScopedValueCarrier();
+            // ScopedValue is a preview API before Java 25, check it can be used without --enable-preview
+            ExecutionScope probe = new ExecutionScope(1);
+            ExecutionScope[] seen = new ExecutionScope[1];
+            carrier.run(probe, () -> seen[0] = carrier.current());
+            if (seen[0] == probe && carrier.current() == null) return carrier;
+        } catch (Throwable ex) {
+            log.trace("ScopedValue not available, carrying execution scopes in a ThreadLocal", ex);
+        }
+        return new ThreadLocalCarrier();
+    }
+
+    static final class ThreadLocalCarrier extends ScopeCarrier {
+        private final ThreadLocal<ExecutionScope> scope = new ThreadLocal<>();
+
+        @Override
+        ExecutionScope current() {
+            return scope.get();
+        }
+
+        @Override
+        void run(ExecutionScope executionScope, Runnable task) {
+            ExecutionScope previous = scope.get();
+            scope.set(executionScope);
+            try {
+                task.run();
+            } finally {
+                // removed rather than set to null, so a pooled thread keeps no entry
+                if (previous == null) {
+                    scope.remove();
+                } else {
+                    scope.set(previous);
+                }
+            }
+        }
+    }
+
+    static final class ScopedValueCarrier extends ScopeCarrier {
+        private final Object scopedValue;
+
+        ScopedValueCarrier() throws Throwable {
+            this.scopedValue = ScopedValues.NEW_INSTANCE.invokeExact();
+        }
+
+        @Override
+        ExecutionScope current() {
+            try {
+                return (boolean) ScopedValues.IS_BOUND.invokeExact(scopedValue)
+                        ? (ExecutionScope) (Object) ScopedValues.GET.invokeExact(scopedValue)
+                        : null;
+            } catch (Throwable ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+
+        @Override
+        void run(ExecutionScope scope, Runnable task) {
+            try {
+                Object carrier = ScopedValues.WHERE.invokeExact(scopedValue, (Object) scope);
+                ScopedValues.RUN.invokeExact(carrier, task);
+            } catch (RuntimeException | Error ex) {
+                throw ex;
+            } catch (Throwable ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+    }
+
+    /**
+     * Handles on the {@code java.lang.ScopedValue} methods, erased to {@code Object} so this compiles on Java 17.
+     * Constant, so {@code invokeExact} is inlined.
+     */
+    private static final class ScopedValues {
+        static final MethodHandle NEW_INSTANCE;
+        static final MethodHandle WHERE;
+        static final MethodHandle RUN;
+        static final MethodHandle IS_BOUND;
+        static final MethodHandle GET;
+
+        static {
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+                Class<?> scopedValue = Class.forName("java.lang.ScopedValue");
+                Class<?> carrier = Class.forName("java.lang.ScopedValue$Carrier");
+
+                NEW_INSTANCE = lookup.findStatic(scopedValue, "newInstance", MethodType.methodType(scopedValue))
+                        .asType(MethodType.methodType(Object.class));
+                WHERE = lookup.findStatic(scopedValue, "where", MethodType.methodType(carrier, scopedValue, Object.class))
+                        .asType(MethodType.methodType(Object.class, Object.class, Object.class));
+                RUN = lookup.findVirtual(carrier, "run", MethodType.methodType(void.class, Runnable.class))
+                        .asType(MethodType.methodType(void.class, Object.class, Runnable.class));
+                IS_BOUND = lookup.findVirtual(scopedValue, "isBound", MethodType.methodType(boolean.class))
+                        .asType(MethodType.methodType(boolean.class, Object.class));
+                GET = lookup.findVirtual(scopedValue, "get", MethodType.methodType(Object.class))
+                        .asType(MethodType.methodType(Object.class, Object.class));
+            } catch (ReflectiveOperationException ex) {
+                throw new ExceptionInInitializerError(ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.cwsoft.flydi;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks a prototype bean that has one instance per thread or per execution scope. Beans get it injected as a
+ * {@code Provider<T>}, a {@link ScopedHandle} whose {@code get()} returns the instance of the current thread or scope,
+ * creating it on first use. Code outside the container asks {@link FlyDI#scopedHandleFor(Class)}.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Scoped {
+    Kind value() default Kind.EXECUTION;
+
+    enum Kind {
+        /**
+         * One instance per thread, kept until the thread ends.
+         */
+        THREAD,
+        /**
+         * One instance per {@link FlyDI#runInScope(Runnable)} or {@link FlyDI#callInScope(java.util.concurrent.Callable)},
+         * dropped when it returns.
+         */
+        EXECUTION
+    }
+}
@@ -0,0 +1,16 @@
+package com.cwsoft.flydi;
+
+import javax.inject.Provider;
+
+/**
+ * A {@link Provider} of the instance of a {@link Scoped @Scoped} bean belonging to the current thread or execution
+ * scope. Once the instance exists, {@link #get()} neither locks nor allocates.
+ */
+public interface ScopedHandle<T> extends Provider<T> {
+
+    /**
+     * @throws InjectError if the bean is execution scoped and no execution scope is open on this thread
+     */
+    @Override
+    T get();
+}
@@ -0,0 +1,38 @@
+package com.cwsoft.flydi;
+
+/**
+ * The {@link ScopedHandle}s of the two {@link Scoped.Kind kinds} of scoped beans.
+ */
+final class ScopedHandles {
+
+    private ScopedHandles() {
+    }
+
+    static <T> ScopedHandle<T> threadScoped(PrototypeFactory<T> factory) {
+        return new ThreadScopedHandle<>(ThreadLocal.withInitial(factory::create));
+    }
+
+    static <T> ScopedHandle<T> executionScoped(Class<T> beanClass, int id, ScopeCarrier carrier, PrototypeFactory<T> factory) {
+        return new ExecutionScopedHandle<>(beanClass, id, carrier, factory);
+    }
+
+    record ThreadScopedHandle<T>(ThreadLocal<T> beans) implements ScopedHandle<T> {
+        @Override
+        public T get() {
+            return beans.get();
+        }
+    }
+
+    record ExecutionScopedHandle<T>(Class<T> beanClass, int id, ScopeCarrier carrier,
+                                    PrototypeFactory<T> factory) implements ScopedHandle<T> {
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get() {
+            ExecutionScope scope = carrier.current();
+            if (scope == null) {
+                throw new InjectError(String.format("No execution scope is open for %s, use FlyDI.runInScope", beanClass.getName()));
+            }
+            return (T) scope.get(id, factory);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.cwsoft.flydi;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+
+/**
+ * Where the time of a FlyDI startup went: the time of each phase, of each bean construction, of resolving each
+ * injection point (and which strategy found the bean) and of each {@code @PostConstruct} method.
+ * <p>
+ * Only recorded when {@link BeanScannerConfig#isStartupReport()} is set, see {@link FlyDI#getStartupReport()}. All
+ * times are in nanoseconds. Recording is thread safe, so parallel startups are reported too.
+ */
+@Slf4j
+public class StartupReport {
+
+    public enum Phase {
+        BUILD_REFLECTIONS,
+        FIND_AND_INSTANTIATE_BEANS,
+        INJECT_BEANS,
+        // part of RUN_POST_CONSTRUCTORS
+        TOPOLOGICAL_SORT,
+        RUN_POST_CONSTRUCTORS
+    }
+
+    /**
+     * How {@code findBeanToInject} found the bean, in the order the strategies are tried.
+     */
+    public enum Strategy {
+        // replayed from the wiring plan, no strategy was tried
+        WIRING_PLAN,
+        NAMED,
+        PARAMETER_NAME,
+        METHOD_NAME,
+        ASSIGNABLE_CACHE,
+        EXACT_CLASS,
+        // the type index lookup that replaced the scan over all beans
+        TYPE_INDEX
+    }
+
+    public record Timing(String name, long nanos) {
+    }
+
+    public record InjectionTiming(String injectionPoint, Strategy strategy, long nanos) {
+    }
+
+    private final Map<Phase, Long> phases = new ConcurrentHashMap<>();
+    private final Collection<Timing> beanConstructions = new ConcurrentLinkedQueue<>();
+    private final Collection<InjectionTiming> injections = new ConcurrentLinkedQueue<>();
+    private final Collection<Timing> postConstructs = new ConcurrentLinkedQueue<>();
+
+    void recordPhase(Phase phase, long nanos) {
+        phases.merge(phase, nanos, Long::sum);
+    }
+
+    void recordBeanConstruction(Class<?> beanClass, long nanos) {
+        beanConstructions.add(new Timing(beanClass.getName(), nanos));
+    }
+
+    void recordInjection(InjectionPoint injectionPoint, Strategy strategy, long nanos) {
+        injections.add(new InjectionTiming(injectionPoint.toString(), strategy, nanos));
+    }
+
+    void recordPostConstruct(Class<?> beanClass, String method, long nanos) {
+        postConstructs.add(new Timing(beanClass.getName() + "." + method, nanos));
+    }
+
+    /**
+     * @return the time of each phase that ran
+     */
+    public Map<Phase, Long> getPhases() {
+        Map<Phase, Long> ordered = new EnumMap<>(Phase.class);
+        ordered.putAll(phases);
+        return Collections.unmodifiableMap(ordered);
+    }
+
+    public long getPhaseNanos(Phase phase) {
+        return phases.getOrDefault(phase, 0L);
+    }
+
+    /**
+     * @return the total time of all phases
+     */
+    public long getTotalNanos() {
+        return phases.entrySet().stream()
+                .filter(phase -> phase.getKey() != Phase.TOPOLOGICAL_SORT)
+                .mapToLong(Map.Entry::getValue)
+                .sum();
+    }
+
+    public List<Timing> getBeanConstructions() {
+        return List.copyOf(beanConstructions);
+    }
+
+    public List<InjectionTiming> getInjections() {
+        return List.copyOf(injections);
+    }
+
+    public List<Timing> getPostConstructs() {
+        return List.copyOf(postConstructs);
+    }
+
+    /**
+     * @return how many injection points each strategy resolved
+     */
+    public Map<Strategy, Long> getStrategyCounts() {
+        Map<Strategy, Long> counts = new EnumMap<>(Strategy.class);
+        injections.forEach(injection -> counts.merge(injection.strategy(), 1L, Long::sum));
+        return counts;
+    }
+
+    /**
+     * @return the phase times and the slowest constructions, injections and post constructs
+     */
+    public String summary(int topN) {
+        StringBuilder summary = new StringBuilder();
+        summary.append(String.format("FlyDI startup took %s", millis(getTotalNanos())));
+
+        summary.append("\n  Phases:");
+        getPhases().forEach((phase, nanos) -> summary.append(String.format("%n    %-26s %s", phase, millis(nanos))));
+
+        appendTop(summary, "Slowest bean constructions", beanConstructions, topN);
+        appendTop(summary, "Slowest injections", injections.stream()
+                .map(injection -> new Timing(injection.injectionPoint() + " [" + injection.strategy() + "]", injection.nanos()))
+                .toList(), topN);
+        appendTop(summary, "Slowest post constructs", postConstructs, topN);
+
+        summary.append("\n  Injection strategies: ").append(getStrategyCounts().entrySet().stream()
+                .map(entry -> entry.getKey() + "=" + entry.getValue())
+                .collect(Collectors.joining(", ")));
+
+        return summary.toString();
+    }
+
+    public void logSummary(int topN) {
+        log.info(summary(topN));
+    }
+
+    private static void appendTop(StringBuilder summary, String title, Collection<Timing> timings, int topN) {
+        if (timings.isEmpty()) return;
+
+        summary.append("\n  ").append(title).append(':');
+        timings.stream()
+                .sorted(Comparator.comparingLong(Timing::nanos).reversed())
+                .limit(topN)
+                .forEach(timing -> summary.append(String.format("%n    %10s  %s", millis(timing.nanos()), timing.name())));
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.3f ms", nanos / 1_000_000.0);
+    }
+
+    @Override
+    public String toString() {
+        return summary(10);
+    }
+}
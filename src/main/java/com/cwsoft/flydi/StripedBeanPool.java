@@ -0,0 +1,162 @@
+package com.cwsoft.flydi;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * {@link BeanPool} keeping idle instances in {@link Pooled#maxIdle()} slots, split into stripes. A thread looks for an
+ * idle instance, or a free slot, in the stripe its id maps to and the next one only, so threads mostly compare-and-set
+ * different slots and a miss or an overflow costs two stripes, not the whole pool.
+ * <p>
+ * Releasing an instance that is idle in the pool, i.e. releasing it twice, is rejected, as it would hand the instance
+ * to two callers.
+ * <p>
+ * Instances are created by the {@link PrototypeFactory} of the bean class, so they are injected and post-constructed as
+ * prototypes are.
+ */
+final class StripedBeanPool<T> implements BeanPool<T> {
+    private static final int MAX_STRIPES = 16;
+
+    private final Class<T> beanClass;
+    private final PrototypeFactory<T> factory;
+    private final AtomicReferenceArray<T> slots;
+    private final int stripeMask;
+    private final int[] stripeStarts;
+    private final int warmUp;
+    private final Consumer<Object>[] preReuseInvokers;
+    private final String[] preReuseNames;
+    private final AtomicBoolean warmedUp = new AtomicBoolean();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder overflows = new LongAdder();
+
+    StripedBeanPool(Class<T> beanClass, PrototypeFactory<T> factory) {
+        Pooled pooled = beanClass.getAnnotation(Pooled.class);
+        int maxIdle = pooled != null ? pooled.maxIdle() : 64;
+        if (maxIdle < 1) {
+            throw new BeanProcessingError(String.format("@Pooled maxIdle of %s must be at least 1", beanClass.getName()));
+        }
+
+        this.beanClass = beanClass;
+        this.factory = factory;
+        this.warmUp = pooled != null ? Math.min(pooled.warmUp(), maxIdle) : 0;
+
+        // a power of two number of stripes sharing the maxIdle slots, each with at least one slot
+        int stripes = Integer.highestOneBit(Math.min(Math.min(Runtime.getRuntime().availableProcessors(), MAX_STRIPES), maxIdle));
+        this.stripeMask = stripes - 1;
+        this.stripeStarts = new int[stripes + 1];
+        for (int i = 0; i <= stripes; i++) {
+            stripeStarts[i] = i * maxIdle / stripes;
+        }
+        this.slots = new AtomicReferenceArray<>(maxIdle);
+
+        Method[] preReuseMethods = BeanMetadata.of(beanClass).getPreReuseMethods();
+        @SuppressWarnings("unchecked")
+        Consumer<Object>[] invokers = (Consumer<Object>[]) new Consumer<?>[preReuseMethods.length];
+        this.preReuseInvokers = invokers;
+        this.preReuseNames = new String[preReuseMethods.length];
+        for (int i = 0; i < preReuseMethods.length; i++) {
+            preReuseInvokers[i] = BeanInvokers.method(preReuseMethods[i]);
+            preReuseNames[i] = preReuseMethods[i].getName();
+        }
+    }
+
+    @Override
+    public T acquire() {
+        int stripe = stripe();
+        T bean = poll(stripe);
+        if (bean == null && stripeMask != 0) bean = poll((stripe + 1) & stripeMask);
+
+        if (bean != null) {
+            hits.increment();
+            return bean;
+        }
+        misses.increment();
+        return factory.create();
+    }
+
+    private T poll(int stripe) {
+        for (int slot = stripeStarts[stripe]; slot < stripeStarts[stripe + 1]; slot++) {
+            T bean = slots.get(slot);
+            if (bean != null && slots.compareAndSet(slot, bean, null)) return bean;
+        }
+        return null;
+    }
+
+    @Override
+    public void release(T bean) {
+        if (bean == null) return;
+        if (bean.getClass() != beanClass) {
+            throw new InjectError(String.format("Cannot release %s to the pool of %s", bean.getClass().getName(), beanClass.getName()));
+        }
+        if (isIdle(bean)) {
+            throw new InjectError(String.format("Cannot release %s to the pool of %s twice", bean, beanClass.getName()));
+        }
+
+        for (int i = 0; i < preReuseInvokers.length; i++) {
+            try {
+                preReuseInvokers[i].accept(bean);
+            } catch (Exception ex) {
+                throw new BeanProcessingError(String.format("Failed invoking @PreReuse on Class %s Method %s", beanClass.getName(), preReuseNames[i]), ex);
+            }
+        }
+
+        if (!offer(bean)) overflows.increment();
+    }
+
+    private boolean isIdle(T bean) {
+        // reads only, the slots are at most maxIdle references
+        for (int slot = 0; slot < slots.length(); slot++) {
+            if (slots.get(slot) == bean) return true;
+        }
+        return false;
+    }
+
+    private boolean offer(T bean) {
+        int stripe = stripe();
+        return offer(stripe, bean) || stripeMask != 0 && offer((stripe + 1) & stripeMask, bean);
+    }
+
+    private boolean offer(int stripe, T bean) {
+        for (int slot = stripeStarts[stripe]; slot < stripeStarts[stripe + 1]; slot++) {
+            if (slots.get(slot) == null && slots.compareAndSet(slot, null, bean)) return true;
+        }
+        return false;
+    }
+
+    private int stripe() {
+        long id = Thread.currentThread().getId();
+        // spread consecutive thread ids over the stripes
+        int hash = (int) (id * 0x9E3779B97F4A7C15L >>> 32);
+        return hash & stripeMask;
+    }
+
+    /**
+     * Fills the pool with the {@link Pooled#warmUp()} instances, once, spread over all stripes.
+     */
+    void warmUp() {
+        if (!warmedUp.compareAndSet(false, true)) return;
+
+        for (int i = 0; i < warmUp; i++) {
+            int stripe = i & stripeMask;
+            T bean = factory.create();
+            for (int s = 0; s <= stripeMask && !offer(stripe, bean); s++) {
+                stripe = (stripe + 1) & stripeMask;
+            }
+        }
+    }
+
+    @Override
+    public Stats getStats() {
+        return new Stats(hits.sum(), misses.sum(), overflows.sum());
+    }
+
+    @Override
+    public String toString() {
+        return "BeanPool[" + beanClass.getName() + ", " + getStats() + "]";
+    }
+}
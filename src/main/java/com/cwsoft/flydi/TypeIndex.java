@@ -0,0 +1,51 @@
+package com.cwsoft.flydi;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Multimap from every supertype of a registered bean (its class, superclasses and all interfaces, raw and with their
+ * resolved type arguments, see {@link TypeKey#supertypesOf(Class)}) to the beans that implement it, so finding the
+ * beans assignable to a type is a hash lookup instead of a check against every bean.
+ * <p>
+ * Values are registered under a key (the bean class name); registering the same key again replaces the value under
+ * every type, matching the class name keyed bean maps of FlyDI.
+ */
+class TypeIndex<V> {
+    private final Map<TypeKey, Map<String, V>> implementationsByType = new ConcurrentHashMap<>();
+
+    public void register(String key, Class<?> beanClass, V value) {
+        for (TypeKey supertype : TypeKey.supertypesOf(beanClass)) {
+            implementationsByType.computeIfAbsent(supertype, type -> new ConcurrentHashMap<>()).put(key, value);
+        }
+    }
+
+    /**
+     * @return the values registered for classes assignable to the type
+     */
+    public Collection<V> implementationsOf(Class<?> type) {
+        return implementationsOf(TypeKey.of(type));
+    }
+
+    /**
+     * @return the values registered for classes assignable to the resolved type, no further generics check is needed
+     */
+    public Collection<V> implementationsOf(TypeKey type) {
+        Map<String, V> implementations = implementationsByType.get(type);
+        return implementations == null ? Collections.emptyList() : implementations.values();
+    }
+
+    /**
+     * @return the only value registered for classes assignable to the type, or {@code null} if there is none or more than one
+     */
+    public V uniqueImplementationOf(Class<?> type) {
+        Map<String, V> implementations = implementationsByType.get(TypeKey.of(type));
+        if (implementations == null || implementations.size() != 1) return null;
+
+        Iterator<V> iterator = implementations.values().iterator();
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+}
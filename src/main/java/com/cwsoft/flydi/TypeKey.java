@@ -0,0 +1,152 @@
+package com.cwsoft.flydi;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.util.*;
+
+/**
+ * Canonical form of a fully resolved type such as {@code Repository<Order>}: a raw class and the keys of its type
+ * arguments. Keys compare by value with their hash computed once, so they can be used directly as map keys.
+ * <p>
+ * The key of a class, and the resolved supertypes of a class, with every type variable replaced by the actual type the
+ * class binds it to, are computed once per class and cached in a {@link ClassValue}. Nothing else holds on to keys
+ * statically, so a key does not keep the class loaders of its classes from being unloaded.
+ */
+public final class TypeKey {
+    private static final TypeKey[] NO_ARGUMENTS = new TypeKey[0];
+
+    private static final ClassValue<TypeKey> RAW_KEYS = new ClassValue<>() {
+        @Override
+        protected TypeKey computeValue(Class<?> type) {
+            return new TypeKey(type, NO_ARGUMENTS);
+        }
+    };
+
+    private static final ClassValue<TypeKey[]> SUPERTYPES = new ClassValue<>() {
+        @Override
+        protected TypeKey[] computeValue(Class<?> type) {
+            Set<TypeKey> supertypes = new LinkedHashSet<>();
+            collectSupertypes(type, Map.of(), supertypes);
+            return supertypes.toArray(NO_ARGUMENTS);
+        }
+    };
+
+    private final Class<?> rawType;
+    private final TypeKey[] arguments;
+    private final int hash;
+
+    private TypeKey(Class<?> rawType, TypeKey[] arguments) {
+        this.rawType = rawType;
+        this.arguments = arguments;
+        this.hash = 31 * rawType.hashCode() + Arrays.hashCode(arguments);
+    }
+
+    /**
+     * @return the key of the class without type arguments
+     */
+    public static TypeKey of(Class<?> rawType) {
+        return RAW_KEYS.get(rawType);
+    }
+
+    /**
+     * @return the key of the type, or {@code null} if the type is not concrete i.e. contains wildcards or type variables
+     */
+    public static TypeKey of(Type type) {
+        return resolve(type, Map.of());
+    }
+
+    /**
+     * @return the class, its superclasses and interfaces as raw keys, plus a parameterized key for every generic
+     * supertype whose type arguments the class binds to concrete types
+     */
+    public static TypeKey[] supertypesOf(Class<?> type) {
+        return SUPERTYPES.get(type);
+    }
+
+    public Class<?> getRawType() {
+        return rawType;
+    }
+
+    public boolean isParameterized() {
+        return arguments.length > 0;
+    }
+
+    private static TypeKey resolve(Type type, Map<TypeVariable<?>, TypeKey> bindings) {
+        if (type instanceof Class<?> clazz) {
+            return of(clazz);
+        }
+
+        if (type instanceof TypeVariable<?> variable) {
+            return bindings.get(variable);
+        }
+
+        if (type instanceof ParameterizedType parameterizedType) {
+            Type[] actualArguments = parameterizedType.getActualTypeArguments();
+            TypeKey[] arguments = new TypeKey[actualArguments.length];
+
+            for (int i = 0; i < actualArguments.length; i++) {
+                arguments[i] = resolve(actualArguments[i], bindings);
+                if (arguments[i] == null) return null;
+            }
+            return new TypeKey((Class<?>) parameterizedType.getRawType(), arguments);
+        }
+
+        // wildcards and generic arrays
+        return null;
+    }
+
+    private static void collectSupertypes(Type type, Map<TypeVariable<?>, TypeKey> bindings, Set<TypeKey> supertypes) {
+        Class<?> rawType;
+        Map<TypeVariable<?>, TypeKey> ownBindings = Map.of();
+
+        if (type instanceof Class<?> clazz) {
+            rawType = clazz;
+        } else if (type instanceof ParameterizedType parameterizedType) {
+            rawType = (Class<?>) parameterizedType.getRawType();
+
+            TypeKey key = resolve(parameterizedType, bindings);
+            if (key != null) {
+                supertypes.add(key);
+
+                TypeVariable<?>[] variables = rawType.getTypeParameters();
+                ownBindings = new HashMap<>();
+                for (int i = 0; i < variables.length; i++) {
+                    ownBindings.put(variables[i], key.arguments[i]);
+                }
+            }
+        } else {
+            return;
+        }
+
+        supertypes.add(of(rawType));
+
+        collectSupertypes(rawType.getGenericSuperclass(), ownBindings, supertypes);
+        for (Type intf : rawType.getGenericInterfaces()) {
+            collectSupertypes(intf, ownBindings, supertypes);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TypeKey other)) return false;
+        return rawType == other.rawType && Arrays.equals(arguments, other.arguments);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        if (arguments.length == 0) return rawType.getName();
+
+        StringJoiner joiner = new StringJoiner(", ", rawType.getName() + "<", ">");
+        for (TypeKey argument : arguments) {
+            joiner.add(argument.toString());
+        }
+        return joiner.toString();
+    }
+}
@@ -0,0 +1,73 @@
+package com.cwsoft.flydi;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ahead-of-time wiring of a container, generated by {@link WiringGenerator}.
+ * <p>
+ * A generated wiring creates, injects and post-constructs the beans with plain {@code new}, setter and method calls in
+ * the order FlyDI resolved when the wiring was generated, and records the dependencies FlyDI found between them. When
+ * {@link BeanScannerConfig#isUseGeneratedWiring()} is set and FlyDI finds a wiring for its configuration it uses it in
+ * place of scanning and reflective injection.
+ */
+public interface Wiring {
+    String CLASS_NAME = "FlyDIWiring";
+
+    String getSystem();
+
+    List<String> getPackagesToInclude();
+
+    List<String> getPackagesToExclude();
+
+    /**
+     * @return the classes of the wired beans
+     */
+    List<String> getBeanClassNames();
+
+    /**
+     * @return the checksum of the bean classes, their constructors, injection points and post constructors when the
+     * wiring was generated
+     */
+    long getFingerprint();
+
+    void createBeans(FlyDI flyDI);
+
+    void injectBeans(FlyDI flyDI);
+
+    void runPostConstructors(FlyDI flyDI);
+
+    /**
+     * @return the generated wiring for the configuration or {@code null} if there is none, or if a wired bean class was
+     * removed or its constructor, injection points or post constructors changed since the wiring was generated
+     */
+    static Wiring load(BeanScannerConfig beanScannerConfig, ClassLoader classLoader) {
+        String className = beanScannerConfig.getPackagesToInclude().get(0) + "." + CLASS_NAME;
+
+        try {
+            Class<?> wiringClass = Class.forName(className, true, classLoader);
+            Wiring wiring = (Wiring) wiringClass.getDeclaredConstructor().newInstance();
+
+            if (!wiring.getSystem().equalsIgnoreCase(beanScannerConfig.getSystem())
+                    || !wiring.getPackagesToInclude().equals(beanScannerConfig.getPackagesToInclude())
+                    || !wiring.getPackagesToExclude().equals(beanScannerConfig.getPackagesToExclude())) {
+                return null;
+            }
+
+            List<Class<?>> beanClasses = new ArrayList<>();
+            for (String beanClassName : wiring.getBeanClassNames()) {
+                beanClasses.add(Class.forName(beanClassName, false, classLoader));
+            }
+            if (BeanMetadata.fingerprint(beanClasses) != wiring.getFingerprint()) {
+                return null;
+            }
+
+            return wiring;
+        } catch (ClassNotFoundException | LinkageError ex) {
+            // no wiring, or one referring to classes that are gone
+            return null;
+        } catch (Exception ex) {
+            throw new BeanProcessingError(String.format("Failed to create generated wiring %s", className), ex);
+        }
+    }
+}
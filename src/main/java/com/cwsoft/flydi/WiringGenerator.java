@@ -0,0 +1,299 @@
+package com.cwsoft.flydi;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Generates the source of a {@link Wiring} for a configuration.
+ * <p>
+ * The generator boots a FlyDI container in the build, lets it resolve the beans exactly as it would at runtime
+ * (constructor, the bean {@code findBeanToInject} picks for every {@code @Inject} setter and the dependency order of
+ * the {@code @PostConstruct} methods) and writes that resolution out as straight-line Java. Run it after compiling the
+ * beans, for example from the {@code process-classes} phase:
+ * <pre>
+ * java com.cwsoft.flydi.WiringGenerator --output target/generated-sources/flydi --include com.example [--system NAME]
+ * </pre>
+ * The generated class is placed in the first included package, so bean constructors, setters and post constructors
+ * must be public or, for beans in that package, package-private.
+ */
+@Slf4j
+public class WiringGenerator {
+    private final BeanScannerConfig beanScannerConfig;
+    private final String wiringPackage;
+
+    private final Map<Object, String> variableNames = new IdentityHashMap<>();
+    private final Set<String> usedVariableNames = new HashSet<>();
+
+    public WiringGenerator(BeanScannerConfig beanScannerConfig) {
+        this.beanScannerConfig = BeanScannerConfig.builder()
+                .system(beanScannerConfig.getSystem())
+                .packagesToInclude(beanScannerConfig.getPackagesToInclude())
+                .packagesToExclude(beanScannerConfig.getPackagesToExclude())
+                .useBeanIndex(beanScannerConfig.isUseBeanIndex())
+                .useGeneratedWiring(false)
+                // a wiring creates every bean up front
+                .useLazyBeans(false)
+                .build();
+        this.wiringPackage = beanScannerConfig.getPackagesToInclude().get(0);
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path output = null;
+        var builder = BeanScannerConfig.builder();
+
+        for (int i = 0; i < args.length - 1; i += 2) {
+            switch (args[i]) {
+                case "--output" -> output = Path.of(args[i + 1]);
+                case "--system" -> builder.system(args[i + 1]);
+                case "--include" -> builder.includePackage(args[i + 1]);
+                case "--exclude" -> builder.excludePackage(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown argument " + args[i]);
+            }
+        }
+
+        if (output == null) {
+            throw new IllegalArgumentException("Usage: WiringGenerator --output <source dir> --include <package> [--include <package>] [--exclude <package>] [--system <system>]");
+        }
+
+        Path file = new WiringGenerator(builder.build()).generate(output);
+        log.info("Generated wiring {}", file);
+    }
+
+    /**
+     * Resolves the beans and writes the wiring source below the given source directory.
+     *
+     * @return the written source file
+     */
+    public Path generate(Path sourceDirectory) throws IOException {
+        Path file = sourceDirectory.resolve(wiringPackage.replace('.', '/')).resolve(Wiring.CLASS_NAME + ".java");
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, generateSource(), StandardCharsets.UTF_8);
+        return file;
+    }
+
+    public String generateSource() {
+        FlyDI flyDI = new FlyDI(beanScannerConfig);
+        flyDI.scanForBeans();
+        flyDI.injectBeans();
+
+        List<String> order;
+        List<Object> beans = new ArrayList<>();
+        try {
+            order = flyDI.beanClassNamesInDependencyOrder();
+            for (String className : order) {
+                // prototypes provided to beans are in the dependency graph too
+                Object bean = flyDI.findBean(className);
+                if (bean != null) beans.add(bean);
+            }
+        } catch (DependencyGraph.CircularDependencyException ex) {
+            throw new BeanProcessingError("Cannot generate wiring, circular dependency detected", ex);
+        }
+
+        variableNames.put(flyDI, "flyDI");
+        beans.forEach(bean -> variableNames.put(bean, variableName(bean.getClass())));
+
+        StringBuilder source = new StringBuilder();
+        source.append("package ").append(wiringPackage).append(";\n\n");
+        source.append("// Generated by ").append(WiringGenerator.class.getName()).append(", do not edit.\n");
+        source.append("@SuppressWarnings(\"all\")\n");
+        source.append("public final class ").append(Wiring.CLASS_NAME).append(" implements ").append(Wiring.class.getName()).append(" {\n");
+
+        for (Object bean : beans) {
+            source.append("    private ").append(typeName(bean.getClass())).append(' ').append(variableNames.get(bean)).append(";\n");
+        }
+
+        source.append("\n    @Override\n    public String getSystem() {\n        return ")
+                .append(literal(beanScannerConfig.getSystem())).append(";\n    }\n");
+
+        source.append("\n    @Override\n    public java.util.List<String> getPackagesToInclude() {\n        return java.util.List.of(");
+        StringJoiner packages = new StringJoiner(", ");
+        beanScannerConfig.getPackagesToInclude().forEach(pkg -> packages.add(literal(pkg)));
+        source.append(packages).append(");\n    }\n");
+
+        source.append("\n    @Override\n    public java.util.List<String> getPackagesToExclude() {\n        return java.util.List.of(");
+        StringJoiner excludedPackages = new StringJoiner(", ");
+        beanScannerConfig.getPackagesToExclude().forEach(pkg -> excludedPackages.add(literal(pkg)));
+        source.append(excludedPackages).append(");\n    }\n");
+
+        source.append("\n    @Override\n    public java.util.List<String> getBeanClassNames() {\n        return java.util.List.of(");
+        StringJoiner beanClassNames = new StringJoiner(", ");
+        List<Class<?>> beanClasses = new ArrayList<>();
+        for (Object bean : beans) {
+            beanClassNames.add(literal(bean.getClass().getName()));
+            beanClasses.add(bean.getClass());
+        }
+        source.append(beanClassNames).append(");\n    }\n");
+
+        source.append("\n    @Override\n    public long getFingerprint() {\n        return ")
+                .append(BeanMetadata.fingerprint(beanClasses)).append("L;\n    }\n");
+
+        source.append("\n    @Override\n    public void createBeans(").append(FlyDI.class.getName()).append(" flyDI) {\n");
+        for (Object bean : beans) {
+            appendCreateBean(source, bean);
+        }
+        source.append("    }\n");
+
+        source.append("\n    @Override\n    public void injectBeans(").append(FlyDI.class.getName()).append(" flyDI) {\n");
+        for (Object bean : beans) {
+            appendInjections(source, flyDI, bean);
+        }
+        // the container does not see the setter calls, so the dependencies FlyDI found are recorded as they are
+        for (String className : order) {
+            source.append("        flyDI.addDependencies(").append(literal(className));
+            for (String dependency : new TreeSet<>(flyDI.dependenciesOfBeanClass(className))) {
+                source.append(", ").append(literal(dependency));
+            }
+            source.append(");\n");
+        }
+        for (Map.Entry<String, Object> assignable : flyDI.getAssignableBeans().entrySet()) {
+            String target = variableNames.get(assignable.getValue());
+            if (target != null) {
+                Class<?> superClazz = loadClass(assignable.getKey());
+                requireAccessible(superClazz, superClazz.getModifiers(), superClazz, "type");
+                source.append("        flyDI.addAssignableBean(").append(typeName(superClazz)).append(".class, ").append(target).append(");\n");
+            }
+        }
+        source.append("    }\n");
+
+        source.append("\n    @Override\n    public void runPostConstructors(").append(FlyDI.class.getName()).append(" flyDI) {\n");
+        for (Object bean : beans) {
+            appendPostConstructors(source, bean);
+        }
+        source.append("    }\n");
+
+        source.append("}\n");
+        return source.toString();
+    }
+
+    private void appendCreateBean(StringBuilder source, Object bean) {
+        Class<?> clazz = bean.getClass();
+        Constructor<?> constructor = flyDIConstructor(clazz);
+        requireAccessible(clazz, constructor.getModifiers(), clazz, "constructor");
+
+        String variable = variableNames.get(bean);
+        source.append("        ").append(variable).append(" = new ").append(typeName(clazz)).append("();\n");
+        source.append("        flyDI.addBean(").append(literal(clazz.getSimpleName())).append(", ").append(variable).append(");\n");
+    }
+
+    private void appendInjections(StringBuilder source, FlyDI flyDI, Object bean) {
+        for (InjectionPoint injectionPoint : BeanMetadata.of(bean.getClass()).getInjectionPoints()) {
+            Method method = injectionPoint.getMethod();
+            Object beanToInject = flyDI.findBeanToInject(injectionPoint);
+
+            if (beanToInject instanceof Providers.PrototypeProvider<?> || beanToInject instanceof ScopedHandle<?>
+                    || injectionPoint.isPool()) {
+                Class<?> provided = injectionPoint.getParameterType();
+                requireAccessible(provided, provided.getModifiers(), provided, "type");
+                requireAccessible(method.getDeclaringClass(), method.getModifiers(), bean.getClass(), "method " + method.getName());
+                String lookup = injectionPoint.isPool() ? "flyDI.poolFor(" : "flyDI.providerFor(";
+                appendCall(source, variableNames.get(bean), method, lookup + typeName(provided) + ".class)");
+                continue;
+            }
+
+            boolean provider = beanToInject instanceof Providers.BeanProvider<?>;
+            if (provider) beanToInject = ((Providers.BeanProvider<?>) beanToInject).bean();
+
+            String target = variableNames.get(beanToInject);
+            if (target != null && provider) {
+                // the field is read when the provider is asked, so it does not matter in which order beans are created
+                target = "(javax.inject.Provider) () -> " + target;
+            }
+            if (target == null) {
+                throw new BeanProcessingError(String.format("Cannot generate wiring, %s injected into method %s of class %s is not a scanned bean",
+                        beanToInject.getClass().getName(), method.getName(), bean.getClass().getName()));
+            }
+
+            requireAccessible(method.getDeclaringClass(), method.getModifiers(), bean.getClass(), "method " + method.getName());
+            appendCall(source, variableNames.get(bean), method, target);
+        }
+    }
+
+    private void appendPostConstructors(StringBuilder source, Object bean) {
+        for (Method method : BeanMetadata.of(bean.getClass()).getPostConstructMethods()) {
+            requireAccessible(method.getDeclaringClass(), method.getModifiers(), bean.getClass(), "method " + method.getName());
+            appendCall(source, variableNames.get(bean), method, null);
+        }
+    }
+
+    private void appendCall(StringBuilder source, String variable, Method method, String argument) {
+        String call = variable + "." + method.getName() + "(" + (argument == null ? "" : argument) + ");";
+
+        if (method.getExceptionTypes().length == 0) {
+            source.append("        ").append(call).append('\n');
+            return;
+        }
+
+        String error = argument == null ? PostConstructError.class.getName() : InjectError.class.getName();
+        String message = String.format("Failed invoking %s on Class %s Method %s",
+                argument == null ? "@PostConstruct" : "@Inject", method.getDeclaringClass().getName(), method.getName());
+
+        source.append("        try {\n");
+        source.append("            ").append(call).append('\n');
+        source.append("        } catch (Exception ex) {\n");
+        source.append("            throw new ").append(error).append('(').append(literal(message)).append(", ex);\n");
+        source.append("        }\n");
+    }
+
+    private Constructor<?> flyDIConstructor(Class<?> clazz) {
+        Constructor<?> constructor = BeanMetadata.of(clazz).getDefaultConstructor();
+        if (constructor == null) {
+            throw new BeanProcessingError(String.format("Cannot generate wiring, %s has no default constructor", clazz.getName()));
+        }
+        return constructor;
+    }
+
+    private void requireAccessible(Class<?> declaringClass, int modifiers, Class<?> beanClass, String member) {
+        if (isAccessible(beanClass, beanClass.getModifiers())
+                && isAccessible(declaringClass, declaringClass.getModifiers())
+                && isAccessible(declaringClass, modifiers)) {
+            return;
+        }
+
+        String msg = String.format("Cannot generate wiring, %s of class %s is not accessible from package %s",
+                member, beanClass.getName(), wiringPackage);
+        throw new BeanProcessingError(msg);
+    }
+
+    private boolean isAccessible(Class<?> declaringClass, int modifiers) {
+        if (Modifier.isPrivate(modifiers)) return false;
+        return Modifier.isPublic(modifiers) || declaringClass.getPackageName().equals(wiringPackage);
+    }
+
+    private static Class<?> loadClass(String className) {
+        try {
+            return Class.forName(className, false, BeanIndex.defaultClassLoader());
+        } catch (ClassNotFoundException ex) {
+            throw new BeanProcessingError(String.format("Cannot generate wiring, failed to load %s", className), ex);
+        }
+    }
+
+    private String variableName(Class<?> clazz) {
+        String simpleName = clazz.getSimpleName();
+        String name = Character.toLowerCase(simpleName.charAt(0)) + simpleName.substring(1);
+        String variable = name;
+
+        for (int i = 2; !usedVariableNames.add(variable) || variable.equals("flyDI"); i++) {
+            variable = name + i;
+        }
+        return variable;
+    }
+
+    private static String typeName(Class<?> clazz) {
+        if (clazz.getCanonicalName() == null) {
+            throw new BeanProcessingError(String.format("Cannot generate wiring for %s, it has no canonical name", clazz.getName()));
+        }
+        return clazz.getCanonicalName();
+    }
+
+    private static String literal(String value) {
+        return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+}
@@ -0,0 +1,288 @@
+package com.cwsoft.flydi;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The resolved wiring of a started container: the bean classes to create, what each {@code @Inject} setter gets and
+ * the order the post constructors ran in. Saved to a binary file with the {@link ScanCache} fingerprints of the scanned
+ * classpath entries, so the next start with unchanged classes creates and injects the beans from the plan, without
+ * scanning or running the resolution strategies of {@code findBeanToInject}.
+ * <p>
+ * A plan is recorded on every start that uses a plan file. It is written when there was no valid plan to replay or the
+ * plan no longer matched, and only if every injected value could be described. A planned bean is only injected if the
+ * name and type rules still pick it, beans added with {@code addBean} before the start are not part of the plan.
+ */
+@Slf4j
+final class WiringPlan {
+    private static final int MAGIC = 0x46445750; // FDWP
+    private static final int VERSION = 1;
+
+    enum Kind {
+        // a registered bean, by class name
+        BEAN,
+        // a Provider of a registered bean, by class name
+        BEAN_PROVIDER,
+        // a Provider of new prototypes of the injected type
+        PROTOTYPE_PROVIDER,
+        // the ScopedHandle of the injected type
+        SCOPED,
+        // the BeanPool of the injected type
+        POOL
+    }
+
+    /**
+     * What an {@code @Inject} setter gets, identified by its name and injected type.
+     */
+    record Injection(String method, String injectedType, Kind kind, String target) {
+
+        boolean matches(InjectionPoint injectionPoint) {
+            return method.equals(injectionPoint.getName())
+                    && injectedType.equals(injectionPoint.getParameterType().getName())
+                    && (kind == Kind.POOL) == injectionPoint.isPool()
+                    && (kind == Kind.BEAN_PROVIDER || kind == Kind.PROTOTYPE_PROVIDER || kind == Kind.SCOPED) == injectionPoint.isProvider();
+        }
+    }
+
+    private static final Injection[] NONE = new Injection[0];
+
+    private final String scope;
+    private final Map<String, ScanCache.Fingerprint> fingerprints;
+    private final List<String> beanClassNames;
+    private final Map<String, Injection[]> injections;
+    private List<String> postConstructOrder = List.of();
+    private volatile String incomplete;
+
+    private WiringPlan(String scope, Map<String, ScanCache.Fingerprint> fingerprints, List<String> beanClassNames,
+                       Map<String, Injection[]> injections) {
+        this.scope = scope;
+        this.fingerprints = fingerprints;
+        this.beanClassNames = beanClassNames;
+        this.injections = injections;
+    }
+
+    /**
+     * @return an empty plan to record the start in, or {@code null} if a classpath entry cannot be fingerprinted
+     */
+    static WiringPlan record(String scope, Map<String, ScanCache.Fingerprint> fingerprints) {
+        if (fingerprints.containsValue(null)) return null;
+        return new WiringPlan(scope, fingerprints, Collections.synchronizedList(new ArrayList<>()), new ConcurrentHashMap<>());
+    }
+
+    /**
+     * @return the fingerprint of each classpath entry, {@code null} for one that cannot be fingerprinted
+     */
+    static Map<String, ScanCache.Fingerprint> fingerprints(Path file, Collection<URL> urls, boolean contentHash) {
+        ScanCache fingerprinter = new ScanCache(file, contentHash);
+        Map<String, ScanCache.Fingerprint> fingerprints = new LinkedHashMap<>();
+        urls.forEach(url -> fingerprints.put(url.toExternalForm(), fingerprinter.fingerprint(url)));
+        return fingerprints;
+    }
+
+    void addBeanClass(String className) {
+        beanClassNames.add(className);
+    }
+
+    void addInjection(String className, int index, int injectionPointCount, Injection injection) {
+        injections.computeIfAbsent(className, name -> new Injection[injectionPointCount])[index] = injection;
+    }
+
+    /**
+     * Keeps the plan from being written, the reason is logged.
+     */
+    void markIncomplete(String reason) {
+        if (incomplete == null) incomplete = reason;
+    }
+
+    void setPostConstructOrder(List<String> postConstructOrder) {
+        this.postConstructOrder = List.copyOf(postConstructOrder);
+    }
+
+    List<String> getBeanClassNames() {
+        return beanClassNames;
+    }
+
+    List<String> getPostConstructOrder() {
+        return postConstructOrder;
+    }
+
+    /**
+     * @return the planned injection for the injection point, {@code null} if the plan has none matching it
+     */
+    Injection injectionFor(String className, int index, InjectionPoint injectionPoint) {
+        Injection[] planned = injections.getOrDefault(className, NONE);
+        if (index < planned.length && planned[index] != null && planned[index].matches(injectionPoint)) return planned[index];
+
+        // the setters of a class are not always listed in the same order
+        for (Injection injection : planned) {
+            if (injection != null && injection.matches(injectionPoint)) return injection;
+        }
+        return null;
+    }
+
+    /**
+     * @return the plan in the file, if it was written for the scope and the fingerprints still match
+     */
+    static Optional<WiringPlan> load(Path file, String scope, Map<String, ScanCache.Fingerprint> fingerprints) {
+        if (!Files.isRegularFile(file) || fingerprints.containsValue(null)) return Optional.empty();
+
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || !readString(buffer).equals(scope)) {
+                log.trace("Wiring plan {} is for a different version or scope, resolving the wiring", file);
+                return Optional.empty();
+            }
+
+            Map<String, ScanCache.Fingerprint> planned = new LinkedHashMap<>();
+            int urlCount = buffer.getInt();
+            for (int i = 0; i < urlCount; i++) {
+                planned.put(readString(buffer), new ScanCache.Fingerprint(buffer.getLong(), buffer.getLong(), buffer.getLong()));
+            }
+            if (!planned.equals(fingerprints)) {
+                log.trace("Classes changed since wiring plan {} was written, resolving the wiring", file);
+                return Optional.empty();
+            }
+
+            String[] strings = new String[buffer.getInt()];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = readString(buffer);
+            }
+
+            List<String> beanClassNames = new ArrayList<>();
+            int beanCount = buffer.getInt();
+            for (int i = 0; i < beanCount; i++) {
+                beanClassNames.add(strings[buffer.getInt()]);
+            }
+
+            Map<String, Injection[]> injections = new HashMap<>();
+            int injectedCount = buffer.getInt();
+            Kind[] kinds = Kind.values();
+            for (int i = 0; i < injectedCount; i++) {
+                String className = strings[buffer.getInt()];
+                Injection[] injected = new Injection[buffer.getInt()];
+                for (int j = 0; j < injected.length; j++) {
+                    injected[j] = new Injection(strings[buffer.getInt()], strings[buffer.getInt()], kinds[buffer.get()], strings[buffer.getInt()]);
+                }
+                injections.put(className, injected);
+            }
+
+            WiringPlan plan = new WiringPlan(scope, fingerprints, beanClassNames, injections);
+            String[] order = new String[buffer.getInt()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = strings[buffer.getInt()];
+            }
+            plan.postConstructOrder = List.of(order);
+            return Optional.of(plan);
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Failed to read wiring plan {}, resolving the wiring", file, ex);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Replaces the file with the plan, unless the plan is incomplete.
+     */
+    void write(Path file) {
+        if (incomplete == null && injections.values().stream().anyMatch(injected -> Arrays.asList(injected).contains(null))) {
+            markIncomplete("not every injection point was injected");
+        }
+        if (incomplete != null) {
+            log.info("Not writing wiring plan {}: {}", file, incomplete);
+            return;
+        }
+
+        try {
+            // class and method names are written once, the plan refers to them by index
+            Map<String, Integer> strings = new LinkedHashMap<>();
+            beanClassNames.forEach(name -> index(strings, name));
+            injections.forEach((className, injected) -> {
+                index(strings, className);
+                for (Injection injection : injected) {
+                    index(strings, injection.method());
+                    index(strings, injection.injectedType());
+                    index(strings, injection.target());
+                }
+            });
+            postConstructOrder.forEach(name -> index(strings, name));
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeString(out, scope);
+
+            out.writeInt(fingerprints.size());
+            for (Map.Entry<String, ScanCache.Fingerprint> url : fingerprints.entrySet()) {
+                writeString(out, url.getKey());
+                out.writeLong(url.getValue().size());
+                out.writeLong(url.getValue().lastModified());
+                out.writeLong(url.getValue().hash());
+            }
+
+            out.writeInt(strings.size());
+            for (String string : strings.keySet()) {
+                writeString(out, string);
+            }
+
+            out.writeInt(beanClassNames.size());
+            for (String className : beanClassNames) {
+                out.writeInt(strings.get(className));
+            }
+
+            out.writeInt(injections.size());
+            for (Map.Entry<String, Injection[]> injected : injections.entrySet()) {
+                out.writeInt(strings.get(injected.getKey()));
+                out.writeInt(injected.getValue().length);
+                for (Injection injection : injected.getValue()) {
+                    out.writeInt(strings.get(injection.method()));
+                    out.writeInt(strings.get(injection.injectedType()));
+                    out.writeByte(injection.kind().ordinal());
+                    out.writeInt(strings.get(injection.target()));
+                }
+            }
+
+            out.writeInt(postConstructOrder.size());
+            for (String className : postConstructOrder) {
+                out.writeInt(strings.get(className));
+            }
+            out.flush();
+
+            Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            Files.write(temp, bytes.toByteArray());
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.trace("Wrote wiring plan {} with {} beans", file, beanClassNames.size());
+        } catch (IOException ex) {
+            log.warn("Failed to write wiring plan {}", file, ex);
+        }
+    }
+
+    private static void index(Map<String, Integer> strings, String string) {
+        strings.putIfAbsent(string, strings.size());
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,87 @@
+package com.cwsoft.flydi;
+
+import com.cwsoft.flydi.fixtures.child.Clock;
+import com.cwsoft.flydi.fixtures.child.Greeting;
+import com.cwsoft.flydi.fixtures.child.Reporter;
+import com.cwsoft.flydi.fixtures.child.SystemClock;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChildContainerTest {
+
+    private static final String PACKAGE = "com.cwsoft.flydi.fixtures.child";
+
+    private static FlyDI startChild(FlyDI parent, Object... beans) {
+        FlyDI child = parent.createChild();
+        for (Object bean : beans) child.addBean(bean);
+        child.injectBeans();
+        child.runPostConstructors();
+        return child;
+    }
+
+    @Test
+    void childOverrideShadowsTheParentBean() {
+        FlyDI parent = Containers.start(PACKAGE);
+        Greeting greeting = new Greeting();
+        greeting.setText("hi");
+        Reporter reporter = new Reporter();
+
+        FlyDI child = startChild(parent, greeting, reporter);
+
+        assertSame(greeting, reporter.getGreeting());
+        assertSame(greeting, child.getBean(Greeting.class));
+        assertSame(greeting, child.getBean("Greeting"));
+        assertEquals("hello", parent.getBean(Greeting.class).getText());
+    }
+
+    @Test
+    void lookupTheChildCannotAnswerFallsThroughToTheParent() {
+        FlyDI parent = Containers.start(PACKAGE);
+        Reporter reporter = new Reporter();
+
+        FlyDI child = startChild(parent, reporter);
+
+        SystemClock clock = parent.getBean(SystemClock.class);
+        assertSame(clock, reporter.getClock());
+        assertSame(parent.getBean(Greeting.class), reporter.getGreeting());
+        assertSame(clock, child.getBean(Clock.class));
+        assertSame(clock, child.getBean(SystemClock.class.getName()));
+        assertSame(reporter, child.getBean(Reporter.class));
+        assertSame(child, child.getBean(FlyDI.class));
+    }
+
+    @Test
+    void childInjectionsLeaveTheParentUnchanged() {
+        FlyDI parent = Containers.start(PACKAGE);
+        assertTrue(parent.isFrozen());
+
+        // Clock is found through the parent's type index, the child must not teach it the parent
+        startChild(parent, new Reporter());
+
+        assertTrue(parent.isFrozen());
+        assertNull(parent.getBean("Clock"));
+        assertNull(parent.getBean(Reporter.class));
+    }
+
+    @Test
+    void droppedChildIsCollected() throws InterruptedException {
+        FlyDI parent = Containers.start(PACKAGE);
+        WeakReference<FlyDI> reference = startedChild(parent);
+
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(reference.get());
+    }
+
+    private static WeakReference<FlyDI> startedChild(FlyDI parent) {
+        FlyDI child = startChild(parent, new Reporter());
+        assertTrue(child.isFrozen());
+        assertSame(child, child.getBean(FlyDI.class));
+        return new WeakReference<>(child);
+    }
+}
@@ -0,0 +1,27 @@
+package com.cwsoft.flydi;
+
+/**
+ * Starts containers on the fixture packages, scanned without a bean index or generated wiring.
+ */
+final class Containers {
+
+    private Containers() {
+    }
+
+    static FlyDI start(String packageName) {
+        return start(packageName, 1);
+    }
+
+    static FlyDI start(String packageName, int parallelism) {
+        FlyDI flyDI = new FlyDI(BeanScannerConfig.builder()
+                .includePackage(packageName)
+                .useBeanIndex(false)
+                .useGeneratedWiring(false)
+                .parallelism(parallelism)
+                .build());
+        flyDI.scanForBeans();
+        flyDI.injectBeans();
+        flyDI.runPostConstructors();
+        return flyDI;
+    }
+}
@@ -0,0 +1,83 @@
+package com.cwsoft.flydi;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DependencyGraphTest {
+
+    @Test
+    void independentNodesAreSortedInTheOrderTheyWereAdded() throws DependencyGraph.CircularDependencyException {
+        DependencyGraph<String> graph = new DependencyGraph<>();
+        graph.add("Z");
+        graph.addDependency("C", "A");
+        graph.addDependency("C", "B");
+        graph.add("M");
+
+        assertEquals(List.of("Z", "A", "B", "M", "C"), graph.topologicalSort());
+        assertEquals(List.of(List.of("Z", "A", "B", "M"), List.of("C")), graph.levels());
+    }
+
+    @Test
+    void insertedDependenciesKeepTheSortedOrder() throws DependencyGraph.CircularDependencyException {
+        DependencyGraph<String> graph = new DependencyGraph<>();
+        graph.addDependency("B", "A");
+        graph.add("C");
+        graph.add("D");
+        assertEquals(List.of("A", "C", "D", "B"), graph.topologicalSort());
+
+        graph.insertDependency("A", "D");
+        graph.insertDependency("E", "B");
+
+        assertEquals(List.of("D", "C", "A", "B", "E"), graph.topologicalSort());
+    }
+
+    @Test
+    void insertingADependencyClosingACycleIsRejected() throws DependencyGraph.CircularDependencyException {
+        DependencyGraph<String> graph = new DependencyGraph<>();
+        graph.addDependency("A", "B");
+        graph.addDependency("B", "C");
+
+        var error = assertThrows(DependencyGraph.CircularDependencyException.class, () -> graph.insertDependency("C", "A"));
+
+        assertEquals("Cycle detected adding dependency of C on A: C -> A -> B -> C", error.getMessage());
+        assertEquals(List.of("C", "B", "A"), graph.topologicalSort());
+        assertEquals(List.of(), graph.getUses("C").stream().toList());
+    }
+
+    @Test
+    void insertAllStopsAtTheDependencyClosingACycle() throws DependencyGraph.CircularDependencyException {
+        DependencyGraph<String> graph = new DependencyGraph<>();
+        graph.addDependency("A", "B");
+        graph.topologicalSort();
+
+        DependencyGraph<String> other = new DependencyGraph<>();
+        other.addDependency("C", "A");
+        other.addDependency("B", "C");
+
+        assertThrows(DependencyGraph.CircularDependencyException.class, () -> graph.insertAll(other));
+        assertEquals(List.of("B", "A", "C"), graph.topologicalSort());
+    }
+
+    @Test
+    void sortReportsAShortestCycleOfEachGroup() {
+        DependencyGraph<String> graph = new DependencyGraph<>();
+        graph.addDependency("A", "B");
+        graph.addDependency("B", "A");
+        graph.addDependency("F", "A");
+        // W, X, Y and Z all depend on each other, the shortest cycle through W is W -> X -> W
+        graph.addDependency("W", "X");
+        graph.addDependency("X", "W");
+        graph.addDependency("X", "Y");
+        graph.addDependency("Y", "Z");
+        graph.addDependency("Z", "X");
+
+        var error = assertThrows(DependencyGraph.CircularDependencyException.class, graph::topologicalSort);
+
+        assertEquals("Cycle detected in dependency evaluation, circular dependencies: A -> B -> A; "
+                + "W -> X -> W (and 2 more in cycles with these)", error.getMessage());
+        assertEquals(List.of(List.of("A", "B", "A"), List.of("W", "X", "W")), graph.cycles());
+    }
+}
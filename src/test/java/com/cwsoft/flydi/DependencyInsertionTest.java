@@ -0,0 +1,43 @@
+package com.cwsoft.flydi;
+
+import com.cwsoft.flydi.fixtures.cycle.Back;
+import com.cwsoft.flydi.fixtures.cycle.Fallback;
+import com.cwsoft.flydi.fixtures.cycle.Front;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DependencyInsertionTest {
+
+    private static final String PACKAGE = "com.cwsoft.flydi.fixtures.cycle";
+
+    @Test
+    void beanInjectedAfterStartupIsOrdered() throws DependencyGraph.CircularDependencyException {
+        FlyDI flyDI = Containers.start(PACKAGE);
+
+        Back back = new Back();
+        flyDI.injectBean(back);
+
+        assertInstanceOf(Fallback.class, back.getTarget());
+        List<String> order = flyDI.beanClassNamesInDependencyOrder();
+        assertTrue(order.indexOf(Fallback.class.getName()) < order.indexOf(Back.class.getName()));
+    }
+
+    @Test
+    void beanInjectedAfterStartupClosingACycleIsRejected() throws DependencyGraph.CircularDependencyException {
+        FlyDI flyDI = Containers.start(PACKAGE);
+        flyDI.addBean("Fallback", flyDI.getBean(Front.class));
+
+        Back back = new Back();
+        InjectError error = assertThrows(InjectError.class, () -> flyDI.injectBean(back));
+
+        assertInstanceOf(DependencyGraph.CircularDependencyException.class, error.getCause());
+        assertTrue(error.getMessage().contains(Back.class.getName() + " -> " + Front.class.getName()));
+        // nothing was injected into the rejected bean
+        assertNull(back.getTarget());
+        // the graph is left without the cycle
+        assertEquals(3, flyDI.beanClassNamesInDependencyOrder().size());
+    }
+}
@@ -0,0 +1,24 @@
+package com.cwsoft.flydi;
+
+import com.cwsoft.flydi.fixtures.constructed.Repository;
+import com.cwsoft.flydi.fixtures.constructed.Service;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlyDI2Test {
+
+    @Test
+    void beansAreConstructedInjectedAndPostConstructed() {
+        FlyDI2 flyDI = new FlyDI2(BeanScannerConfig.builder()
+                .includePackage("com.cwsoft.flydi.fixtures.constructed")
+                .useBeanIndex(false)
+                .build());
+        flyDI.scanForBeans();
+        flyDI.createAndInjectBeans();
+
+        Service service = flyDI.getBean(Service.class);
+        assertSame(flyDI.getBean(Repository.class), service.getRepository());
+        assertTrue(service.isInitialized());
+    }
+}
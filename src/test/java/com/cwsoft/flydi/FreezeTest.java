@@ -0,0 +1,75 @@
+package com.cwsoft.flydi;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FreezeTest {
+
+    public interface Greeter {
+    }
+
+    public static class English implements Greeter {
+    }
+
+    public static class German implements Greeter {
+    }
+
+    private static FlyDI container() {
+        return new FlyDI(BeanScannerConfig.builder().includePackage(FreezeTest.class.getPackageName()).build());
+    }
+
+    @Test
+    void lookupsWorkAfterFreeze() {
+        FlyDI flyDI = container();
+        English english = new English();
+        flyDI.addBean("hello", english);
+        flyDI.freeze();
+
+        assertTrue(flyDI.isFrozen());
+        assertSame(english, flyDI.getBean("hello"));
+        assertSame(english, flyDI.getBean(English.class.getName()));
+        assertSame(english, flyDI.getBean(English.class));
+        assertSame(english, flyDI.getBean(Greeter.class));
+        assertNull(flyDI.getBean(German.class));
+    }
+
+    @Test
+    void addingABeanDropsTheRegistry() {
+        FlyDI flyDI = container();
+        flyDI.addBean(new English());
+        flyDI.freeze();
+
+        German german = new German();
+        flyDI.addBean(german);
+        assertFalse(flyDI.isFrozen());
+        assertSame(german, flyDI.getBean(German.class));
+        // two implementations now, the interface is ambiguous
+        assertNull(flyDI.getBean(Greeter.class));
+
+        flyDI.freeze();
+        assertSame(german, flyDI.getBean(German.class));
+        assertNull(flyDI.getBean(Greeter.class));
+    }
+
+    @Test
+    void droppedFrozenContainerIsCollected() throws InterruptedException {
+        FlyDI root = container();
+        WeakReference<FlyDI> reference = frozenChild(root);
+
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(reference.get());
+    }
+
+    private static WeakReference<FlyDI> frozenChild(FlyDI root) {
+        FlyDI child = root.createChild();
+        child.freeze();
+        assertSame(child, child.getBean(FlyDI.class));
+        return new WeakReference<>(child);
+    }
+}
@@ -0,0 +1,105 @@
+package com.cwsoft.flydi;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntGraphTest {
+
+    private static IntGraph graph(int nodes, int... edges) {
+        IntGraph graph = new IntGraph();
+        for (int i = 0; i < nodes; i++) graph.addNode();
+        for (int i = 0; i < edges.length; i += 2) graph.addEdge(edges[i], edges[i + 1]);
+        return graph;
+    }
+
+    // every node is placed after the nodes it depends on
+    private static void assertOrdered(IntGraph graph, int[] order) {
+        assertEquals(graph.nodeCount(), order.length);
+        int[] position = new int[order.length];
+        for (int i = 0; i < order.length; i++) position[order[i]] = i;
+
+        for (int edge = 0; edge < graph.edgeCount(); edge++) {
+            assertTrue(position[graph.edgeUses(edge)] > position[graph.edgeUsedBy(edge)],
+                    graph.edgeUses(edge) + " placed before " + graph.edgeUsedBy(edge));
+        }
+    }
+
+    @Test
+    void sortStartsWithTheNodesWithoutDependenciesInIdOrder() {
+        IntGraph graph = graph(5, 0, 3, 2, 4);
+
+        assertArrayEquals(new int[]{1, 3, 4, 0, 2}, graph.topologicalSort());
+        assertTrue(graph.isOrdered());
+    }
+
+    @Test
+    void insertedEdgeOnlyReordersTheNodesBetweenItsEnds() {
+        IntGraph graph = graph(5);
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4}, graph.topologicalSort());
+
+        assertNull(graph.addEdgeIfAcyclic(1, 3));
+        assertArrayEquals(new int[]{0, 3, 2, 1, 4}, graph.topologicalSort());
+
+        // already in order, nothing moves
+        assertNull(graph.addEdgeIfAcyclic(4, 0));
+        assertArrayEquals(new int[]{0, 3, 2, 1, 4}, graph.topologicalSort());
+        assertOrdered(graph, graph.topologicalSort());
+    }
+
+    @Test
+    void insertedEdgesKeepAValidOrderWithNewNodes() {
+        IntGraph graph = graph(4, 1, 0, 2, 1);
+        graph.topologicalSort();
+
+        int node = graph.addNode();
+        assertNull(graph.addEdgeIfAcyclic(0, node));
+        assertNull(graph.addEdgeIfAcyclic(node, 3));
+        assertNull(graph.addEdgeIfAcyclic(2, 3));
+
+        assertTrue(graph.isOrdered());
+        assertOrdered(graph, graph.topologicalSort());
+    }
+
+    @Test
+    void edgeClosingACycleIsRejectedWithTheCycle() {
+        IntGraph graph = graph(3, 0, 1, 1, 2);
+        int[] order = graph.topologicalSort();
+
+        assertArrayEquals(new int[]{2, 0, 1, 2}, graph.addEdgeIfAcyclic(2, 0));
+        assertArrayEquals(new int[]{1, 1}, graph.addEdgeIfAcyclic(1, 1));
+
+        assertEquals(2, graph.edgeCount());
+        assertArrayEquals(order, graph.topologicalSort());
+    }
+
+    @Test
+    void cyclicComponentsAreExactlyTheNodesInCycles() {
+        // 0 <-> 1, 2 -> 3 -> 4 -> 2, 5 only depends on a cycle, 6 depends on itself
+        IntGraph graph = graph(7, 0, 1, 1, 0, 2, 3, 3, 4, 4, 2, 5, 0, 6, 6);
+
+        int[][] components = graph.cyclicComponents();
+
+        assertEquals(3, components.length);
+        assertArrayEquals(new int[]{0, 1}, components[0]);
+        assertArrayEquals(new int[]{2, 3, 4}, components[1]);
+        assertArrayEquals(new int[]{6}, components[2]);
+        assertArrayEquals(new int[]{0, 1, 0}, graph.cycleIn(components[0]));
+        assertArrayEquals(new int[]{2, 3, 4, 2}, graph.cycleIn(components[1]));
+        assertArrayEquals(new int[]{6, 6}, graph.cycleIn(components[2]));
+        assertEquals(0, graph.topologicalSort().length);
+        assertFalse(graph.isOrdered());
+    }
+
+    @Test
+    void cycleInAComponentIsAShortestOneThroughItsFirstNode() {
+        // 0 -> 1 -> 2 -> 0 and 0 -> 3 -> 0
+        IntGraph graph = graph(4, 0, 1, 1, 2, 2, 0, 0, 3, 3, 0);
+
+        int[][] components = graph.cyclicComponents();
+
+        assertEquals(1, components.length);
+        assertArrayEquals(new int[]{0, 1, 2, 3}, components[0]);
+        assertArrayEquals(new int[]{0, 3, 0}, graph.cycleIn(components[0]));
+    }
+}
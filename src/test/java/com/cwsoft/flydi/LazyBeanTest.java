@@ -0,0 +1,77 @@
+package com.cwsoft.flydi;
+
+import com.cwsoft.flydi.fixtures.lazy.LazyA;
+import com.cwsoft.flydi.fixtures.lazy.LazyB;
+import com.cwsoft.flydi.fixtures.lazy.LazyHolder;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LazyBeanTest {
+
+    private static final String PACKAGE = "com.cwsoft.flydi.fixtures.lazy";
+
+    @Test
+    void lazyBeansAreCreatedOnFirstUse() {
+        FlyDI flyDI = Containers.start(PACKAGE);
+        int created = LazyA.CREATED.get();
+
+        LazyHolder holder = flyDI.getBean(LazyHolder.class);
+        assertEquals(created, LazyA.CREATED.get());
+
+        LazyA lazyA = holder.getLazyA().get();
+        assertEquals(created + 1, LazyA.CREATED.get());
+        assertSame(lazyA, flyDI.getBean(LazyA.class));
+    }
+
+    @Test
+    void lazyBeansInjectingEachOtherGetTheSameInstances() {
+        FlyDI flyDI = Containers.start(PACKAGE);
+
+        LazyA lazyA = flyDI.getBean(LazyA.class);
+        LazyB lazyB = flyDI.getBean(LazyB.class);
+
+        assertSame(lazyB, lazyA.getLazyB());
+        assertSame(lazyA, lazyB.getLazyA());
+        assertEquals(1, lazyA.getPostConstructed());
+        assertEquals(1, lazyB.getPostConstructed());
+    }
+
+    @Test
+    void threadsCreatingLazyBeansOfACycleDoNotDeadlock() {
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            for (int run = 0; run < 200; run++) {
+                FlyDI flyDI = Containers.start(PACKAGE);
+                CyclicBarrier barrier = new CyclicBarrier(2);
+
+                var a = CompletableFuture.supplyAsync(() -> {
+                    await(barrier);
+                    return flyDI.getBean(LazyA.class);
+                });
+                var b = CompletableFuture.supplyAsync(() -> {
+                    await(barrier);
+                    return flyDI.getBean(LazyB.class);
+                });
+
+                LazyA lazyA = a.join();
+                LazyB lazyB = b.join();
+                assertSame(lazyB, lazyA.getLazyB());
+                assertSame(lazyA, lazyB.getLazyA());
+                assertEquals(1, lazyA.getPostConstructed());
+                assertEquals(1, lazyB.getPostConstructed());
+            }
+        });
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await();
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.cwsoft.flydi;
+
+import com.cwsoft.flydi.fixtures.order.Service5;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelStartupTest {
+
+    private static final String PACKAGE = "com.cwsoft.flydi.fixtures.order";
+
+    @Test
+    void parallelStartupMatchesSequentialStartup() throws Exception {
+        FlyDI sequential = Containers.start(PACKAGE, 1);
+        List<String> order = sequential.beanClassNamesInDependencyOrder();
+        Class<?> store = sequential.getBean("Store").getClass();
+
+        // the lazy bean, and the prototype reached through providers, are in the graph
+        assertTrue(order.contains(Service5.class.getName()));
+        assertTrue(order.contains("com.cwsoft.flydi.fixtures.order.Worker"));
+
+        for (int run = 0; run < 20; run++) {
+            FlyDI parallel = Containers.start(PACKAGE, 8);
+            assertEquals(order, parallel.beanClassNamesInDependencyOrder());
+            assertEquals(store, parallel.getBean("Store").getClass());
+        }
+    }
+}
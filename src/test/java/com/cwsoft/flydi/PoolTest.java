@@ -0,0 +1,88 @@
+package com.cwsoft.flydi;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PoolTest {
+
+    @Pooled(maxIdle = 2)
+    public static class Buffer {
+        int length;
+        int resets;
+
+        @PreReuse
+        public void clear() {
+            length = 0;
+            resets++;
+        }
+    }
+
+    @Pooled(maxIdle = 5, warmUp = 5)
+    public static class Warm {
+        static final AtomicInteger created = new AtomicInteger();
+
+        public Warm() {
+            created.incrementAndGet();
+        }
+    }
+
+    private static FlyDI container() {
+        return new FlyDI(BeanScannerConfig.builder().includePackage(PoolTest.class.getPackageName()).build());
+    }
+
+    @Test
+    void releasedBeansAreResetAndReused() {
+        BeanPool<Buffer> pool = container().poolFor(Buffer.class);
+
+        Buffer buffer = pool.acquire();
+        buffer.length = 42;
+        pool.release(buffer);
+
+        assertSame(buffer, pool.acquire());
+        assertEquals(0, buffer.length);
+        assertEquals(1, buffer.resets);
+        assertEquals(new BeanPool.Stats(1, 1, 0), pool.getStats());
+        assertEquals(0.5, pool.getStats().hitRate());
+    }
+
+    @Test
+    void poolKeepsAtMostMaxIdleBeans() {
+        BeanPool<Buffer> pool = container().poolFor(Buffer.class);
+
+        List<Buffer> buffers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) buffers.add(pool.acquire());
+        buffers.forEach(pool::release);
+        for (int i = 0; i < 3; i++) pool.acquire();
+
+        assertEquals(new BeanPool.Stats(2, 4, 1), pool.getStats());
+    }
+
+    @Test
+    void releasingABeanTwiceIsRejected() {
+        BeanPool<Buffer> pool = container().poolFor(Buffer.class);
+
+        Buffer buffer = pool.acquire();
+        pool.release(buffer);
+
+        assertThrows(InjectError.class, () -> pool.release(buffer));
+        assertSame(buffer, pool.acquire());
+        assertNotSame(buffer, pool.acquire());
+    }
+
+    @Test
+    void warmUpFillsAllSlots() {
+        StripedBeanPool<Warm> pool = (StripedBeanPool<Warm>) container().poolFor(Warm.class);
+        Warm.created.set(0);
+        pool.warmUp();
+        pool.warmUp();
+
+        assertEquals(5, Warm.created.get());
+        pool.release(new Warm());
+        assertEquals(new BeanPool.Stats(0, 0, 1), pool.getStats());
+    }
+}
@@ -0,0 +1,106 @@
+package com.cwsoft.flydi;
+
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProviderCycleTest {
+
+    public static class A {
+        Provider<B> b;
+
+        @Inject
+        public void setB(Provider<B> b) {
+            this.b = b;
+        }
+    }
+
+    public static class B {
+        Provider<C> c;
+
+        @Inject
+        public void setC(Provider<C> c) {
+            this.c = c;
+        }
+    }
+
+    public static class C {
+        Provider<A> a;
+
+        @Inject
+        public void setA(Provider<A> a) {
+            this.a = a;
+        }
+    }
+
+    public static class P {
+        BeanPool<Q> q;
+
+        @Inject
+        public void setQ(BeanPool<Q> q) {
+            this.q = q;
+        }
+    }
+
+    public static class Q {
+        BeanPool<P> p;
+
+        @Inject
+        public void setP(BeanPool<P> p) {
+            this.p = p;
+        }
+    }
+
+    private static FlyDI container() {
+        return new FlyDI(BeanScannerConfig.builder().includePackage(ProviderCycleTest.class.getPackageName()).build());
+    }
+
+    @Test
+    void prototypesBreakingACycleWithProvidersAreCreated() {
+        FlyDI flyDI = container();
+
+        A a = flyDI.getPrototypeBean(A.class);
+        B b = a.b.get();
+        C c = b.c.get();
+        A next = c.a.get();
+
+        assertNotSame(a, next);
+        assertNotNull(next.b.get());
+    }
+
+    @Test
+    void factoriesOfACycleAreBuiltOnce() {
+        FlyDI flyDI = container();
+
+        PrototypeFactory<A> factory = flyDI.prototypeFactory(A.class);
+
+        assertSame(factory, flyDI.prototypeFactory(A.class));
+        assertSame(flyDI.prototypeFactory(B.class), flyDI.prototypeFactory(B.class));
+        assertInstanceOf(C.class, factory.create().b.get().c.get());
+    }
+
+    @Test
+    void providerForAPrototypeInACycle() {
+        FlyDI flyDI = container();
+
+        Provider<C> provider = flyDI.providerFor(C.class);
+
+        assertNotSame(provider.get(), provider.get());
+        assertInstanceOf(B.class, provider.get().a.get().b.get());
+    }
+
+    @Test
+    void poolsOfACycleAreCreatedOnce() {
+        FlyDI flyDI = container();
+
+        BeanPool<P> pool = flyDI.poolFor(P.class);
+        P p = pool.acquire();
+
+        assertSame(pool, flyDI.poolFor(P.class));
+        assertSame(flyDI.poolFor(Q.class), p.q);
+        assertSame(pool, p.q.acquire().p);
+    }
+}
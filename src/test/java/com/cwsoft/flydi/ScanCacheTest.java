@@ -0,0 +1,45 @@
+package com.cwsoft.flydi;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScanCacheTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void unchangedEntriesAreReadFromTheCache() throws IOException {
+        Path classes = Files.createDirectories(dir.resolve("classes"));
+        Files.writeString(classes.resolve("Bean.class"), "bean");
+        List<URL> urls = List.of(classes.toUri().toURL());
+
+        AtomicInteger scans = new AtomicInteger();
+        Function<URL, List<BeanIndex.Entry>> scanner = url -> {
+            scans.incrementAndGet();
+            return List.of(new BeanIndex.Entry("com.example.Bean", "server"));
+        };
+
+        ScanCache cache = new ScanCache(dir.resolve("scan.cache"), false);
+        cache.scan(urls, "scope", scanner);
+        List<BeanIndex.Entry> entries = cache.scan(urls, "scope", scanner);
+
+        assertEquals(1, scans.get());
+        assertEquals(1, entries.size());
+        assertEquals("com.example.Bean", entries.get(0).getClassName());
+        assertEquals("server", entries.get(0).getSystem());
+
+        cache.scan(urls, "other scope", scanner);
+        assertEquals(2, scans.get());
+    }
+}
@@ -0,0 +1,131 @@
+package com.cwsoft.flydi;
+
+import org.junit.jupiter.api.Test;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import javax.inject.Provider;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScopedBeanTest {
+
+    @Scoped
+    public static class Request {
+    }
+
+    @Scoped(Scoped.Kind.THREAD)
+    public static class Buffer {
+    }
+
+    /**
+     * Asks for another bean of its scope while it is created.
+     */
+    @Scoped
+    public static class Session {
+        private Provider<User> user;
+        private User created;
+
+        @Inject
+        public void setUser(Provider<User> user) {
+            this.user = user;
+        }
+
+        @PostConstruct
+        public void init() {
+            created = user.get();
+        }
+    }
+
+    @Scoped
+    public static class User {
+    }
+
+    private static FlyDI container() {
+        return new FlyDI(BeanScannerConfig.builder().includePackage(ScopedBeanTest.class.getPackageName()).build());
+    }
+
+    @Test
+    void scopeHasOneInstance() {
+        FlyDI flyDI = container();
+        ScopedHandle<Request> handle = flyDI.scopedHandleFor(Request.class);
+        Request[] seen = new Request[2];
+
+        flyDI.runInScope(() -> {
+            seen[0] = handle.get();
+            assertSame(seen[0], handle.get());
+        });
+        flyDI.runInScope(() -> seen[1] = handle.get());
+
+        assertNotNull(seen[0]);
+        assertNotSame(seen[0], seen[1]);
+    }
+
+    @Test
+    void nestedScopeHasItsOwnBeansAndRestoresTheOuterScope() throws Exception {
+        FlyDI flyDI = container();
+        ScopedHandle<Request> handle = flyDI.scopedHandleFor(Request.class);
+
+        flyDI.callInScope(() -> {
+            Request outer = handle.get();
+            Request inner = flyDI.callInScope(handle::get);
+
+            assertNotSame(outer, inner);
+            assertSame(outer, handle.get());
+            return null;
+        });
+    }
+
+    @Test
+    void beanOutsideAScopeIsRejected() {
+        FlyDI flyDI = container();
+        ScopedHandle<Request> handle = flyDI.scopedHandleFor(Request.class);
+
+        assertThrows(InjectError.class, handle::get);
+        flyDI.runInScope(handle::get);
+        assertThrows(InjectError.class, handle::get);
+    }
+
+    @Test
+    void threadScopedBeansDifferBetweenThreads() throws Exception {
+        FlyDI flyDI = container();
+        ScopedHandle<Buffer> handle = flyDI.scopedHandleFor(Buffer.class);
+
+        Buffer buffer = handle.get();
+        assertSame(buffer, handle.get());
+        assertNotSame(buffer, CompletableFuture.supplyAsync(handle::get).get());
+    }
+
+    @Test
+    void beanCreatedWhileCreatingAnotherOfTheScopeIsKept() throws Exception {
+        FlyDI flyDI = container();
+
+        // the scope is opened before the handles exist, so creating them grows it
+        flyDI.callInScope(() -> {
+            ScopedHandle<Session> sessions = flyDI.scopedHandleFor(Session.class);
+            ScopedHandle<User> users = flyDI.scopedHandleFor(User.class);
+
+            Session session = sessions.get();
+            assertNotNull(session.created);
+            assertSame(session.created, users.get());
+            assertSame(session, sessions.get());
+            return null;
+        });
+    }
+
+    @Test
+    void carriersRestoreThePreviousScope() {
+        for (ScopeCarrier carrier : new ScopeCarrier[]{ScopeCarrier.create(), new ScopeCarrier.ThreadLocalCarrier()}) {
+            ExecutionScope outer = new ExecutionScope(1);
+            ExecutionScope inner = new ExecutionScope(1);
+
+            carrier.run(outer, () -> {
+                assertSame(outer, carrier.current());
+                carrier.run(inner, () -> assertSame(inner, carrier.current()));
+                assertSame(outer, carrier.current());
+            });
+            assertNull(carrier.current());
+        }
+    }
+}
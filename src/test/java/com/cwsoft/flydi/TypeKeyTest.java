@@ -0,0 +1,60 @@
+package com.cwsoft.flydi;
+
+import com.cwsoft.flydi.fixtures.types.SelfSupplier;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TypeKeyTest {
+
+    @SuppressWarnings("unused")
+    private List<String> strings;
+
+    @Test
+    void keysOfTheSameTypeAreEqual() throws Exception {
+        TypeKey key = TypeKey.of(TypeKeyTest.class.getDeclaredField("strings").getGenericType());
+
+        assertEquals(key, TypeKey.of(TypeKeyTest.class.getDeclaredField("strings").getGenericType()));
+        assertEquals(key.hashCode(), TypeKey.of(TypeKeyTest.class.getDeclaredField("strings").getGenericType()).hashCode());
+        assertNotEquals(TypeKey.of(List.class), key);
+        assertSame(TypeKey.of(List.class), TypeKey.of(List.class));
+    }
+
+    @Test
+    void supertypesAreResolved() {
+        assertTrue(Arrays.asList(TypeKey.supertypesOf(SelfSupplier.class)).contains(TypeKey.of(SelfSupplier.class.getGenericInterfaces()[0])));
+        assertTrue(Arrays.asList(TypeKey.supertypesOf(SelfSupplier.class)).contains(TypeKey.of(Supplier.class)));
+    }
+
+    @Test
+    void resolvedTypesDoNotKeepTheirClassLoader() throws Exception {
+        WeakReference<ClassLoader> loader = resolveInOwnLoader();
+
+        for (int i = 0; i < 50 && loader.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertNull(loader.get(), "class loader was not collected");
+    }
+
+    // resolves Supplier<SelfSupplier>, a key of a JDK type holding a class of the plugin loader
+    private static WeakReference<ClassLoader> resolveInOwnLoader() throws Exception {
+        URL classes = SelfSupplier.class.getProtectionDomain().getCodeSource().getLocation();
+        URLClassLoader loader = new URLClassLoader(new URL[]{classes}, null);
+        Class<?> type = loader.loadClass(SelfSupplier.class.getName());
+
+        assertNotSame(SelfSupplier.class, type);
+        TypeKey supplier = TypeKey.of(type.getGenericInterfaces()[0]);
+        assertTrue(Arrays.asList(TypeKey.supertypesOf(type)).contains(supplier));
+
+        loader.close();
+        return new WeakReference<>(loader);
+    }
+}
@@ -0,0 +1,90 @@
+package com.cwsoft.flydi;
+
+import com.cwsoft.flydi.fixtures.planned.DefaultGreeter;
+import com.cwsoft.flydi.fixtures.planned.Greeter;
+import com.cwsoft.flydi.fixtures.planned.Host;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WiringPlanTest {
+    private static final FileTime WRITTEN = FileTime.fromMillis(0);
+    private static final Consumer<FlyDI> NOTHING = container -> {
+    };
+
+    @TempDir
+    Path dir;
+
+    public static class LoudGreeter implements Greeter {
+        @Override
+        public String greet() {
+            return "HELLO";
+        }
+    }
+
+    private FlyDI start(Consumer<FlyDI> beforeScan) {
+        FlyDI flyDI = new FlyDI(BeanScannerConfig.builder()
+                .includePackage("com.cwsoft.flydi.fixtures.planned")
+                .useBeanIndex(false)
+                .useGeneratedWiring(false)
+                .wiringPlanFile(dir.resolve("wiring.plan"))
+                .build());
+        beforeScan.accept(flyDI);
+        flyDI.scanForBeans();
+        flyDI.injectBeans();
+        flyDI.runPostConstructors();
+        return flyDI;
+    }
+
+    // the plan is only written again if the start did not follow it
+    private boolean planRewritten() throws IOException {
+        return !Files.getLastModifiedTime(dir.resolve("wiring.plan")).equals(WRITTEN);
+    }
+
+    private void markPlanWritten() throws IOException {
+        assertTrue(Files.isRegularFile(dir.resolve("wiring.plan")));
+        Files.setLastModifiedTime(dir.resolve("wiring.plan"), WRITTEN);
+    }
+
+    @Test
+    void unchangedStartReplaysThePlan() throws IOException {
+        start(NOTHING);
+        markPlanWritten();
+
+        FlyDI flyDI = start(NOTHING);
+
+        assertInstanceOf(DefaultGreeter.class, flyDI.getBean(Host.class).getGreeter());
+        assertFalse(planRewritten());
+    }
+
+    @Test
+    void beanAddedBeforeTheStartWinsOverThePlan() throws IOException {
+        start(NOTHING);
+        markPlanWritten();
+
+        LoudGreeter greeter = new LoudGreeter();
+        FlyDI flyDI = start(container -> container.addBean("greeter", greeter));
+
+        assertSame(greeter, flyDI.getBean(Host.class).getGreeter());
+        assertTrue(planRewritten());
+    }
+
+    @Test
+    void planFollowsABeanRemovedBeforeTheStart() throws IOException {
+        LoudGreeter greeter = new LoudGreeter();
+        start(container -> container.addBean("greeter", greeter));
+        markPlanWritten();
+
+        FlyDI flyDI = start(NOTHING);
+
+        assertInstanceOf(DefaultGreeter.class, flyDI.getBean(Host.class).getGreeter());
+        assertTrue(planRewritten());
+    }
+}
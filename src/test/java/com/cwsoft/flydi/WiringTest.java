@@ -0,0 +1,117 @@
+package com.cwsoft.flydi;
+
+import com.cwsoft.flydi.fixtures.planned.DefaultGreeter;
+import com.cwsoft.flydi.fixtures.planned.Host;
+import com.cwsoft.flydi.fixtures.wired.FlyDIWiring;
+import com.cwsoft.flydi.fixtures.wired.WiredBean;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WiringTest {
+    private static final String PACKAGE = "com.cwsoft.flydi.fixtures.wired";
+
+    private static final String GENERATED_PACKAGE = "com.cwsoft.flydi.fixtures.planned";
+
+    private static BeanScannerConfig.BeanScannerConfigBuilder config() {
+        return BeanScannerConfig.builder().includePackage(PACKAGE).useBeanIndex(false).useGeneratedWiring(true);
+    }
+
+    private static BeanScannerConfig generatedConfig() {
+        return BeanScannerConfig.builder().includePackage(GENERATED_PACKAGE).useBeanIndex(false).build();
+    }
+
+    /**
+     * Compiles the source of the generated wiring and loads it with a class loader of its own, so the wiring is not
+     * seen by the other tests.
+     */
+    private static ClassLoader compile(String source, Path directory) throws IOException {
+        Path sourceFile = directory.resolve("src").resolve(GENERATED_PACKAGE.replace('.', '/')).resolve(Wiring.CLASS_NAME + ".java");
+        Files.createDirectories(sourceFile.getParent());
+        Files.writeString(sourceFile, source);
+        Path classes = Files.createDirectories(directory.resolve("classes"));
+
+        String classPath = location(FlyDI.class) + File.pathSeparator + location(Host.class);
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        int result = compiler.run(null, null, null, "-proc:none", "-cp", classPath, "-d", classes.toString(), sourceFile.toString());
+        assertEquals(0, result, "generated wiring does not compile:\n" + source);
+
+        return new URLClassLoader(new URL[]{classes.toUri().toURL()}, WiringTest.class.getClassLoader());
+    }
+
+    private static String location(Class<?> clazz) {
+        try {
+            return Path.of(clazz.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    @Test
+    void wiringIsUsedForTheSamePackages() {
+        Wiring wiring = Wiring.load(config().excludePackage(PACKAGE + ".excluded").build(), WiringTest.class.getClassLoader());
+
+        assertInstanceOf(FlyDIWiring.class, wiring);
+    }
+
+    @Test
+    void wiringIsNotUsedForOtherExcludedPackages() {
+        assertNull(Wiring.load(config().build(), WiringTest.class.getClassLoader()));
+        assertNull(Wiring.load(config().excludePackage(PACKAGE + ".other").build(), WiringTest.class.getClassLoader()));
+    }
+
+    @Test
+    void postConstructorsAreStartedWithWiring() {
+        FlyDI flyDI = new FlyDI(config().excludePackage(PACKAGE + ".excluded").build());
+        flyDI.scanForBeans();
+        flyDI.injectBeans();
+        flyDI.runPostConstructors();
+
+        assertTrue(flyDI.getBean(WiredBean.class).isInitialized());
+        assertTrue(flyDI.isPostConstructorsStarted());
+    }
+
+    @Test
+    void wiringIsOptIn() {
+        assertFalse(BeanScannerConfig.builder().includePackage(PACKAGE).build().isUseGeneratedWiring());
+    }
+
+    @Test
+    void generatedWiringCompilesAndWiresTheBeans(@TempDir Path directory) throws Exception {
+        String source = new WiringGenerator(generatedConfig()).generateSource();
+        Wiring wiring = Wiring.load(generatedConfig(), compile(source, directory));
+        assertNotNull(wiring);
+        assertEquals(List.of(DefaultGreeter.class.getName(), Host.class.getName()), wiring.getBeanClassNames());
+
+        FlyDI flyDI = new FlyDI(generatedConfig());
+        wiring.createBeans(flyDI);
+        wiring.injectBeans(flyDI);
+        wiring.runPostConstructors(flyDI);
+
+        assertSame(flyDI.getBean(DefaultGreeter.class), flyDI.getBean(Host.class).getGreeter());
+        // the dependencies are recorded, not only the setters called
+        assertEquals(List.of(DefaultGreeter.class.getName(), Host.class.getName()), flyDI.beanClassNamesInDependencyOrder());
+        assertEquals(Set.of(DefaultGreeter.class.getName()), flyDI.dependenciesOfBeanClass(Host.class.getName()));
+    }
+
+    @Test
+    void staleGeneratedWiringIsNotUsed(@TempDir Path directory) throws Exception {
+        String source = new WiringGenerator(generatedConfig()).generateSource();
+        String stale = source.replaceFirst("return \\d+L;", "return 0L;");
+        assertNotEquals(source, stale);
+
+        assertNull(Wiring.load(generatedConfig(), compile(stale, directory)));
+    }
+}
@@ -0,0 +1,5 @@
+package com.cwsoft.flydi.fixtures.child;
+
+public interface Clock {
+    long now();
+}
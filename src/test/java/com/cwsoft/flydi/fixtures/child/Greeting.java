@@ -0,0 +1,16 @@
+package com.cwsoft.flydi.fixtures.child;
+
+import javax.annotation.ManagedBean;
+
+@ManagedBean
+public class Greeting {
+    private String text = "hello";
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+}
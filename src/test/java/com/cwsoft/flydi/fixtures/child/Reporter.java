@@ -0,0 +1,29 @@
+package com.cwsoft.flydi.fixtures.child;
+
+import javax.inject.Inject;
+
+/**
+ * Not a managed bean, added to a child container only.
+ */
+public class Reporter {
+    private Clock clock;
+    private Greeting greeting;
+
+    @Inject
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Inject
+    public void setGreeting(Greeting greeting) {
+        this.greeting = greeting;
+    }
+
+    public Clock getClock() {
+        return clock;
+    }
+
+    public Greeting getGreeting() {
+        return greeting;
+    }
+}
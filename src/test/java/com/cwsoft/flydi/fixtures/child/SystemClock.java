@@ -0,0 +1,11 @@
+package com.cwsoft.flydi.fixtures.child;
+
+import javax.annotation.ManagedBean;
+
+@ManagedBean
+public class SystemClock implements Clock {
+    @Override
+    public long now() {
+        return System.currentTimeMillis();
+    }
+}
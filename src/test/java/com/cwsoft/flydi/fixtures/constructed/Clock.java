@@ -0,0 +1,7 @@
+package com.cwsoft.flydi.fixtures.constructed;
+
+import javax.annotation.ManagedBean;
+
+@ManagedBean
+public class Clock {
+}
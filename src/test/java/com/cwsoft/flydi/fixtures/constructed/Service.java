@@ -0,0 +1,35 @@
+package com.cwsoft.flydi.fixtures.constructed;
+
+import javax.annotation.ManagedBean;
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+
+@ManagedBean
+public class Service {
+    private final Repository repository;
+    private Clock clock;
+    private boolean initialized;
+
+    @Inject
+    Service(Repository repository) {
+        this.repository = repository;
+    }
+
+    @Inject
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    @PostConstruct
+    private void init() {
+        initialized = clock != null;
+    }
+
+    public Repository getRepository() {
+        return repository;
+    }
+
+    public boolean isInitialized() {
+        return initialized;
+    }
+}
@@ -0,0 +1,20 @@
+package com.cwsoft.flydi.fixtures.cycle;
+
+import javax.annotation.ManagedBean;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+@ManagedBean
+public class Back {
+    private Object target;
+
+    @Inject
+    @Named("Fallback")
+    public void setTarget(Object target) {
+        this.target = target;
+    }
+
+    public Object getTarget() {
+        return target;
+    }
+}
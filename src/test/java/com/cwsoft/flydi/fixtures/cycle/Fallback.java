@@ -0,0 +1,7 @@
+package com.cwsoft.flydi.fixtures.cycle;
+
+import javax.annotation.ManagedBean;
+
+@ManagedBean
+public class Fallback {
+}
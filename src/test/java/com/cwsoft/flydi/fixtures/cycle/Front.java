@@ -0,0 +1,14 @@
+package com.cwsoft.flydi.fixtures.cycle;
+
+import javax.annotation.ManagedBean;
+import javax.inject.Inject;
+
+@ManagedBean
+public class Front {
+    private Back back;
+
+    @Inject
+    public void setBack(Back back) {
+        this.back = back;
+    }
+}
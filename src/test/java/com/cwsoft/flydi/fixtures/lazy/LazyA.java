@@ -0,0 +1,39 @@
+package com.cwsoft.flydi.fixtures.lazy;
+
+import com.cwsoft.flydi.Lazy;
+
+import javax.annotation.ManagedBean;
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Lazy
+@ManagedBean
+public class LazyA {
+    public static final AtomicInteger CREATED = new AtomicInteger();
+
+    private LazyB lazyB;
+    private final AtomicInteger postConstructed = new AtomicInteger();
+
+    public LazyA() {
+        CREATED.incrementAndGet();
+    }
+
+    @Inject
+    public void setLazyB(LazyB lazyB) {
+        this.lazyB = lazyB;
+    }
+
+    @PostConstruct
+    public void init() {
+        postConstructed.incrementAndGet();
+    }
+
+    public LazyB getLazyB() {
+        return lazyB;
+    }
+
+    public int getPostConstructed() {
+        return postConstructed.get();
+    }
+}
@@ -0,0 +1,39 @@
+package com.cwsoft.flydi.fixtures.lazy;
+
+import com.cwsoft.flydi.Lazy;
+
+import javax.annotation.ManagedBean;
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Lazy
+@ManagedBean
+public class LazyB {
+    public static final AtomicInteger CREATED = new AtomicInteger();
+
+    private LazyA lazyA;
+    private final AtomicInteger postConstructed = new AtomicInteger();
+
+    public LazyB() {
+        CREATED.incrementAndGet();
+    }
+
+    @Inject
+    public void setLazyA(LazyA lazyA) {
+        this.lazyA = lazyA;
+    }
+
+    @PostConstruct
+    public void init() {
+        postConstructed.incrementAndGet();
+    }
+
+    public LazyA getLazyA() {
+        return lazyA;
+    }
+
+    public int getPostConstructed() {
+        return postConstructed.get();
+    }
+}
@@ -0,0 +1,22 @@
+package com.cwsoft.flydi.fixtures.lazy;
+
+import javax.annotation.ManagedBean;
+import javax.inject.Inject;
+import javax.inject.Provider;
+
+/**
+ * An eager bean that holds a lazy one through a provider, so the lazy bean is not created at startup.
+ */
+@ManagedBean
+public class LazyHolder {
+    private Provider<LazyA> lazyA;
+
+    @Inject
+    public void setLazyA(Provider<LazyA> lazyA) {
+        this.lazyA = lazyA;
+    }
+
+    public Provider<LazyA> getLazyA() {
+        return lazyA;
+    }
+}
@@ -0,0 +1,19 @@
+package com.cwsoft.flydi.fixtures.order;
+
+import com.cwsoft.flydi.fixtures.order.a.Store;
+
+import javax.annotation.ManagedBean;
+import javax.inject.Inject;
+import javax.inject.Provider;
+
+@ManagedBean
+public class Service1 {
+
+    @Inject
+    public void setStorage(Store store) {
+    }
+
+    @Inject
+    public void setWorker(Provider<Worker> worker) {
+    }
+}
@@ -0,0 +1,23 @@
+package com.cwsoft.flydi.fixtures.order;
+
+import com.cwsoft.flydi.fixtures.order.b.Store;
+
+import javax.annotation.ManagedBean;
+import javax.inject.Inject;
+import javax.inject.Provider;
+
+@ManagedBean
+public class Service2 {
+
+    @Inject
+    public void setStorage(Store store) {
+    }
+
+    @Inject
+    public void setWorker(Provider<Worker> worker) {
+    }
+
+    @Inject
+    public void setPrevious(Service1 previous) {
+    }
+}
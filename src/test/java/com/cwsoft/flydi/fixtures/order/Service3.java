@@ -0,0 +1,23 @@
+package com.cwsoft.flydi.fixtures.order;
+
+import com.cwsoft.flydi.fixtures.order.a.Store;
+
+import javax.annotation.ManagedBean;
+import javax.inject.Inject;
+import javax.inject.Provider;
+
+@ManagedBean
+public class Service3 {
+
+    @Inject
+    public void setStorage(Store store) {
+    }
+
+    @Inject
+    public void setWorker(Provider<Worker> worker) {
+    }
+
+    @Inject
+    public void setPrevious(Service2 previous) {
+    }
+}
@@ -0,0 +1,25 @@
+package com.cwsoft.flydi.fixtures.order;
+
+import com.cwsoft.flydi.Lazy;
+import com.cwsoft.flydi.fixtures.order.a.Store;
+
+import javax.annotation.ManagedBean;
+import javax.inject.Inject;
+import javax.inject.Provider;
+
+@Lazy
+@ManagedBean
+public class Service5 {
+
+    @Inject
+    public void setStorage(Store store) {
+    }
+
+    @Inject
+    public void setWorker(Provider<Worker> worker) {
+    }
+
+    @Inject
+    public void setPrevious(Service4 previous) {
+    }
+}
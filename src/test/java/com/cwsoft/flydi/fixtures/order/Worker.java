@@ -0,0 +1,15 @@
+package com.cwsoft.flydi.fixtures.order;
+
+import com.cwsoft.flydi.fixtures.order.b.Store;
+
+import javax.inject.Inject;
+
+/**
+ * A prototype, only reached through providers.
+ */
+public class Worker {
+
+    @Inject
+    public void setStorage(Store store) {
+    }
+}
@@ -0,0 +1,4 @@
+package com.cwsoft.flydi.fixtures.order.a;
+
+public interface Store {
+}
@@ -0,0 +1,7 @@
+package com.cwsoft.flydi.fixtures.order.a;
+
+import javax.annotation.ManagedBean;
+
+@ManagedBean
+public class StoreA implements Store {
+}
@@ -0,0 +1,7 @@
+package com.cwsoft.flydi.fixtures.order.b;
+
+import javax.annotation.ManagedBean;
+
+@ManagedBean
+public class StoreB implements Store {
+}
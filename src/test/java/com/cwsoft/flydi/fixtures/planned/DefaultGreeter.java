@@ -0,0 +1,11 @@
+package com.cwsoft.flydi.fixtures.planned;
+
+import javax.annotation.ManagedBean;
+
+@ManagedBean
+public class DefaultGreeter implements Greeter {
+    @Override
+    public String greet() {
+        return "hello";
+    }
+}
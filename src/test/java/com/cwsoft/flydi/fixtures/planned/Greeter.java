@@ -0,0 +1,5 @@
+package com.cwsoft.flydi.fixtures.planned;
+
+public interface Greeter {
+    String greet();
+}
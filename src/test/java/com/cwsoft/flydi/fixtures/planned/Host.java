@@ -0,0 +1,18 @@
+package com.cwsoft.flydi.fixtures.planned;
+
+import javax.annotation.ManagedBean;
+import javax.inject.Inject;
+
+@ManagedBean
+public class Host {
+    private Greeter greeter;
+
+    @Inject
+    public void setGreeter(Greeter greeter) {
+        this.greeter = greeter;
+    }
+
+    public Greeter getGreeter() {
+        return greeter;
+    }
+}
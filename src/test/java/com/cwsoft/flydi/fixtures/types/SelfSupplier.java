@@ -0,0 +1,13 @@
+package com.cwsoft.flydi.fixtures.types;
+
+import java.util.function.Supplier;
+
+/**
+ * Only uses JDK types, so it can be loaded in a class loader of its own.
+ */
+public class SelfSupplier implements Supplier<SelfSupplier> {
+    @Override
+    public SelfSupplier get() {
+        return this;
+    }
+}
@@ -0,0 +1,54 @@
+package com.cwsoft.flydi.fixtures.wired;
+
+import com.cwsoft.flydi.FlyDI;
+import com.cwsoft.flydi.Wiring;
+
+import java.util.List;
+
+/**
+ * Written as {@link com.cwsoft.flydi.WiringGenerator} would write it for this package, excluding {@code .excluded}.
+ */
+public final class FlyDIWiring implements Wiring {
+    private WiredBean wiredBean;
+
+    @Override
+    public String getSystem() {
+        return "";
+    }
+
+    @Override
+    public List<String> getPackagesToInclude() {
+        return List.of("com.cwsoft.flydi.fixtures.wired");
+    }
+
+    @Override
+    public List<String> getPackagesToExclude() {
+        return List.of("com.cwsoft.flydi.fixtures.wired.excluded");
+    }
+
+    @Override
+    public List<String> getBeanClassNames() {
+        return List.of("com.cwsoft.flydi.fixtures.wired.WiredBean");
+    }
+
+    @Override
+    public long getFingerprint() {
+        return 2448713523L;
+    }
+
+    @Override
+    public void createBeans(FlyDI flyDI) {
+        wiredBean = new WiredBean();
+        flyDI.addBean(wiredBean);
+    }
+
+    @Override
+    public void injectBeans(FlyDI flyDI) {
+        flyDI.addDependencies("com.cwsoft.flydi.fixtures.wired.WiredBean");
+    }
+
+    @Override
+    public void runPostConstructors(FlyDI flyDI) {
+        wiredBean.init();
+    }
+}
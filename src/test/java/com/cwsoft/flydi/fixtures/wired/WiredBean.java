@@ -0,0 +1,18 @@
+package com.cwsoft.flydi.fixtures.wired;
+
+import javax.annotation.ManagedBean;
+import javax.annotation.PostConstruct;
+
+@ManagedBean
+public class WiredBean {
+    private boolean initialized;
+
+    @PostConstruct
+    public void init() {
+        initialized = true;
+    }
+
+    public boolean isInitialized() {
+        return initialized;
+    }
+}